@@ -0,0 +1,252 @@
+package com.github.alanzplus.codebox.cache;
+
+import com.google.common.annotations.VisibleForTesting;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Adaptive Replacement Cache: balances recency and frequency online, without tuning.
+ *
+ * <p>Resident entries live in two LRU lists: {@code T1} holds keys seen once recently, {@code T2} keys seen at least twice. Each is
+ * followed by a ghost list, {@code B1} and {@code B2}, remembering the keys (without values) recently evicted from it. A put of a key
+ * found in {@code B1} means {@code T1} was too small, so the target size {@code p} of {@code T1} grows; a put of a key found in
+ * {@code B2} shrinks it. Eviction then takes from whichever list exceeds its target. Together the four lists never hold more than
+ * {@code 2 * capacity} keys, so the ghost lists cost at most {@code capacity} keys.
+ *
+ * @see <a href="https://www.usenix.org/legacy/events/fast03/tech/full_papers/megiddo/megiddo.pdf">ARC: A Self-Tuning, Low
+ *     Overhead Replacement Cache</a>
+ */
+public class ARC<K, V> implements Cache<K, V> {
+    private final int capacity;
+    private final RemovalListener<K, V> removalListener;
+    private final Map<K, Node<K, V>> index = new HashMap<>();
+    private final Segment<K, V> t1 = new Segment<>(ListType.T1);
+    private final Segment<K, V> t2 = new Segment<>(ListType.T2);
+    private final Segment<K, V> b1 = new Segment<>(ListType.B1);
+    private final Segment<K, V> b2 = new Segment<>(ListType.B2);
+    private int p;
+
+    public ARC(final int capacity) {
+        this(capacity, RemovalListener.noop());
+    }
+
+    public ARC(final int capacity, final RemovalListener<K, V> removalListener) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity " + capacity + " <= 0");
+        }
+        this.capacity = capacity;
+        this.removalListener = removalListener;
+    }
+
+    @Override
+    public void put(final K key, final V value) {
+        final Node<K, V> node = index.get(key);
+        if (null == node) {
+            putNew(key, value);
+            return;
+        }
+        switch (node.list.type) {
+            case T1:
+            case T2:
+                final V old = node.value;
+                node.value = value;
+                node.list.remove(node);
+                t2.addLast(node);
+                removalListener.onRemoval(key, old, RemovalCause.REPLACED);
+                break;
+            case B1:
+                p = Math.min(capacity, p + Math.max(b2.size / b1.size, 1));
+                readmit(node, value, false);
+                break;
+            case B2:
+                p = Math.max(0, p - Math.max(b1.size / b2.size, 1));
+                readmit(node, value, true);
+                break;
+            default:
+                throw new IllegalStateException("unknown list " + node.list.type);
+        }
+    }
+
+    @Override
+    public V get(final K key) {
+        final Node<K, V> node = index.get(key);
+        if (null == node || !node.list.type.resident) {
+            return null;
+        }
+        node.list.remove(node);
+        t2.addLast(node);
+        return node.value;
+    }
+
+    @Override
+    public V remove(final K key) {
+        final Node<K, V> node = index.get(key);
+        if (null == node || !node.list.type.resident) {
+            return null;
+        }
+        index.remove(key);
+        node.list.remove(node);
+        removalListener.onRemoval(key, node.value, RemovalCause.EXPLICIT);
+        return node.value;
+    }
+
+    @Override
+    public Entry<K, V> victim() {
+        if (0 == size()) {
+            return null;
+        }
+        return (ListType.T1 == replacementList(false).type ? t1 : t2).first;
+    }
+
+    @Override
+    public int size() {
+        return t1.size + t2.size;
+    }
+
+    @Override
+    public int capacity() {
+        return capacity;
+    }
+
+    /** A key seen in a ghost list is requested again: it goes straight to {@code T2}. */
+    private void readmit(final Node<K, V> ghost, final V value, final boolean inB2) {
+        ghost.list.remove(ghost);
+        if (size() >= capacity) {
+            replace(inB2);
+        }
+        ghost.value = value;
+        t2.addLast(ghost);
+    }
+
+    private void putNew(final K key, final V value) {
+        if (t1.size + b1.size >= capacity) {
+            if (t1.size < capacity) {
+                dropGhost(b1);
+                if (size() >= capacity) {
+                    replace(false);
+                }
+            } else {
+                evict(t1.first);
+            }
+        } else if (t1.size + t2.size + b1.size + b2.size >= capacity) {
+            if (t1.size + t2.size + b1.size + b2.size >= 2 * capacity) {
+                dropGhost(b2);
+            }
+            if (size() >= capacity) {
+                replace(false);
+            }
+        }
+        final Node<K, V> node = new Node<>(key, value);
+        index.put(key, node);
+        t1.addLast(node);
+    }
+
+    /** Moves the LRU entry of {@code T1} or {@code T2}, whichever is above its target, to the matching ghost list. */
+    private void replace(final boolean inB2) {
+        final Segment<K, V> from = replacementList(inB2);
+        final Node<K, V> victim = from.first;
+        from.remove(victim);
+        final V value = victim.value;
+        victim.value = null;
+        (from == t1 ? b1 : b2).addLast(victim);
+        removalListener.onRemoval(victim.key, value, RemovalCause.SIZE);
+    }
+
+    private Segment<K, V> replacementList(final boolean inB2) {
+        if (!t1.isEmpty() && (t1.size > p || (inB2 && t1.size == p) || t2.isEmpty())) {
+            return t1;
+        }
+        return t2;
+    }
+
+    /** Evicts a resident entry without remembering it. */
+    private void evict(final Node<K, V> node) {
+        node.list.remove(node);
+        index.remove(node.key);
+        removalListener.onRemoval(node.key, node.value, RemovalCause.SIZE);
+    }
+
+    private void dropGhost(final Segment<K, V> ghosts) {
+        if (!ghosts.isEmpty()) {
+            final Node<K, V> ghost = ghosts.first;
+            ghosts.remove(ghost);
+            index.remove(ghost.key);
+        }
+    }
+
+    @VisibleForTesting
+    int p() {
+        return p;
+    }
+
+    @VisibleForTesting
+    ListType listOf(final K key) {
+        final Node<K, V> node = index.get(key);
+        return null == node ? null : node.list.type;
+    }
+
+    @VisibleForTesting
+    int ghostCount() {
+        return b1.size + b2.size;
+    }
+
+    enum ListType {
+        T1(true),
+        T2(true),
+        B1(false),
+        B2(false);
+
+        final boolean resident;
+
+        ListType(final boolean resident) {
+            this.resident = resident;
+        }
+    }
+
+    static class Node<K, V> extends AccessOrder.Linked<Node<K, V>> implements Entry<K, V> {
+        final K key;
+        V value;
+        Segment<K, V> list;
+
+        Node(final K key, final V value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        @Override
+        public K key() {
+            return key;
+        }
+
+        @Override
+        public V value() {
+            return value;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s:%s", key, value);
+        }
+    }
+
+    /** An {@link AccessOrder} which tells its nodes which list they are in. */
+    static class Segment<K, V> extends AccessOrder<Node<K, V>> {
+        final ListType type;
+
+        Segment(final ListType type) {
+            this.type = type;
+        }
+
+        @Override
+        void addLast(final Node<K, V> node) {
+            node.list = this;
+            super.addLast(node);
+        }
+
+        @Override
+        void remove(final Node<K, V> node) {
+            super.remove(node);
+            node.list = null;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.github.alanzplus.codebox.cache;
+
+/**
+ * Intrusive doubly linked list ordered from least ({@code first}) to most ({@code last}) recently used, shared by the policies
+ * which keep their entries in several LRU segments, such as {@link TinyLFU} and {@link ARC}.
+ *
+ * <p>The links live in the nodes themselves, so moving an entry between segments allocates nothing. A node is in at most one list
+ * at a time.
+ */
+class AccessOrder<N extends AccessOrder.Linked<N>> {
+    N first;
+    N last;
+    int size;
+
+    boolean isEmpty() {
+        return null == first;
+    }
+
+    void addLast(final N node) {
+        node.prev = last;
+        node.next = null;
+        if (null == last) {
+            first = node;
+        } else {
+            last.next = node;
+        }
+        last = node;
+        ++size;
+    }
+
+    void remove(final N node) {
+        if (null == node.prev) {
+            first = node.next;
+        } else {
+            node.prev.next = node.next;
+        }
+        if (null == node.next) {
+            last = node.prev;
+        } else {
+            node.next.prev = node.prev;
+        }
+        node.prev = null;
+        node.next = null;
+        --size;
+    }
+
+    void moveToLast(final N node) {
+        if (node != last) {
+            remove(node);
+            addLast(node);
+        }
+    }
+
+    /** The links a node needs to be put in an {@link AccessOrder}. */
+    abstract static class Linked<N extends Linked<N>> {
+        N prev;
+        N next;
+    }
+}
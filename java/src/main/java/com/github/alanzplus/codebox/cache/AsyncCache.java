@@ -0,0 +1,219 @@
+package com.github.alanzplus.codebox.cache;
+
+import com.google.common.annotations.VisibleForTesting;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import lombok.NonNull;
+
+/**
+ * A thread-safe cache of {@link CompletableFuture}s, for callers which must not block on a load.
+ *
+ * <p>A miss caches a new future for the key right away and starts the loader, so every concurrent caller of {@link #get} receives the
+ * same future and a key is only loaded once. A future which fails, or completes with {@code null}, is removed from the cache as soon
+ * as it completes, so the next {@link #get} retries the load.
+ *
+ * <p>{@link #synchronous()} views the cache as a plain {@link Cache} of values, blocking on loads; both views share the same entries.
+ * The removal listener is only told of futures which had completed with a value.
+ *
+ * <p>The delegate must be thread-safe, e.g. a {@link BufferedCache} or a {@link StripedLRU}. Writes of a key, including the removal
+ * of a failed future, are serialized by a striped lock so that a failure never removes a future which replaced the failed one.
+ */
+public class AsyncCache<K, V> {
+    private static final int LOCK_STRIPES = 64;
+
+    private final Cache<K, CompletableFuture<V>> delegate;
+    private final Function<? super K, ? extends CompletableFuture<? extends V>> loader;
+    private final Object[] locks = new Object[LOCK_STRIPES];
+    private final Cache<K, V> synchronous = new SynchronousView();
+
+    public AsyncCache(
+            final Function<RemovalListener<K, CompletableFuture<V>>, Cache<K, CompletableFuture<V>>> delegateFactory,
+            final Function<? super K, ? extends CompletableFuture<? extends V>> loader) {
+        this(delegateFactory, loader, RemovalListener.noop());
+    }
+
+    /**
+     * @param delegateFactory creates the thread-safe cache holding the futures, which must report every entry it drops to the
+     *     listener it is given
+     * @param loader starts loading the value of a key; a loader throwing is treated as returning a failed future
+     */
+    public AsyncCache(
+            final Function<RemovalListener<K, CompletableFuture<V>>, Cache<K, CompletableFuture<V>>> delegateFactory,
+            final Function<? super K, ? extends CompletableFuture<? extends V>> loader,
+            final RemovalListener<K, V> removalListener) {
+        this.loader = loader;
+        for (int i = 0; i < locks.length; ++i) {
+            locks[i] = new Object();
+        }
+        delegate = delegateFactory.apply((key, future, cause) -> {
+            final V value = valueOf(future);
+            if (null != value) {
+                removalListener.onRemoval(key, value, cause);
+            }
+        });
+    }
+
+    /** Returns the cached future, starting a load with the cache's loader on a miss. */
+    public CompletableFuture<V> get(@NonNull final K key) {
+        return get(key, loader);
+    }
+
+    /** Returns the cached future, starting a load with the given loader on a miss. */
+    public CompletableFuture<V> get(
+            @NonNull final K key, @NonNull final Function<? super K, ? extends CompletableFuture<? extends V>> loader) {
+        final CompletableFuture<V> cached = delegate.get(key);
+        if (null != cached) {
+            return cached;
+        }
+        final CompletableFuture<V> future;
+        synchronized (lockFor(key)) {
+            // Another thread may have registered a future between our miss and taking the lock
+            final CompletableFuture<V> registered = delegate.get(key);
+            if (null != registered) {
+                return registered;
+            }
+            future = new CompletableFuture<>();
+            delegate.put(key, future);
+        }
+        final CompletableFuture<? extends V> loading;
+        try {
+            loading = loader.apply(key);
+        } catch (final RuntimeException | Error e) {
+            removeIfSame(key, future);
+            future.completeExceptionally(e);
+            return future;
+        }
+        if (null == loading) {
+            removeIfSame(key, future);
+            future.complete(null);
+            return future;
+        }
+        loading.whenComplete((value, failure) -> {
+            // Removed before completing, so that whoever sees the failure also sees the key gone
+            if (null != failure || null == value) {
+                removeIfSame(key, future);
+            }
+            if (null == failure) {
+                future.complete(value);
+            } else {
+                future.completeExceptionally(failure);
+            }
+        });
+        return future;
+    }
+
+    /** Returns the cached future, done or not, without loading anything. */
+    public CompletableFuture<V> getIfPresent(@NonNull final K key) {
+        return delegate.get(key);
+    }
+
+    /** Caches the future, which is removed again if it fails or completes with {@code null}. */
+    public void put(@NonNull final K key, @NonNull final CompletableFuture<V> future) {
+        synchronized (lockFor(key)) {
+            delegate.put(key, future);
+        }
+        future.whenComplete((value, failure) -> {
+            if (null != failure || null == value) {
+                removeIfSame(key, future);
+            }
+        });
+    }
+
+    public CompletableFuture<V> remove(@NonNull final K key) {
+        synchronized (lockFor(key)) {
+            return delegate.remove(key);
+        }
+    }
+
+    /** A blocking view of the cache, whose {@link Cache#get} waits for the value, loading it on a miss. */
+    public Cache<K, V> synchronous() {
+        return synchronous;
+    }
+
+    public int size() {
+        return delegate.size();
+    }
+
+    private void removeIfSame(final K key, final CompletableFuture<V> future) {
+        synchronized (lockFor(key)) {
+            if (delegate.get(key) == future) {
+                delegate.remove(key);
+            }
+        }
+    }
+
+    private Object lockFor(final K key) {
+        final int h = key.hashCode();
+        return locks[(h ^ (h >>> 16)) & (LOCK_STRIPES - 1)];
+    }
+
+    /** The value of a future which completed normally, or null. */
+    private static <V> V valueOf(final CompletableFuture<V> future) {
+        return null != future && future.isDone() && !future.isCompletedExceptionally() ? future.join() : null;
+    }
+
+    @VisibleForTesting
+    Cache<K, CompletableFuture<V>> delegate() {
+        return delegate;
+    }
+
+    private class SynchronousView implements Cache<K, V> {
+        @Override
+        public V get(@NonNull final K key) {
+            return LoadingCache.join(AsyncCache.this.get(key));
+        }
+
+        @Override
+        public void put(@NonNull final K key, @NonNull final V value) {
+            AsyncCache.this.put(key, CompletableFuture.completedFuture(value));
+        }
+
+        /** @return the value the removed future had completed with, or null if it had not */
+        @Override
+        public V remove(@NonNull final K key) {
+            return valueOf(AsyncCache.this.remove(key));
+        }
+
+        /** The entry of the next victim future, whose value is null while it is loading. */
+        @Override
+        public Entry<K, V> victim() {
+            final Entry<K, CompletableFuture<V>> victim = delegate.victim();
+            return null == victim ? null : new ValueEntry<>(victim.key(), valueOf(victim.value()));
+        }
+
+        @Override
+        public int size() {
+            return delegate.size();
+        }
+
+        @Override
+        public int capacity() {
+            return delegate.capacity();
+        }
+    }
+
+    private static class ValueEntry<K, V> implements Cache.Entry<K, V> {
+        private final K key;
+        private final V value;
+
+        ValueEntry(final K key, final V value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        @Override
+        public K key() {
+            return key;
+        }
+
+        @Override
+        public V value() {
+            return value;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s:%s", key, value);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.github.alanzplus.codebox.cache;
+
+import com.google.common.annotations.VisibleForTesting;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A {@link RemovalListener} which hands notifications to a slow consumer, such as one flushing dirty entries to storage, without
+ * slowing down the cache operation which caused the removal.
+ *
+ * <p>{@link #onRemoval} only appends the notification to a lock-free queue and, unless a delivery task is already pending, submits
+ * one to the executor. The task delivers the queued notifications in batches of up to {@code maxBatchSize}, so a burst of evictions
+ * costs one task and a few consumer calls. Batches are delivered one at a time and in removal order.
+ *
+ * <p>If the consumer throws a {@link RuntimeException}, the failure is logged and counted, the batch is dropped and delivery goes on
+ * with the next batch: the exception never reaches the executor, which with a direct or caller-runs executor would be the cache
+ * operation itself. If the executor rejects a task, the notifications stay queued until the next removal submits a task again; the
+ * rejection is only counted, never thrown into the cache operation.
+ */
+public class AsyncRemovalListener<K, V> implements RemovalListener<K, V> {
+    private static final Logger LOGGER = Logger.getLogger(AsyncRemovalListener.class.getName());
+    private static final int DEFAULT_MAX_BATCH_SIZE = 256;
+
+    private final Consumer<List<RemovalNotification<K, V>>> consumer;
+    private final Executor executor;
+    private final int maxBatchSize;
+    private final Queue<RemovalNotification<K, V>> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final AtomicLong rejectedCount = new AtomicLong();
+    private final AtomicLong failedBatchCount = new AtomicLong();
+
+    public AsyncRemovalListener(final Consumer<List<RemovalNotification<K, V>>> consumer, final Executor executor) {
+        this(consumer, executor, DEFAULT_MAX_BATCH_SIZE);
+    }
+
+    public AsyncRemovalListener(
+            final Consumer<List<RemovalNotification<K, V>>> consumer, final Executor executor, final int maxBatchSize) {
+        if (maxBatchSize <= 0) {
+            throw new IllegalArgumentException("maxBatchSize " + maxBatchSize + " <= 0");
+        }
+        this.consumer = consumer;
+        this.executor = executor;
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    @Override
+    public void onRemoval(final K key, final V value, final RemovalCause cause) {
+        pending.add(new RemovalNotification<>(key, value, cause));
+        scheduleIfNeeded();
+    }
+
+    private void scheduleIfNeeded() {
+        if (!pending.isEmpty() && scheduled.compareAndSet(false, true)) {
+            try {
+                executor.execute(this::deliver);
+            } catch (final RejectedExecutionException e) {
+                // Rejected: the notifications stay queued until the next removal schedules a task again
+                scheduled.set(false);
+                rejectedCount.incrementAndGet();
+            }
+        }
+    }
+
+    private void deliver() {
+        try {
+            List<RemovalNotification<K, V>> batch = nextBatch();
+            while (!batch.isEmpty()) {
+                try {
+                    consumer.accept(batch);
+                } catch (final RuntimeException e) {
+                    failedBatchCount.incrementAndGet();
+                    LOGGER.log(Level.WARNING, "Removal consumer failed, dropping " + batch.size() + " notifications", e);
+                }
+                batch = nextBatch();
+            }
+        } finally {
+            scheduled.set(false);
+            // A notification queued after our last poll but before the flag was cleared would otherwise wait for the next removal
+            scheduleIfNeeded();
+        }
+    }
+
+    private List<RemovalNotification<K, V>> nextBatch() {
+        final List<RemovalNotification<K, V>> batch = new ArrayList<>(Math.min(maxBatchSize, 16));
+        RemovalNotification<K, V> notification;
+        while (batch.size() < maxBatchSize && null != (notification = pending.poll())) {
+            batch.add(notification);
+        }
+        return batch;
+    }
+
+    /** The number of delivery tasks the executor rejected. */
+    public long rejectedCount() {
+        return rejectedCount.get();
+    }
+
+    /** The number of batches the consumer threw on; their notifications were dropped. */
+    public long failedBatchCount() {
+        return failedBatchCount.get();
+    }
+
+    @VisibleForTesting
+    int pendingCount() {
+        return pending.size();
+    }
+}
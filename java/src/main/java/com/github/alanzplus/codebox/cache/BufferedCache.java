@@ -0,0 +1,278 @@
+package com.github.alanzplus.codebox.cache;
+
+import com.google.common.annotations.VisibleForTesting;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import lombok.NonNull;
+
+/**
+ * A thread-safe cache which keeps its values in a {@link ConcurrentHashMap} and a single-threaded eviction policy, such as {@link
+ * SimpleLRU} or {@link FastLFU}, on the side.
+ *
+ * <p>A hit costs a hash lookup plus an append of the key to a striped, lossy ring buffer. The buffered hits are replayed against the
+ * policy in batches by whichever thread wins a try-lock, so policy maintenance is amortized and readers never block on each other.
+ * A buffer which is full drops the hit: the policy only needs to approximate the access pattern. Writes take the lock and replay the
+ * pending hits first.
+ */
+public class BufferedCache<K, V> implements Cache<K, V> {
+    private static final int NUM_BUFFERS = ceilingPowerOfTwo(4 * Runtime.getRuntime().availableProcessors());
+    private static final int BUFFER_SIZE = 16;
+    private static final int DRAIN_THRESHOLD = BUFFER_SIZE / 2;
+
+    private final ConcurrentHashMap<K, V> data = new ConcurrentHashMap<>();
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    private final ReadBuffer<K>[] readBuffers;
+    private final Cache<K, V> policy;
+    private final Consumer<K> replay;
+
+    public BufferedCache(final Function<RemovalListener<K, V>, Cache<K, V>> policyFactory) {
+        this(policyFactory, RemovalListener.noop());
+    }
+
+    /**
+     * @param policyFactory creates the eviction policy, which must report every entry it drops to the listener it is given. The
+     *     policy is only accessed while holding the eviction lock.
+     * @param removalListener is told about every entry the policy drops, while the eviction lock is held
+     */
+    @SuppressWarnings("unchecked")
+    public BufferedCache(
+            final Function<RemovalListener<K, V>, Cache<K, V>> policyFactory, final RemovalListener<K, V> removalListener) {
+        policy = policyFactory.apply((key, value, cause) -> {
+            if (RemovalCause.REPLACED != cause) {
+                data.remove(key, value);
+            }
+            removalListener.onRemoval(key, value, cause);
+        });
+        replay = policy::get;
+        readBuffers = (ReadBuffer<K>[]) new ReadBuffer<?>[NUM_BUFFERS];
+        for (int i = 0; i < NUM_BUFFERS; ++i) {
+            readBuffers[i] = new ReadBuffer<>();
+        }
+    }
+
+    @Override
+    public void put(@NonNull final K key, @NonNull final V value) {
+        evictionLock.lock();
+        try {
+            drainReadBuffers();
+            putLocked(key, value);
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    @Override
+    public V get(@NonNull final K key) {
+        final V value = data.get(key);
+        if (null != value && readBuffers[bufferIndex()].offer(key) >= DRAIN_THRESHOLD) {
+            tryToDrain();
+        }
+        return value;
+    }
+
+    /**
+     * Replays the hits straight into the policy if the eviction lock is free, so a large batch is not mostly dropped by the read
+     * buffers. Otherwise the hits are buffered like single reads.
+     */
+    @Override
+    public Map<K, V> getAll(@NonNull final Collection<? extends K> keys) {
+        final Map<K, V> result = new HashMap<>(Cache.mapCapacity(keys.size()));
+        final List<K> hits = new ArrayList<>(keys.size());
+        for (final K key : keys) {
+            final V value = data.get(key);
+            if (null != value) {
+                result.put(key, value);
+                hits.add(key);
+            }
+        }
+        if (hits.isEmpty()) {
+            return result;
+        }
+        if (evictionLock.tryLock()) {
+            try {
+                drainReadBuffers();
+                hits.forEach(replay);
+            } finally {
+                evictionLock.unlock();
+            }
+        } else {
+            final ReadBuffer<K> buffer = readBuffers[bufferIndex()];
+            for (final K key : hits) {
+                buffer.offer(key);
+            }
+        }
+        return result;
+    }
+
+    /** Applies all entries under one acquisition of the eviction lock. */
+    @Override
+    public void putAll(@NonNull final Map<? extends K, ? extends V> entries) {
+        evictionLock.lock();
+        try {
+            drainReadBuffers();
+            for (final Map.Entry<? extends K, ? extends V> entry : entries.entrySet()) {
+                final K key = entry.getKey();
+                final V value = entry.getValue();
+                if (null == key || null == value) {
+                    throw new NullPointerException("null key or value in putAll");
+                }
+                putLocked(key, value);
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Publishes the entry before the policy sees it, so a policy rejecting or evicting the new entry removes it again. If the policy
+     * throws, e.g. because its weigher does, the map is rolled back to the previous value, which the policy still holds, so it never
+     * keeps an entry the policy does not track.
+     */
+    private void putLocked(final K key, final V value) {
+        final V previous = data.put(key, value);
+        try {
+            policy.put(key, value);
+        } catch (final RuntimeException e) {
+            if (null == previous) {
+                data.remove(key, value);
+            } else {
+                data.replace(key, value, previous);
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public V remove(@NonNull final K key) {
+        evictionLock.lock();
+        try {
+            drainReadBuffers();
+            return policy.remove(key);
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    @Override
+    public Entry<K, V> victim() {
+        evictionLock.lock();
+        try {
+            drainReadBuffers();
+            return policy.victim();
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        return data.size();
+    }
+
+    @Override
+    public int capacity() {
+        return policy.capacity();
+    }
+
+    @Override
+    public long weightedSize() {
+        evictionLock.lock();
+        try {
+            return policy.weightedSize();
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /** Replays all buffered hits against the policy, waiting for the eviction lock if necessary. */
+    public void cleanUp() {
+        evictionLock.lock();
+        try {
+            drainReadBuffers();
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private void tryToDrain() {
+        if (evictionLock.tryLock()) {
+            try {
+                drainReadBuffers();
+            } finally {
+                evictionLock.unlock();
+            }
+        }
+    }
+
+    private void drainReadBuffers() {
+        for (final ReadBuffer<K> buffer : readBuffers) {
+            buffer.drainTo(replay);
+        }
+    }
+
+    private static int bufferIndex() {
+        final long id = Thread.currentThread().getId();
+        final int h = (int) (id ^ (id >>> 32)) * 0x9E3779B9;
+        return (h >>> 16) & (NUM_BUFFERS - 1);
+    }
+
+    private static int ceilingPowerOfTwo(final int n) {
+        return 1 == n ? 1 : Integer.highestOneBit(n - 1) << 1;
+    }
+
+    @VisibleForTesting
+    Cache<K, V> policy() {
+        return policy;
+    }
+
+    /**
+     * Bounded multi-producer, single-consumer ring buffer. Producers which lose the race for a slot, or find the buffer full, drop
+     * their element instead of retrying.
+     */
+    @VisibleForTesting
+    static class ReadBuffer<E> {
+        static final int FULL = BUFFER_SIZE;
+
+        private final AtomicReferenceArray<E> buffer = new AtomicReferenceArray<>(BUFFER_SIZE);
+        private final AtomicLong writeCounter = new AtomicLong();
+        private final AtomicLong readCounter = new AtomicLong();
+
+        /** @return the number of pending elements after the offer, or {@link #FULL} if the element was dropped */
+        int offer(final E e) {
+            final long head = readCounter.get();
+            final long tail = writeCounter.get();
+            final long size = tail - head;
+            if (size >= BUFFER_SIZE || !writeCounter.compareAndSet(tail, tail + 1)) {
+                return FULL;
+            }
+            buffer.lazySet((int) tail & (BUFFER_SIZE - 1), e);
+            return (int) size + 1;
+        }
+
+        /** Must only be called by one thread at a time. */
+        void drainTo(final Consumer<E> consumer) {
+            long head = readCounter.get();
+            final long tail = writeCounter.get();
+            for (; head != tail; ++head) {
+                final int index = (int) head & (BUFFER_SIZE - 1);
+                final E e = buffer.get(index);
+                if (null == e) {
+                    // The producer claimed the slot but has not published into it yet
+                    break;
+                }
+                buffer.lazySet(index, null);
+                consumer.accept(e);
+            }
+            readCounter.lazySet(head);
+        }
+    }
+}
@@ -1,16 +1,68 @@
 package com.github.alanzplus.codebox.cache;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
 public interface Cache<K, V> {
     void put(K key, V value);
 
     V get(K key);
 
+    /** Removes the mapping of the key, if any, and returns its value. */
+    default V remove(final K key) {
+        throw new UnsupportedOperationException("remove is not supported by this class " + getClass().getSimpleName());
+    }
+
+    /**
+     * Looks up several keys at once, as if by calling {@link #get} for each key in iteration order.
+     *
+     * @return the values of the keys which are present; absent keys are left out
+     */
+    default Map<K, V> getAll(final Collection<? extends K> keys) {
+        final Map<K, V> result = new HashMap<>(mapCapacity(keys.size()));
+        for (final K key : keys) {
+            final V value = get(key);
+            if (null != value) {
+                result.put(key, value);
+            }
+        }
+        return result;
+    }
+
+    /** Stores several entries at once, as if by calling {@link #put} for each entry in iteration order. */
+    default void putAll(final Map<? extends K, ? extends V> entries) {
+        for (final Map.Entry<? extends K, ? extends V> entry : entries.entrySet()) {
+            put(entry.getKey(), entry.getValue());
+        }
+    }
+
     Entry<K, V> victim();
 
+    /**
+     * Iterates over the entries from the next to be evicted to the last, i.e. coldest first, so that putting them into an empty cache
+     * in this order recreates the same order. The iterator must not outlive a modification of the cache.
+     */
+    default Iterator<Entry<K, V>> evictionOrder() {
+        throw new UnsupportedOperationException("evictionOrder is not supported by this class " + getClass().getSimpleName());
+    }
+
     int size();
 
+    /** Maximum number of entries, or the maximum total weight (saturated to an int) for caches bounded by a {@link Weigher}. */
     int capacity();
 
+    /** Sum of the weights of all entries, which is {@link #size()} unless the cache is bounded by a {@link Weigher}. */
+    default long weightedSize() {
+        return size();
+    }
+
+    /** Initial capacity of a {@link HashMap} which holds {@code expectedSize} mappings without rehashing. */
+    static int mapCapacity(final int expectedSize) {
+        return (int) Math.min((long) expectedSize * 4 / 3 + 1, 1 << 30);
+    }
+
     interface Entry<K, V> {
         K key();
 
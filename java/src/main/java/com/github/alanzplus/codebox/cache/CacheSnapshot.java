@@ -0,0 +1,147 @@
+package com.github.alanzplus.codebox.cache;
+
+import com.github.alanzplus.codebox.misc.Serializer;
+import com.google.common.annotations.VisibleForTesting;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+
+/**
+ * Dumps the entries of a cache to a file and restores them, so that a restarted process does not start with a cold cache.
+ *
+ * <p>Entries are written in {@link Cache#evictionOrder() eviction order}, coldest first, and restored in the same order, so the
+ * hottest entries end up as the most recently inserted ones. The file layout is
+ *
+ * <pre>
+ * magic (int) | version (int) | entry count (long) | { key length (int) | value length (int) | key | value }*
+ * </pre>
+ *
+ * <p>The snapshot is written to a temporary file which is then renamed, so a crash never leaves a partial snapshot behind.
+ * Restoring maps the file window by window and deserializes every entry straight from the mapping, so the file is never copied onto
+ * the heap: heap usage is bounded by the cache being filled, not by the size of the snapshot.
+ */
+public final class CacheSnapshot {
+    static final int MAGIC = 0x43425331;
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = Integer.BYTES * 2 + Long.BYTES;
+    private static final int RECORD_HEADER_BYTES = Integer.BYTES * 2;
+    private static final int DEFAULT_WINDOW_BYTES = 64 << 20;
+
+    private CacheSnapshot() {}
+
+    /** @return the number of entries written */
+    public static <K, V> long write(
+            final Cache<K, V> cache, final Path file, final Serializer<K> keySerializer, final Serializer<V> valueSerializer)
+            throws IOException {
+        final Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        long count = 0;
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            // Patched below, once the number of entries is known
+            out.writeLong(0L);
+            final Iterator<Cache.Entry<K, V>> entries = cache.evictionOrder();
+            while (entries.hasNext()) {
+                final Cache.Entry<K, V> entry = entries.next();
+                final byte[] key = keySerializer.serialize(entry.key());
+                final byte[] value = valueSerializer.serialize(entry.value());
+                out.writeInt(key.length);
+                out.writeInt(value.length);
+                out.write(key);
+                out.write(value);
+                ++count;
+            }
+        }
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+            final ByteBuffer countBuffer = ByteBuffer.allocate(Long.BYTES).putLong(0, count);
+            channel.write(countBuffer, Integer.BYTES * 2);
+            channel.force(true);
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return count;
+    }
+
+    /** Puts every entry of the snapshot into the cache, in the order they were written. @return the number of entries read */
+    public static <K, V> long restore(
+            final Path file, final Cache<K, V> cache, final Serializer<K> keySerializer, final Serializer<V> valueSerializer)
+            throws IOException {
+        return restore(file, cache, keySerializer, valueSerializer, DEFAULT_WINDOW_BYTES);
+    }
+
+    @VisibleForTesting
+    static <K, V> long restore(
+            final Path file,
+            final Cache<K, V> cache,
+            final Serializer<K> keySerializer,
+            final Serializer<V> valueSerializer,
+            final int windowBytes)
+            throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            if (size < HEADER_BYTES) {
+                throw new IOException("not a cache snapshot: " + file);
+            }
+            final ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+            if (MAGIC != header.getInt() || VERSION != header.getInt()) {
+                throw new IOException("not a version " + VERSION + " cache snapshot: " + file);
+            }
+            final long count = header.getLong();
+            long position = HEADER_BYTES;
+            long restored = 0;
+            while (restored < count) {
+                if (size - position < RECORD_HEADER_BYTES) {
+                    throw new IOException("truncated snapshot " + file + ": " + restored + " of " + count + " entries");
+                }
+                final long windowSize = Math.min(Math.max(windowBytes, RECORD_HEADER_BYTES), size - position);
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, windowSize);
+                final int keyLength = window.getInt(0);
+                final int valueLength = window.getInt(Integer.BYTES);
+                if (keyLength < 0 || valueLength < 0) {
+                    throw new IOException("corrupted snapshot " + file + " at offset " + position);
+                }
+                final long recordBytes = RECORD_HEADER_BYTES + (long) keyLength + valueLength;
+                if (recordBytes > size - position) {
+                    throw new IOException("truncated snapshot " + file + ": " + restored + " of " + count + " entries");
+                }
+                if (recordBytes > window.capacity()) {
+                    // A single entry larger than the window gets a mapping of its own
+                    window = channel.map(FileChannel.MapMode.READ_ONLY, position, recordBytes);
+                }
+                int offset = 0;
+                while (restored < count && window.capacity() - offset >= RECORD_HEADER_BYTES) {
+                    final int recordKeyLength = window.getInt(offset);
+                    final int recordValueLength = window.getInt(offset + Integer.BYTES);
+                    if (recordKeyLength < 0 || recordValueLength < 0) {
+                        throw new IOException("corrupted snapshot " + file + " at offset " + (position + offset));
+                    }
+                    final int keyStart = offset + RECORD_HEADER_BYTES;
+                    final long end = (long) keyStart + recordKeyLength + recordValueLength;
+                    if (end > window.capacity()) {
+                        break;
+                    }
+                    final K key = keySerializer.deserialize(slice(window, keyStart, recordKeyLength));
+                    final V value = valueSerializer.deserialize(slice(window, keyStart + recordKeyLength, recordValueLength));
+                    cache.put(key, value);
+                    offset = (int) end;
+                    ++restored;
+                }
+                position += offset;
+            }
+            return restored;
+        }
+    }
+
+    private static ByteBuffer slice(final ByteBuffer buffer, final int offset, final int length) {
+        final ByteBuffer duplicate = buffer.duplicate();
+        duplicate.limit(offset + length).position(offset);
+        return duplicate.slice();
+    }
+}
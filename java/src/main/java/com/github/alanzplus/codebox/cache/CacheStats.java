@@ -0,0 +1,161 @@
+package com.github.alanzplus.codebox.cache;
+
+import java.util.Arrays;
+
+/**
+ * An immutable snapshot of the counters of a {@link StatsCounter}.
+ *
+ * <p>Eviction ages are kept as a histogram with power of two buckets: bucket {@code i} counts the evicted entries which lived for
+ * {@code [2^(i-1), 2^i)} nanoseconds, so percentiles are exact to within a factor of two.
+ *
+ * <p>Caches with an adaptive policy, see {@link TinyLFU}, also report their current window size and hill climbing step; they are
+ * gauges rather than counters, so {@link #minus} keeps the latest values.
+ */
+public final class CacheStats {
+    private static final CacheStats EMPTY = new CacheStats(0, 0, 0, 0, 0, 0, new long[Long.SIZE], 0, 0.0);
+
+    private final long hitCount;
+    private final long missCount;
+    private final long evictionCount;
+    private final long loadSuccessCount;
+    private final long loadFailureCount;
+    private final long totalLoadTime;
+    private final long[] evictionAges;
+    private final int windowSize;
+    private final double windowStep;
+
+    CacheStats(
+            final long hitCount,
+            final long missCount,
+            final long evictionCount,
+            final long loadSuccessCount,
+            final long loadFailureCount,
+            final long totalLoadTime,
+            final long[] evictionAges,
+            final int windowSize,
+            final double windowStep) {
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.evictionCount = evictionCount;
+        this.loadSuccessCount = loadSuccessCount;
+        this.loadFailureCount = loadFailureCount;
+        this.totalLoadTime = totalLoadTime;
+        this.evictionAges = evictionAges;
+        this.windowSize = windowSize;
+        this.windowStep = windowStep;
+    }
+
+    public static CacheStats empty() {
+        return EMPTY;
+    }
+
+    public long hitCount() {
+        return hitCount;
+    }
+
+    public long missCount() {
+        return missCount;
+    }
+
+    public long requestCount() {
+        return hitCount + missCount;
+    }
+
+    /** {@code 1.0} if there was no request yet. */
+    public double hitRate() {
+        final long requests = requestCount();
+        return 0 == requests ? 1.0 : (double) hitCount / requests;
+    }
+
+    public long evictionCount() {
+        return evictionCount;
+    }
+
+    public long loadSuccessCount() {
+        return loadSuccessCount;
+    }
+
+    public long loadFailureCount() {
+        return loadFailureCount;
+    }
+
+    /** Nanoseconds spent loading, including failed loads. */
+    public long totalLoadTime() {
+        return totalLoadTime;
+    }
+
+    public double averageLoadPenalty() {
+        final long loads = loadSuccessCount + loadFailureCount;
+        return 0 == loads ? 0.0 : (double) totalLoadTime / loads;
+    }
+
+    /** The size of the admission window of an adaptive policy, {@code 0} if none was reported. */
+    public int windowSize() {
+        return windowSize;
+    }
+
+    /** The next hill climbing step of an adaptive policy in entries, negative when the window is shrinking. */
+    public double windowStep() {
+        return windowStep;
+    }
+
+    /** Number of eviction ages sampled, which may be fewer than {@link #evictionCount()}. */
+    public long evictionAgeSampleCount() {
+        long count = 0;
+        for (final long bucket : evictionAges) {
+            count += bucket;
+        }
+        return count;
+    }
+
+    /**
+     * @param percentile in {@code [0, 100]}
+     * @return an upper bound, within a factor of two, of the given percentile of the sampled eviction ages in nanoseconds, or
+     *     {@code 0} if no age was sampled
+     */
+    public long evictionAgePercentile(final double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("percentile " + percentile + " not in [0, 100]");
+        }
+        final long samples = evictionAgeSampleCount();
+        if (0 == samples) {
+            return 0L;
+        }
+        final long rank = Math.max(1L, (long) Math.ceil(samples * percentile / 100));
+        long seen = 0;
+        for (int i = 0; i < evictionAges.length; ++i) {
+            seen += evictionAges[i];
+            if (seen >= rank) {
+                return i >= Long.SIZE - 1 ? Long.MAX_VALUE : (1L << i) - 1;
+            }
+        }
+        return Long.MAX_VALUE;
+    }
+
+    /** The counts accumulated since {@code earlier}, which must be a snapshot of the same counter. */
+    public CacheStats minus(final CacheStats earlier) {
+        final long[] ages = new long[evictionAges.length];
+        for (int i = 0; i < ages.length; ++i) {
+            ages[i] = Math.max(0L, evictionAges[i] - earlier.evictionAges[i]);
+        }
+        return new CacheStats(
+                Math.max(0L, hitCount - earlier.hitCount),
+                Math.max(0L, missCount - earlier.missCount),
+                Math.max(0L, evictionCount - earlier.evictionCount),
+                Math.max(0L, loadSuccessCount - earlier.loadSuccessCount),
+                Math.max(0L, loadFailureCount - earlier.loadFailureCount),
+                Math.max(0L, totalLoadTime - earlier.totalLoadTime),
+                ages,
+                windowSize,
+                windowStep);
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "CacheStats{hitCount=%d, missCount=%d, evictionCount=%d, loadSuccessCount=%d, loadFailureCount=%d, totalLoadTime=%d, "
+                        + "evictionAges=%s, windowSize=%d, windowStep=%.2f}",
+                hitCount, missCount, evictionCount, loadSuccessCount, loadFailureCount, totalLoadTime, Arrays.toString(evictionAges),
+                windowSize, windowStep);
+    }
+}
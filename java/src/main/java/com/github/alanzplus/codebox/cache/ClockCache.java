@@ -0,0 +1,272 @@
+package com.github.alanzplus.codebox.cache;
+
+import com.google.common.annotations.VisibleForTesting;
+import java.util.concurrent.locks.StampedLock;
+import lombok.NonNull;
+
+/**
+ * A thread-safe CLOCK cache: an approximation of LRU in which a hit only sets a reference bit.
+ *
+ * <p>Entries occupy slots of flat arrays ({@code keys}, {@code values}, {@code hashes}, {@code referenced}) arranged in a ring. To make
+ * room, a hand sweeps the ring, clearing reference bits, and evicts the first entry whose bit was already clear, so an entry survives
+ * as long as it is hit at least once per revolution. Keys are found through a {@link SlotIndex} of slot numbers, as in {@link
+ * PrimitiveLRU}, so the whole cache is a handful of arrays with no per-entry node.
+ *
+ * <p>Reads run under an optimistic {@link StampedLock} read, which writes nothing shared but the reference byte of the entry, and fall
+ * back to a read lock only if a writer interfered. Writes take the write lock. Setting a reference bit after the read validated is a
+ * benign race: at worst it marks the entry that replaced the one which was read.
+ */
+public class ClockCache<K, V> implements Cache<K, V> {
+    private static final int NIL = -1;
+
+    private final int capacity;
+    private final RemovalListener<K, V> removalListener;
+    private final Object[] keys;
+    private final Object[] values;
+    private final int[] hashes;
+    private final byte[] referenced;
+    private final SlotIndex index;
+    private final int[] freeSlots;
+    private final StampedLock lock = new StampedLock();
+    private int freeCount;
+    private int used;
+    private int size;
+    private int hand;
+
+    public ClockCache(final int capacity) {
+        this(capacity, RemovalListener.noop());
+    }
+
+    /** @param removalListener is called while the write lock is held */
+    public ClockCache(final int capacity, final RemovalListener<K, V> removalListener) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity " + capacity + " <= 0");
+        }
+        if (capacity > 1 << 29) {
+            throw new IllegalArgumentException("capacity " + capacity + " > " + (1 << 29));
+        }
+        this.capacity = capacity;
+        this.removalListener = removalListener;
+        keys = new Object[capacity];
+        values = new Object[capacity];
+        hashes = new int[capacity];
+        referenced = new byte[capacity];
+        freeSlots = new int[capacity];
+        index = new SlotIndex(capacity, slot -> hashes[slot]);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(@NonNull final K key) {
+        final int hash = spread(key.hashCode());
+        final long optimistic = lock.tryOptimisticRead();
+        if (0L != optimistic) {
+            final int slot = find(key, hash);
+            final Object value = NIL == slot ? null : values[slot];
+            if (lock.validate(optimistic)) {
+                if (NIL != slot) {
+                    referenced[slot] = 1;
+                }
+                return (V) value;
+            }
+        }
+        final long stamp = lock.readLock();
+        try {
+            final int slot = find(key, hash);
+            if (NIL == slot) {
+                return null;
+            }
+            referenced[slot] = 1;
+            return (V) values[slot];
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void put(@NonNull final K key, @NonNull final V value) {
+        final int hash = spread(key.hashCode());
+        final long stamp = lock.writeLock();
+        try {
+            final int found = find(key, hash);
+            if (NIL != found) {
+                final V old = (V) values[found];
+                values[found] = value;
+                referenced[found] = 1;
+                removalListener.onRemoval(key, old, RemovalCause.REPLACED);
+                return;
+            }
+            final int slot = allocate();
+            keys[slot] = key;
+            values[slot] = value;
+            hashes[slot] = hash;
+            referenced[slot] = 0;
+            index.insert(slot, hash);
+            ++size;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V remove(@NonNull final K key) {
+        final int hash = spread(key.hashCode());
+        final long stamp = lock.writeLock();
+        try {
+            final int slot = find(key, hash);
+            if (NIL == slot) {
+                return null;
+            }
+            final V value = (V) values[slot];
+            clear(slot);
+            freeSlots[freeCount++] = slot;
+            removalListener.onRemoval(key, value, RemovalCause.EXPLICIT);
+            return value;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /** The entry the hand would evict next, without clearing any reference bit. */
+    @Override
+    @SuppressWarnings("unchecked")
+    public Entry<K, V> victim() {
+        final long stamp = lock.readLock();
+        try {
+            if (0 == size) {
+                return null;
+            }
+            int first = NIL;
+            for (int i = 0, slot = hand; i < capacity; ++i, slot = next(slot)) {
+                if (null == keys[slot]) {
+                    continue;
+                }
+                if (0 == referenced[slot]) {
+                    return new ClockEntry<>((K) keys[slot], (V) values[slot]);
+                }
+                if (NIL == first) {
+                    first = slot;
+                }
+            }
+            // Every entry is referenced: the hand clears them all and comes back to the first one
+            return new ClockEntry<>((K) keys[first], (V) values[first]);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public int size() {
+        final long stamp = lock.readLock();
+        try {
+            return size;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public int capacity() {
+        return capacity;
+    }
+
+    /** @return a free slot, evicting the first unreferenced entry under the hand if the cache is full */
+    @SuppressWarnings("unchecked")
+    private int allocate() {
+        if (0 != freeCount) {
+            return freeSlots[--freeCount];
+        }
+        if (used < capacity) {
+            return used++;
+        }
+        while (0 != referenced[hand]) {
+            referenced[hand] = 0;
+            hand = next(hand);
+        }
+        final int victim = hand;
+        hand = next(hand);
+        final K key = (K) keys[victim];
+        final V value = (V) values[victim];
+        clear(victim);
+        removalListener.onRemoval(key, value, RemovalCause.SIZE);
+        return victim;
+    }
+
+    private void clear(final int slot) {
+        index.remove(slot);
+        keys[slot] = null;
+        values[slot] = null;
+        referenced[slot] = 0;
+        --size;
+    }
+
+    private int next(final int slot) {
+        return slot + 1 == capacity ? 0 : slot + 1;
+    }
+
+    /**
+     * Probes at most the whole table, so that an optimistic read racing with a writer cannot loop forever; its result is discarded by
+     * the failed validation anyway.
+     */
+    private int find(final K key, final int hash) {
+        int probe = index.home(hash);
+        for (int probes = 0; probes < index.length(); ++probes) {
+            final int slot = index.entryAt(probe);
+            if (SlotIndex.EMPTY == slot) {
+                return NIL;
+            }
+            if (hashes[slot] == hash && key.equals(keys[slot])) {
+                return slot;
+            }
+            probe = index.next(probe);
+        }
+        return NIL;
+    }
+
+    private static int spread(final int h) {
+        return (h ^ (h >>> 16)) * 0x9E3779B9;
+    }
+
+    @VisibleForTesting
+    int hand() {
+        return hand;
+    }
+
+    @VisibleForTesting
+    boolean isReferenced(final K key) {
+        final long stamp = lock.readLock();
+        try {
+            final int slot = find(key, spread(key.hashCode()));
+            return NIL != slot && 0 != referenced[slot];
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    static class ClockEntry<K, V> implements Entry<K, V> {
+        private final K key;
+        private final V value;
+
+        ClockEntry(final K key, final V value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        @Override
+        public K key() {
+            return key;
+        }
+
+        @Override
+        public V value() {
+            return value;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s:%s", key, value);
+        }
+    }
+}
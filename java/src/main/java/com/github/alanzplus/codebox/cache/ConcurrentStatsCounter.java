@@ -0,0 +1,87 @@
+package com.github.alanzplus.codebox.cache;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A {@link StatsCounter} made of {@link LongAdder}s, which spread concurrent increments over per-thread cells instead of contending
+ * on one atomic word. A snapshot sums the cells and is not atomic across counters. The window configuration is a pair of gauges
+ * written by a single policy, which a snapshot may see half updated.
+ */
+class ConcurrentStatsCounter implements StatsCounter {
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+    private final LongAdder loadSuccessCount = new LongAdder();
+    private final LongAdder loadFailureCount = new LongAdder();
+    private final LongAdder totalLoadTime = new LongAdder();
+    private final LongAdder[] evictionAges = new LongAdder[Long.SIZE];
+    private volatile int windowSize;
+    private volatile double windowStep;
+
+    ConcurrentStatsCounter() {
+        for (int i = 0; i < evictionAges.length; ++i) {
+            evictionAges[i] = new LongAdder();
+        }
+    }
+
+    @Override
+    public void recordHits(final int count) {
+        hitCount.add(count);
+    }
+
+    @Override
+    public void recordMisses(final int count) {
+        missCount.add(count);
+    }
+
+    @Override
+    public void recordLoadSuccess(final long loadTimeNanos) {
+        loadSuccessCount.increment();
+        totalLoadTime.add(loadTimeNanos);
+    }
+
+    @Override
+    public void recordLoadFailure(final long loadTimeNanos) {
+        loadFailureCount.increment();
+        totalLoadTime.add(loadTimeNanos);
+    }
+
+    @Override
+    public void recordEviction() {
+        evictionCount.increment();
+    }
+
+    @Override
+    public void recordEvictionAge(final long ageNanos) {
+        evictionAges[ageBucket(ageNanos)].increment();
+    }
+
+    @Override
+    public void recordWindow(final int windowSize, final double windowStep) {
+        this.windowSize = windowSize;
+        this.windowStep = windowStep;
+    }
+
+    @Override
+    public CacheStats snapshot() {
+        final long[] ages = new long[evictionAges.length];
+        for (int i = 0; i < ages.length; ++i) {
+            ages[i] = evictionAges[i].sum();
+        }
+        return new CacheStats(
+                hitCount.sum(),
+                missCount.sum(),
+                evictionCount.sum(),
+                loadSuccessCount.sum(),
+                loadFailureCount.sum(),
+                totalLoadTime.sum(),
+                ages,
+                windowSize,
+                windowStep);
+    }
+
+    /** Bucket {@code i} holds the ages in {@code [2^(i-1), 2^i)}; negative ages, from a clock going backwards, count as zero. */
+    static int ageBucket(final long ageNanos) {
+        return ageNanos <= 0 ? 0 : Long.SIZE - Long.numberOfLeadingZeros(ageNanos);
+    }
+}
@@ -0,0 +1,107 @@
+package com.github.alanzplus.codebox.cache;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Maps keys to nodes by consistent hashing: every node is placed at {@code virtualNodes} pseudo-random points of a 64-bit ring, and
+ * a key belongs to the node of the first point at or after the key's hash, wrapping around.
+ *
+ * <p>Adding or removing one of {@code N} nodes only changes the owner of the keys between the points of that node and their
+ * predecessors, about {@code 1/N} of all keys, and the many points per node spread both its load and the keys it gives away evenly
+ * over the other nodes.
+ *
+ * <p>The ring is immutable: {@link #with} and {@link #without} return a new ring, so a ring can be shared between threads freely.
+ */
+public final class ConsistentHashRing {
+    static final int DEFAULT_VIRTUAL_NODES = 160;
+    private static final HashFunction HASH = Hashing.murmur3_128();
+
+    private final int virtualNodes;
+    private final NavigableMap<Long, String> points;
+    private final Set<String> nodes;
+
+    public ConsistentHashRing() {
+        this(DEFAULT_VIRTUAL_NODES);
+    }
+
+    public ConsistentHashRing(final int virtualNodes) {
+        this(virtualNodes, new TreeMap<>(), new TreeSet<>());
+    }
+
+    private ConsistentHashRing(final int virtualNodes, final NavigableMap<Long, String> points, final Set<String> nodes) {
+        if (virtualNodes <= 0) {
+            throw new IllegalArgumentException("virtualNodes " + virtualNodes + " <= 0");
+        }
+        this.virtualNodes = virtualNodes;
+        this.points = points;
+        this.nodes = Collections.unmodifiableSet(nodes);
+    }
+
+    public ConsistentHashRing with(final String node) {
+        if (nodes.contains(node)) {
+            return this;
+        }
+        final TreeMap<Long, String> newPoints = new TreeMap<>(points);
+        for (int i = 0; i < virtualNodes; ++i) {
+            // On the rare collision, the point stays with the smaller node name, whatever the order nodes were added in
+            newPoints.merge(pointOf(node, i), node, (existing, added) -> existing.compareTo(added) <= 0 ? existing : added);
+        }
+        final TreeSet<String> newNodes = new TreeSet<>(nodes);
+        newNodes.add(node);
+        return new ConsistentHashRing(virtualNodes, newPoints, newNodes);
+    }
+
+    public ConsistentHashRing without(final String node) {
+        if (!nodes.contains(node)) {
+            return this;
+        }
+        final TreeSet<String> newNodes = new TreeSet<>(nodes);
+        newNodes.remove(node);
+        // Rebuilt rather than filtered, so that points lost to a collision with the removed node come back
+        ConsistentHashRing ring = new ConsistentHashRing(virtualNodes);
+        for (final String remaining : newNodes) {
+            ring = ring.with(remaining);
+        }
+        return ring;
+    }
+
+    /** @return the node owning the key, or null if the ring is empty */
+    public String ownerOf(final Object key) {
+        if (points.isEmpty()) {
+            return null;
+        }
+        final Map.Entry<Long, String> point = points.ceilingEntry(hashOf(key));
+        return null == point ? points.firstEntry().getValue() : point.getValue();
+    }
+
+    public Set<String> nodes() {
+        return nodes;
+    }
+
+    public boolean isEmpty() {
+        return nodes.isEmpty();
+    }
+
+    private static long pointOf(final String node, final int replica) {
+        return HASH.hashString(node + "#" + replica, StandardCharsets.UTF_8).asLong();
+    }
+
+    /** {@code hashCode()} is only 32 bits and often poorly distributed, so it is spread over the ring by the murmur3 finalizer. */
+    static long hashOf(final Object key) {
+        long h = key.hashCode();
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,257 @@
+package com.github.alanzplus.codebox.cache;
+
+import com.google.common.annotations.VisibleForTesting;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * An LFU cache whose frequencies are capped and decay over time, so that entries which were popular long ago eventually age out.
+ *
+ * <p>An entry's frequency counts its accesses, saturating at {@value #MAX_FREQUENCY}. After every {@code agingPeriod} accesses all
+ * frequencies are halved, which weighs recent accesses over old ones the same way {@link FrequencySketch} does. The victim is the
+ * least recently used entry among those with the lowest frequency.
+ *
+ * <p>Entries of equal frequency are kept in an intrusive doubly linked list, and the lists are reached through an array indexed by
+ * frequency. Unlike {@link FastLFU}, whose counters grow without bound and whose frequency nodes are allocated on demand, nothing is
+ * allocated on a hit.
+ */
+public class DecayingLFU<K, V> implements Cache<K, V> {
+    static final int MAX_FREQUENCY = 255;
+
+    private final int capacity;
+    private final int agingPeriod;
+    private final RemovalListener<K, V> removalListener;
+    private final Map<K, Node<K, V>> cache = new HashMap<>();
+    private final Node<K, V>[] buckets;
+    private int minFrequency;
+    private int accesses;
+
+    public DecayingLFU(final int capacity) {
+        this(capacity, RemovalListener.noop());
+    }
+
+    public DecayingLFU(final int capacity, final RemovalListener<K, V> removalListener) {
+        this(capacity, (int) Math.min(10L * capacity, Integer.MAX_VALUE), removalListener);
+    }
+
+    /** @param agingPeriod number of accesses, reads and writes, after which all frequencies are halved */
+    @SuppressWarnings("unchecked")
+    public DecayingLFU(final int capacity, final int agingPeriod, final RemovalListener<K, V> removalListener) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity " + capacity + " <= 0");
+        }
+        if (agingPeriod <= 0) {
+            throw new IllegalArgumentException("agingPeriod " + agingPeriod + " <= 0");
+        }
+        this.capacity = capacity;
+        this.agingPeriod = agingPeriod;
+        this.removalListener = removalListener;
+        buckets = (Node<K, V>[]) new Node<?, ?>[MAX_FREQUENCY + 1];
+        for (int i = 0; i < buckets.length; ++i) {
+            buckets[i] = Node.sentinel();
+        }
+    }
+
+    @Override
+    public void put(final K key, final V value) {
+        final Node<K, V> node = cache.get(key);
+        if (null != node) {
+            final V old = node.value;
+            node.value = value;
+            promote(node);
+            onAccess();
+            removalListener.onRemoval(key, old, RemovalCause.REPLACED);
+            return;
+        }
+        if (cache.size() >= capacity) {
+            final Node<K, V> victim = victimNode();
+            unlink(victim);
+            cache.remove(victim.key);
+            removalListener.onRemoval(victim.key, victim.value, RemovalCause.SIZE);
+        }
+        final Node<K, V> newNode = new Node<>(key, value);
+        cache.put(key, newNode);
+        linkLast(newNode);
+        minFrequency = 0;
+        onAccess();
+    }
+
+    @Override
+    public V get(final K key) {
+        final Node<K, V> node = cache.get(key);
+        if (null == node) {
+            return null;
+        }
+        promote(node);
+        onAccess();
+        return node.value;
+    }
+
+    @Override
+    public V remove(final K key) {
+        final Node<K, V> node = cache.remove(key);
+        if (null == node) {
+            return null;
+        }
+        unlink(node);
+        removalListener.onRemoval(key, node.value, RemovalCause.EXPLICIT);
+        return node.value;
+    }
+
+    @Override
+    public Entry<K, V> victim() {
+        return cache.isEmpty() ? null : victimNode();
+    }
+
+    /** From the lowest to the highest frequency, and from the least to the most recently used among entries of equal frequency. */
+    @Override
+    public Iterator<Entry<K, V>> evictionOrder() {
+        return new Iterator<Entry<K, V>>() {
+            private int frequency;
+            private Node<K, V> current = buckets[0].next;
+
+            @Override
+            public boolean hasNext() {
+                while (current == buckets[frequency] && frequency < MAX_FREQUENCY) {
+                    current = buckets[++frequency].next;
+                }
+                return current != buckets[frequency];
+            }
+
+            @Override
+            public Entry<K, V> next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                final Node<K, V> node = current;
+                current = current.next;
+                return node;
+            }
+        };
+    }
+
+    @Override
+    public int size() {
+        return cache.size();
+    }
+
+    @Override
+    public int capacity() {
+        return capacity;
+    }
+
+    private Node<K, V> victimNode() {
+        while (isEmpty(minFrequency)) {
+            ++minFrequency;
+        }
+        return buckets[minFrequency].next;
+    }
+
+    private void promote(final Node<K, V> node) {
+        unlink(node);
+        if (node.frequency < MAX_FREQUENCY) {
+            if (node.frequency == minFrequency && isEmpty(minFrequency)) {
+                ++minFrequency;
+            }
+            ++node.frequency;
+        }
+        linkLast(node);
+    }
+
+    private void onAccess() {
+        if (++accesses >= agingPeriod) {
+            accesses = 0;
+            age();
+        }
+    }
+
+    /**
+     * Halves every frequency. Buckets are visited in ascending order and each moves to a lower one, so every entry moves exactly once;
+     * within the target bucket, entries of the higher original frequency end up after the others.
+     */
+    private void age() {
+        for (int frequency = 1; frequency < buckets.length; ++frequency) {
+            final Node<K, V> source = buckets[frequency];
+            if (source.next == source) {
+                continue;
+            }
+            final int halved = frequency >>> 1;
+            for (Node<K, V> node = source.next; node != source; node = node.next) {
+                node.frequency = halved;
+            }
+            final Node<K, V> target = buckets[halved];
+            final Node<K, V> first = source.next;
+            final Node<K, V> last = source.prev;
+            first.prev = target.prev;
+            target.prev.next = first;
+            last.next = target;
+            target.prev = last;
+            source.next = source;
+            source.prev = source;
+        }
+        minFrequency = 0;
+    }
+
+    private boolean isEmpty(final int frequency) {
+        final Node<K, V> sentinel = buckets[frequency];
+        return sentinel.next == sentinel;
+    }
+
+    private void linkLast(final Node<K, V> node) {
+        final Node<K, V> sentinel = buckets[node.frequency];
+        node.prev = sentinel.prev;
+        node.next = sentinel;
+        sentinel.prev.next = node;
+        sentinel.prev = node;
+    }
+
+    private static <K, V> void unlink(final Node<K, V> node) {
+        node.prev.next = node.next;
+        node.next.prev = node.prev;
+        node.prev = null;
+        node.next = null;
+    }
+
+    @VisibleForTesting
+    Map<K, Node<K, V>> cache() {
+        return cache;
+    }
+
+    @VisibleForTesting
+    static class Node<K, V> implements Entry<K, V> {
+        final K key;
+        V value;
+        int frequency;
+        Node<K, V> prev;
+        Node<K, V> next;
+
+        Node(final K key, final V value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        static <K, V> Node<K, V> sentinel() {
+            final Node<K, V> sentinel = new Node<>(null, null);
+            sentinel.prev = sentinel;
+            sentinel.next = sentinel;
+            return sentinel;
+        }
+
+        @Override
+        public K key() {
+            return key;
+        }
+
+        @Override
+        public V value() {
+            return value;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s:%s", key, value);
+        }
+    }
+}
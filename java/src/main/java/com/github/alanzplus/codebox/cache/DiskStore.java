@@ -0,0 +1,347 @@
+package com.github.alanzplus.codebox.cache;
+
+import com.github.alanzplus.codebox.misc.Serializer;
+import com.google.common.annotations.VisibleForTesting;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A bitcask style key-value store on local disk: records are only ever appended to memory-mapped segment files, and an in-memory
+ * index maps each key to the location of its latest record.
+ *
+ * <p>Every record is laid out as
+ *
+ * <pre>
+ * key length (int) | value length (int) | key | value
+ * </pre>
+ *
+ * <p>Overwriting or removing a key only updates the index, leaving the old record behind as garbage. When the active segment is full
+ * a new one is started; if that would exceed {@code maxSegments}, room is made first, either by compacting the sealed segment with the
+ * least live data, if at most {@code compactionThreshold} of it is live, into the new segment, or otherwise by dropping the oldest
+ * segment and with it every entry it still holds, which is reported as a {@link RemovalCause#SIZE} removal. The store is a cache, not
+ * a database: its files are deleted on {@link #close()}, and nothing is recovered from a previous run.
+ *
+ * <p>This class is not thread-safe.
+ */
+public class DiskStore<K, V> implements Closeable {
+    static final double DEFAULT_COMPACTION_THRESHOLD = 0.5;
+    private static final int RECORD_HEADER_BYTES = Integer.BYTES * 2;
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final int maxSegments;
+    private final double compactionThreshold;
+    private final Serializer<K> keySerializer;
+    private final Serializer<V> valueSerializer;
+    private final RemovalListener<K, V> removalListener;
+    private final Map<K, Long> index = new HashMap<>();
+    private final TreeMap<Integer, Segment> segments = new TreeMap<>();
+    private Segment active;
+    private int nextSegmentId;
+    private long compactions;
+
+    public DiskStore(
+            final Path directory,
+            final int segmentBytes,
+            final int maxSegments,
+            final Serializer<K> keySerializer,
+            final Serializer<V> valueSerializer) {
+        this(directory, segmentBytes, maxSegments, DEFAULT_COMPACTION_THRESHOLD, keySerializer, valueSerializer,
+                RemovalListener.noop());
+    }
+
+    /** @param directory must exist; the store creates and deletes its {@code segment-*.data} files there */
+    public DiskStore(
+            final Path directory,
+            final int segmentBytes,
+            final int maxSegments,
+            final double compactionThreshold,
+            final Serializer<K> keySerializer,
+            final Serializer<V> valueSerializer,
+            final RemovalListener<K, V> removalListener) {
+        if (segmentBytes <= RECORD_HEADER_BYTES) {
+            throw new IllegalArgumentException("segmentBytes " + segmentBytes + " <= " + RECORD_HEADER_BYTES);
+        }
+        if (maxSegments < 2) {
+            throw new IllegalArgumentException("maxSegments " + maxSegments + " < 2");
+        }
+        if (compactionThreshold < 0 || compactionThreshold > 1) {
+            throw new IllegalArgumentException("compactionThreshold " + compactionThreshold + " not in [0, 1]");
+        }
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.maxSegments = maxSegments;
+        this.compactionThreshold = compactionThreshold;
+        this.keySerializer = keySerializer;
+        this.valueSerializer = valueSerializer;
+        this.removalListener = removalListener;
+        active = newSegment();
+    }
+
+    /**
+     * Replaces any previous record of the key, without reporting it. A record larger than a segment is never stored, and is reported
+     * as a {@link RemovalCause#SIZE} removal right away.
+     */
+    public void put(final K key, final V value) {
+        final byte[] keyBytes = keySerializer.serialize(key);
+        final byte[] valueBytes = valueSerializer.serialize(value);
+        final long recordBytes = RECORD_HEADER_BYTES + (long) keyBytes.length + valueBytes.length;
+        discard(key);
+        if (recordBytes > segmentBytes) {
+            removalListener.onRemoval(key, value, RemovalCause.SIZE);
+            return;
+        }
+        if (recordBytes > segmentBytes - active.writePosition) {
+            roll((int) recordBytes);
+        }
+        index.put(key, active.append(keyBytes, valueBytes));
+    }
+
+    public V get(final K key) {
+        final Long location = index.get(key);
+        return null == location ? null : readValue(location);
+    }
+
+    /** Removes the key without reporting it. @return the value it had, or null */
+    public V remove(final K key) {
+        final Long location = index.get(key);
+        if (null == location) {
+            return null;
+        }
+        final V value = readValue(location);
+        discard(key);
+        return value;
+    }
+
+    public boolean containsKey(final K key) {
+        return index.containsKey(key);
+    }
+
+    public int size() {
+        return index.size();
+    }
+
+    /** Bytes of the records the index still points to. */
+    public long liveBytes() {
+        long live = 0;
+        for (final Segment segment : segments.values()) {
+            live += segment.liveBytes;
+        }
+        return live;
+    }
+
+    /** Deletes every segment file. */
+    @Override
+    public void close() throws IOException {
+        IOException failure = null;
+        for (final Segment segment : segments.values()) {
+            try {
+                segment.delete();
+            } catch (final IOException e) {
+                if (null == failure) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        segments.clear();
+        index.clear();
+        if (null != failure) {
+            throw failure;
+        }
+    }
+
+    private void discard(final K key) {
+        final Long location = index.remove(key);
+        if (null != location) {
+            final Segment segment = segments.get(segmentId(location));
+            segment.liveBytes -= segment.recordBytes(offset(location));
+        }
+    }
+
+    private V readValue(final long location) {
+        final Segment segment = segments.get(segmentId(location));
+        final int offset = offset(location);
+        final int keyLength = segment.buffer.getInt(offset);
+        final int valueLength = segment.buffer.getInt(offset + Integer.BYTES);
+        return valueSerializer.deserialize(slice(segment.buffer, offset + RECORD_HEADER_BYTES + keyLength, valueLength));
+    }
+
+    /**
+     * Seals the active segment and starts a new one with room for at least {@code neededBytes}, making room first if the store
+     * already has {@code maxSegments}.
+     */
+    private void roll(final int neededBytes) {
+        if (segments.size() < maxSegments) {
+            active = newSegment();
+            return;
+        }
+        Segment sparsest = null;
+        for (final Segment segment : segments.values()) {
+            if (null == sparsest || segment.liveBytes < sparsest.liveBytes) {
+                sparsest = segment;
+            }
+        }
+        if (sparsest.liveBytes <= segmentBytes * compactionThreshold && segmentBytes - sparsest.liveBytes >= neededBytes) {
+            compact(sparsest);
+        } else {
+            dropOldest();
+            active = newSegment();
+        }
+    }
+
+    /** Copies the live records of the segment into a new active segment, which they fit in, then deletes the segment. */
+    private void compact(final Segment source) {
+        active = newSegment();
+        for (int offset = 0; offset < source.writePosition; offset += source.recordBytes(offset)) {
+            final K key = source.key(offset);
+            final Long location = index.get(key);
+            if (null != location && location == location(source.id, offset)) {
+                index.put(key, active.copy(source, offset));
+            }
+        }
+        source.liveBytes = 0;
+        deleteSegment(source);
+        ++compactions;
+    }
+
+    private void dropOldest() {
+        final Segment oldest = segments.firstEntry().getValue();
+        for (int offset = 0; offset < oldest.writePosition; offset += oldest.recordBytes(offset)) {
+            final K key = oldest.key(offset);
+            final Long location = index.get(key);
+            if (null != location && location == location(oldest.id, offset)) {
+                final V value = readValue(location);
+                index.remove(key);
+                removalListener.onRemoval(key, value, RemovalCause.SIZE);
+            }
+        }
+        deleteSegment(oldest);
+    }
+
+    private Segment newSegment() {
+        final int id = nextSegmentId++;
+        final Path file = directory.resolve(String.format("segment-%08d.data", id));
+        try (FileChannel channel = FileChannel.open(
+                file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            final Segment segment = new Segment(id, file, channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes));
+            segments.put(id, segment);
+            return segment;
+        } catch (final IOException e) {
+            throw new UncheckedIOException("cannot create segment " + file, e);
+        }
+    }
+
+    private void deleteSegment(final Segment segment) {
+        segments.remove(segment.id);
+        try {
+            segment.delete();
+        } catch (final IOException e) {
+            throw new UncheckedIOException("cannot delete segment " + segment.file, e);
+        }
+    }
+
+    private static long location(final int segmentId, final int offset) {
+        return (long) segmentId << 32 | offset;
+    }
+
+    private static int segmentId(final long location) {
+        return (int) (location >>> 32);
+    }
+
+    private static int offset(final long location) {
+        return (int) location;
+    }
+
+    private static ByteBuffer slice(final ByteBuffer buffer, final int offset, final int length) {
+        final ByteBuffer duplicate = buffer.duplicate();
+        duplicate.limit(offset + length).position(offset);
+        return duplicate.slice();
+    }
+
+    @VisibleForTesting
+    int segmentCount() {
+        return segments.size();
+    }
+
+    @VisibleForTesting
+    long compactions() {
+        return compactions;
+    }
+
+    /**
+     * One segment file, mapped in full. Java cannot unmap a buffer, so the mapping only goes away once the buffer is garbage
+     * collected, and a deleted but still mapped file would keep its disk space until then. {@link #delete()} therefore truncates the
+     * file first, which frees its blocks at once on Linux and macOS, so the store never holds more than {@code maxSegments} segments'
+     * worth of disk. Nothing reads the buffer after that: the index no longer points into the segment, and serializers copy what
+     * they deserialize. On Windows a mapped file can be neither truncated nor deleted, and {@link #delete()} fails.
+     */
+    private class Segment {
+        final int id;
+        final Path file;
+        final MappedByteBuffer buffer;
+        int writePosition;
+        long liveBytes;
+
+        Segment(final int id, final Path file, final MappedByteBuffer buffer) {
+            this.id = id;
+            this.file = file;
+            this.buffer = buffer;
+        }
+
+        long append(final byte[] key, final byte[] value) {
+            final int offset = writePosition;
+            buffer.putInt(offset, key.length);
+            buffer.putInt(offset + Integer.BYTES, value.length);
+            final ByteBuffer target = buffer.duplicate();
+            target.position(offset + RECORD_HEADER_BYTES);
+            target.put(key).put(value);
+            return advance(offset, RECORD_HEADER_BYTES + key.length + value.length);
+        }
+
+        /** Copies the record as is, without deserializing it. */
+        long copy(final Segment source, final int sourceOffset) {
+            final int offset = writePosition;
+            final int recordBytes = source.recordBytes(sourceOffset);
+            final ByteBuffer target = buffer.duplicate();
+            target.position(offset);
+            target.put(slice(source.buffer, sourceOffset, recordBytes));
+            return advance(offset, recordBytes);
+        }
+
+        private long advance(final int offset, final int recordBytes) {
+            writePosition += recordBytes;
+            liveBytes += recordBytes;
+            return location(id, offset);
+        }
+
+        int recordBytes(final int offset) {
+            return RECORD_HEADER_BYTES + buffer.getInt(offset) + buffer.getInt(offset + Integer.BYTES);
+        }
+
+        K key(final int offset) {
+            return keySerializer.deserialize(slice(buffer, offset + RECORD_HEADER_BYTES, buffer.getInt(offset)));
+        }
+
+        void delete() throws IOException {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                channel.truncate(0);
+            } catch (final NoSuchFileException e) {
+                return;
+            }
+            Files.delete(file);
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.github.alanzplus.codebox.cache;
+
+import com.google.common.annotations.VisibleForTesting;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Adds time based expiration to a size bounded cache.
+ *
+ * <p>Every entry owns a timer in a {@link TimerWheel}, set to its write time ({@link Expiry#AFTER_WRITE}) or last access time
+ * ({@link Expiry#AFTER_ACCESS}) plus the duration. The wheel is advanced at the start of every operation, and the entries whose
+ * timers fire are removed from the delegate and reported as {@link RemovalCause#EXPIRED}, so expired entries are reclaimed even if
+ * they are never read again. A read also checks the exact deadline, since the wheel only has a precision of about a second.
+ *
+ * <p>This class is not thread-safe.
+ */
+public class ExpiringCache<K, V> implements Cache<K, V> {
+    public enum Expiry {
+        AFTER_WRITE,
+        AFTER_ACCESS
+    }
+
+    private final Cache<K, V> delegate;
+    private final Map<K, TimerWheel.Timer<K>> timers = new HashMap<>();
+    private final TimerWheel<K> wheel;
+    private final Expiry expiry;
+    private final long durationNanos;
+    private final Ticker ticker;
+    private final RemovalListener<K, V> removalListener;
+    private boolean expiring;
+
+    public ExpiringCache(
+            final Function<RemovalListener<K, V>, Cache<K, V>> delegateFactory,
+            final Expiry expiry,
+            final long duration,
+            final TimeUnit unit) {
+        this(delegateFactory, expiry, duration, unit, Ticker.systemTicker(), RemovalListener.noop());
+    }
+
+    /**
+     * @param delegateFactory creates the size bounded cache holding the entries, which must report every entry it drops to the
+     *     listener it is given
+     * @param removalListener is told about entries leaving the delegate, with expired ones reported as {@link RemovalCause#EXPIRED}
+     */
+    public ExpiringCache(
+            final Function<RemovalListener<K, V>, Cache<K, V>> delegateFactory,
+            final Expiry expiry,
+            final long duration,
+            final TimeUnit unit,
+            final Ticker ticker,
+            final RemovalListener<K, V> removalListener) {
+        if (duration <= 0) {
+            throw new IllegalArgumentException("duration " + duration + " <= 0");
+        }
+        this.expiry = expiry;
+        this.durationNanos = unit.toNanos(duration);
+        this.ticker = ticker;
+        this.removalListener = removalListener;
+        wheel = new TimerWheel<>(ticker.read());
+        delegate = delegateFactory.apply(this::onRemoval);
+    }
+
+    @Override
+    public void put(final K key, final V value) {
+        final long now = advance();
+        final TimerWheel.Timer<K> timer = timers.get(key);
+        if (null == timer) {
+            final TimerWheel.Timer<K> newTimer = new TimerWheel.Timer<>(key, now + durationNanos);
+            timers.put(key, newTimer);
+            wheel.schedule(newTimer);
+        } else {
+            timer.time = now + durationNanos;
+            wheel.reschedule(timer);
+        }
+        // Scheduled first, so a delegate rejecting the entry right away also drops its timer
+        delegate.put(key, value);
+    }
+
+    @Override
+    public V get(final K key) {
+        final long now = advance();
+        final TimerWheel.Timer<K> timer = timers.get(key);
+        if (null == timer) {
+            return null;
+        }
+        if (timer.time - now <= 0L) {
+            expire(key);
+            return null;
+        }
+        final V value = delegate.get(key);
+        if (Expiry.AFTER_ACCESS == expiry) {
+            timer.time = now + durationNanos;
+            wheel.reschedule(timer);
+        }
+        return value;
+    }
+
+    @Override
+    public V remove(final K key) {
+        advance();
+        return delegate.remove(key);
+    }
+
+    @Override
+    public Entry<K, V> victim() {
+        return delegate.victim();
+    }
+
+    /** Includes expired entries which have not been reclaimed yet, see {@link #cleanUp()}. */
+    @Override
+    public int size() {
+        return delegate.size();
+    }
+
+    @Override
+    public int capacity() {
+        return delegate.capacity();
+    }
+
+    @Override
+    public long weightedSize() {
+        return delegate.weightedSize();
+    }
+
+    /** Reclaims the entries which have expired since the last operation. */
+    public void cleanUp() {
+        advance();
+    }
+
+    private long advance() {
+        final long now = ticker.read();
+        wheel.advance(now, timer -> expire(timer.key));
+        return now;
+    }
+
+    private void expire(final K key) {
+        expiring = true;
+        try {
+            if (null == delegate.remove(key)) {
+                // The delegate lost the entry without telling us, so nobody else will drop the timer
+                timers.remove(key);
+            }
+        } finally {
+            expiring = false;
+        }
+    }
+
+    private void onRemoval(final K key, final V value, final RemovalCause cause) {
+        if (RemovalCause.REPLACED != cause) {
+            final TimerWheel.Timer<K> timer = timers.remove(key);
+            if (null != timer) {
+                wheel.deschedule(timer);
+            }
+        }
+        removalListener.onRemoval(key, value, expiring && RemovalCause.EXPLICIT == cause ? RemovalCause.EXPIRED : cause);
+    }
+
+    @VisibleForTesting
+    Map<K, TimerWheel.Timer<K>> timers() {
+        return timers;
+    }
+
+    @VisibleForTesting
+    TimerWheel<K> wheel() {
+        return wheel;
+    }
+}
@@ -1,9 +1,12 @@
 package com.github.alanzplus.codebox.cache;
 
 import com.google.common.annotations.VisibleForTesting;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
 import lombok.NonNull;
 
@@ -13,12 +16,30 @@ import lombok.NonNull;
  * @see <a href="http://dhruvbird.com/lfu.pdf">reference</a>
  */
 public class FastLFU<K, V> implements Cache<K, V> {
-    private final int capacity;
+    private final long maximumWeight;
+    private final Weigher<K, V> weigher;
     private final Map<K, CacheNode<K, V>> cache = new HashMap<>();
     private final FreqNode<K, V> head = new FreqNode<>(-1);
+    private final RemovalListener<K, V> removalListener;
+    private long weightedSize;
 
     public FastLFU(final int capacity) {
-        this.capacity = capacity;
+        this(capacity, RemovalListener.noop());
+    }
+
+    public FastLFU(final int capacity, final RemovalListener<K, V> removalListener) {
+        this(capacity, Weigher.singleton(), removalListener);
+    }
+
+    /** Bounds the cache by the total weight of its entries, evicting as many victims as needed to fit a new entry. */
+    public FastLFU(final long maximumWeight, final Weigher<K, V> weigher) {
+        this(maximumWeight, weigher, RemovalListener.noop());
+    }
+
+    public FastLFU(final long maximumWeight, final Weigher<K, V> weigher, final RemovalListener<K, V> removalListener) {
+        this.maximumWeight = maximumWeight;
+        this.weigher = weigher;
+        this.removalListener = removalListener;
     }
 
     @VisibleForTesting
@@ -37,9 +58,40 @@ public class FastLFU<K, V> implements Cache<K, V> {
         cacheNode.register(next);
     }
 
+    /**
+     * An entry heavier than the maximum weight is never stored: it replaces an existing mapping of the key, and is then reported as
+     * evicted right away.
+     */
     @Override
     public void put(final K key, final V value) {
-        if (cache.size() == capacity) {
+        final int weight = weigher.weigh(key, value);
+        if (weight < 0) {
+            throw new IllegalArgumentException("negative weight " + weight + " for key " + key);
+        }
+        final CacheNode<K, V> old = cache.get(key);
+        if (weight > maximumWeight) {
+            if (null != old) {
+                cache.remove(key);
+                old.unregister();
+                weightedSize -= old.weight;
+                removalListener.onRemoval(key, old.entry.value(), RemovalCause.REPLACED);
+            }
+            removalListener.onRemoval(key, value, RemovalCause.SIZE);
+            return;
+        }
+        if (null != old) {
+            // The new value inherits the frequency of the one it replaces
+            final FreqNode<K, V> freqNode = old.freqNode;
+            cache.put(key, new CacheNode<>(new FastLFUEntry<>(key, value), weight).register(freqNode));
+            old.unregister();
+            weightedSize += weight - old.weight;
+            removalListener.onRemoval(key, old.entry.value(), RemovalCause.REPLACED);
+            while (weightedSize > maximumWeight) {
+                evict();
+            }
+            return;
+        }
+        while (weightedSize + weight > maximumWeight) {
             evict();
         }
         FreqNode<K, V> nextFreqNode = head.next;
@@ -47,7 +99,8 @@ public class FastLFU<K, V> implements Cache<K, V> {
             nextFreqNode = new FreqNode<>(0L);
             FreqNode.insertAfter(head, nextFreqNode);
         }
-        cache.put(key, new CacheNode<>(new FastLFUEntry<>(key, value)).register(nextFreqNode));
+        cache.put(key, new CacheNode<>(new FastLFUEntry<>(key, value), weight).register(nextFreqNode));
+        weightedSize += weight;
     }
 
     @Override
@@ -60,11 +113,49 @@ public class FastLFU<K, V> implements Cache<K, V> {
         return cacheNode.entry.value();
     }
 
+    @Override
+    public V remove(final K key) {
+        final CacheNode<K, V> node = cache.remove(key);
+        if (null == node) {
+            return null;
+        }
+        node.unregister();
+        weightedSize -= node.weight;
+        removalListener.onRemoval(key, node.entry.value(), RemovalCause.EXPLICIT);
+        return node.entry.value();
+    }
+
     @Override
     public Entry<K, V> victim() {
         return null == head.next ? null : head.next.set.iterator().next().entry;
     }
 
+    /** From the least to the most frequently used entry, and from the oldest to the newest among entries of equal frequency. */
+    @Override
+    public Iterator<Entry<K, V>> evictionOrder() {
+        return new Iterator<Entry<K, V>>() {
+            private FreqNode<K, V> freqNode = head;
+            private Iterator<CacheNode<K, V>> nodes = Collections.emptyIterator();
+
+            @Override
+            public boolean hasNext() {
+                while (!nodes.hasNext() && null != freqNode.next) {
+                    freqNode = freqNode.next;
+                    nodes = freqNode.set.iterator();
+                }
+                return nodes.hasNext();
+            }
+
+            @Override
+            public Entry<K, V> next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return nodes.next().entry;
+            }
+        };
+    }
+
     @Override
     public int size() {
         return cache.size();
@@ -72,11 +163,20 @@ public class FastLFU<K, V> implements Cache<K, V> {
 
     @Override
     public int capacity() {
-        return capacity;
+        return (int) Math.min(maximumWeight, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public long weightedSize() {
+        return weightedSize;
     }
 
     private Entry<K, V> evict() {
-        return cache.remove(victim().key()).unregister().entry;
+        final CacheNode<K, V> node = cache.remove(victim().key()).unregister();
+        weightedSize -= node.weight;
+        final Entry<K, V> evicted = node.entry;
+        removalListener.onRemoval(evicted.key(), evicted.value(), RemovalCause.SIZE);
+        return evicted;
     }
 
     @VisibleForTesting
@@ -139,10 +239,16 @@ public class FastLFU<K, V> implements Cache<K, V> {
     @VisibleForTesting
     static class CacheNode<K, V> {
         final Entry<K, V> entry;
+        final int weight;
         FreqNode<K, V> freqNode;
 
         CacheNode(final Entry<K, V> entry) {
+            this(entry, 1);
+        }
+
+        CacheNode(final Entry<K, V> entry, final int weight) {
             this.entry = entry;
+            this.weight = weight;
         }
 
         CacheNode<K, V> register(@NonNull final FreqNode<K, V> freqNode) {
@@ -0,0 +1,90 @@
+package com.github.alanzplus.codebox.cache;
+
+/**
+ * A count-min sketch of 4-bit counters, used to estimate how often a key has been seen recently.
+ *
+ * <p>Each {@code long} in the table holds sixteen counters. A key maps to one counter in each of four rows, and its frequency is
+ * the minimum of them, so the estimate may be too high but never too low. After {@code 10 * maximumSize} increments every counter
+ * is halved, which ages out keys that used to be popular. The whole sketch costs 8 bytes per cached entry.
+ *
+ * @see <a href="https://arxiv.org/abs/1512.00727">TinyLFU: A Highly Efficient Cache Admission Policy</a>
+ */
+class FrequencySketch<E> {
+    static final int MAX_FREQUENCY = 15;
+
+    private static final long[] SEED = {0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+    private static final long RESET_MASK = 0x7777777777777777L;
+    private static final long ONE_MASK = 0x1111111111111111L;
+
+    private final long[] table;
+    private final int tableMask;
+    private final int sampleSize;
+    private int size;
+
+    FrequencySketch(final int maximumSize) {
+        final int max = Math.max(1, maximumSize);
+        table = new long[1 == max ? 1 : Integer.highestOneBit(max - 1) << 1];
+        tableMask = table.length - 1;
+        sampleSize = (int) Math.min(10L * max, Integer.MAX_VALUE);
+    }
+
+    int frequency(final E e) {
+        final int hash = spread(e.hashCode());
+        final int start = (hash & 3) << 2;
+        int frequency = MAX_FREQUENCY;
+        for (int i = 0; i < 4; ++i) {
+            final int index = indexOf(hash, i);
+            final int count = (int) ((table[index] >>> ((start + i) << 2)) & 0xfL);
+            frequency = Math.min(frequency, count);
+        }
+        return frequency;
+    }
+
+    void increment(final E e) {
+        final int hash = spread(e.hashCode());
+        final int start = (hash & 3) << 2;
+        boolean added = false;
+        for (int i = 0; i < 4; ++i) {
+            added |= incrementAt(indexOf(hash, i), start + i);
+        }
+        if (added && ++size == sampleSize) {
+            reset();
+        }
+    }
+
+    int sampleSize() {
+        return sampleSize;
+    }
+
+    /** Halves every counter. The count of odd counters corrects {@code size} for the truncation of the halving. */
+    void reset() {
+        int odd = 0;
+        for (int i = 0; i < table.length; ++i) {
+            odd += Long.bitCount(table[i] & ONE_MASK);
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        size = (size >>> 1) - (odd >>> 2);
+    }
+
+    private boolean incrementAt(final int i, final int j) {
+        final int offset = j << 2;
+        final long mask = 0xfL << offset;
+        if ((table[i] & mask) != mask) {
+            table[i] += 1L << offset;
+            return true;
+        }
+        return false;
+    }
+
+    private int indexOf(final int item, final int i) {
+        long hash = (item + SEED[i]) * SEED[i];
+        hash += hash >>> 32;
+        return ((int) hash) & tableMask;
+    }
+
+    private static int spread(int x) {
+        x = ((x >>> 16) ^ x) * 0x45d9f3b;
+        x = ((x >>> 16) ^ x) * 0x45d9f3b;
+        return (x >>> 16) ^ x;
+    }
+}
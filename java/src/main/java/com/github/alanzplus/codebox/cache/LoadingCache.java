@@ -0,0 +1,420 @@
+package com.github.alanzplus.codebox.cache;
+
+import com.google.common.annotations.VisibleForTesting;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import lombok.NonNull;
+
+/**
+ * A thread-safe cache which computes missing values with a loader, running at most one load per key at a time.
+ *
+ * <p>Concurrent misses on the same key are coalesced: the first thread registers a future for the key and runs the loader, the
+ * others wait for that future instead of computing the value again. A failed load is rethrown to every waiting thread and nothing
+ * is cached, so the next miss retries.
+ *
+ * <p>With a refresh interval, a hit on an entry written longer ago than the interval returns the current value right away and
+ * reloads the entry on the executor. The reload shares the per-key future with misses, so a key is never refreshed twice at the same
+ * time, and a failed reload keeps the old value.
+ *
+ * <p>A load only stores its value if the key was neither put nor removed since the load started: {@link #put} and {@link #remove}
+ * take the load's future out of the in-flight map, and a load stores its value only while its future is still registered. Both
+ * sides run under a striped lock, as does the registration of a future together with a last look at the delegate, so a load never
+ * overwrites a newer value or brings back a removed key.
+ *
+ * <p>Write times are only kept for every key when refreshing; otherwise, with statistics enabled, they are kept for the keys
+ * {@link StatsCache} samples, to measure eviction ages, and not at all with {@link StatsCounter#disabled()}.
+ *
+ * <p>The delegate must be thread-safe, e.g. a {@link BufferedCache} or a {@link StripedLRU}. A loader returning {@code null} means
+ * there is no value; nothing is cached then.
+ */
+public class LoadingCache<K, V> implements Cache<K, V> {
+    private static final int LOCK_STRIPES = 64;
+
+    private final Cache<K, V> delegate;
+    private final Function<? super K, ? extends V> loader;
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final Object[] locks = new Object[LOCK_STRIPES];
+    private final ConcurrentHashMap<K, Long> writeTimes = new ConcurrentHashMap<>();
+    private final long refreshNanos;
+    private final Executor executor;
+    private final Ticker ticker;
+    private final StatsCounter statsCounter;
+    private final boolean recordStats;
+
+    public LoadingCache(
+            final Function<RemovalListener<K, V>, Cache<K, V>> delegateFactory, final Function<? super K, ? extends V> loader) {
+        this(delegateFactory, loader, 0L, TimeUnit.NANOSECONDS, ForkJoinPool.commonPool(), Ticker.systemTicker(),
+                RemovalListener.noop());
+    }
+
+    public LoadingCache(
+            final Function<RemovalListener<K, V>, Cache<K, V>> delegateFactory,
+            final Function<? super K, ? extends V> loader,
+            final long refreshAfterWrite,
+            final TimeUnit unit) {
+        this(delegateFactory, loader, refreshAfterWrite, unit, ForkJoinPool.commonPool(), Ticker.systemTicker(),
+                RemovalListener.noop());
+    }
+
+    public LoadingCache(
+            final Function<RemovalListener<K, V>, Cache<K, V>> delegateFactory,
+            final Function<? super K, ? extends V> loader,
+            final long refreshAfterWrite,
+            final TimeUnit unit,
+            final Executor executor,
+            final Ticker ticker,
+            final RemovalListener<K, V> removalListener) {
+        this(delegateFactory, loader, refreshAfterWrite, unit, executor, ticker, removalListener, StatsCounter.disabled());
+    }
+
+    /**
+     * @param delegateFactory creates the thread-safe cache holding the entries, which must report every entry it drops to the
+     *     listener it is given
+     * @param refreshAfterWrite age after which a hit triggers a background reload, or {@code 0} to never refresh
+     * @param executor runs the background reloads
+     * @param statsCounter records hits, misses, loads and evictions, see {@link #stats()}
+     */
+    public LoadingCache(
+            final Function<RemovalListener<K, V>, Cache<K, V>> delegateFactory,
+            final Function<? super K, ? extends V> loader,
+            final long refreshAfterWrite,
+            final TimeUnit unit,
+            final Executor executor,
+            final Ticker ticker,
+            final RemovalListener<K, V> removalListener,
+            final StatsCounter statsCounter) {
+        if (refreshAfterWrite < 0) {
+            throw new IllegalArgumentException("refreshAfterWrite " + refreshAfterWrite + " < 0");
+        }
+        this.loader = loader;
+        this.refreshNanos = unit.toNanos(refreshAfterWrite);
+        this.executor = executor;
+        this.ticker = ticker;
+        this.statsCounter = statsCounter;
+        recordStats = StatsCounter.disabled() != statsCounter;
+        for (int i = 0; i < locks.length; ++i) {
+            locks[i] = new Object();
+        }
+        delegate = delegateFactory.apply(recordStats || 0L != refreshNanos ? trackingListener(removalListener) : removalListener);
+    }
+
+    /** Returns the cached value, loading it with the cache's loader on a miss. */
+    @Override
+    public V get(@NonNull final K key) {
+        return get(key, loader);
+    }
+
+    /** Returns the cached value, loading it with the given loader on a miss. */
+    public V get(@NonNull final K key, @NonNull final Function<? super K, ? extends V> loader) {
+        final V value = delegate.get(key);
+        if (null != value) {
+            statsCounter.recordHits(1);
+            if (0L != refreshNanos) {
+                refreshIfStale(key, loader);
+            }
+            return value;
+        }
+        statsCounter.recordMisses(1);
+        final CompletableFuture<V> future = new CompletableFuture<>();
+        final CompletableFuture<V> existing;
+        synchronized (lockFor(key)) {
+            // Another thread may have loaded or put the key between our miss and taking the lock
+            final V current = delegate.get(key);
+            if (null != current) {
+                return current;
+            }
+            existing = inFlight.putIfAbsent(key, future);
+        }
+        if (null != existing) {
+            return join(existing);
+        }
+        try {
+            final V loaded = load(key, loader, future);
+            future.complete(loaded);
+            return loaded;
+        } catch (final RuntimeException | Error e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    /** Returns the values of the keys, loading the misses one at a time with the cache's loader. */
+    @Override
+    public Map<K, V> getAll(@NonNull final Collection<? extends K> keys) {
+        return getAll(keys, missing -> {
+            final Map<K, V> loaded = new HashMap<>(Cache.mapCapacity(missing.size()));
+            for (final K key : missing) {
+                final V value = loader.apply(key);
+                if (null != value) {
+                    loaded.put(key, value);
+                }
+            }
+            return loaded;
+        });
+    }
+
+    /**
+     * Returns the values of the keys, loading all misses with a single call to the bulk loader.
+     *
+     * <p>Keys another thread is already loading are waited for instead of being passed to the bulk loader. Every entry the bulk
+     * loader returns is cached, and requested keys it leaves out have no value. If it fails, the failure is rethrown to every thread
+     * waiting on one of its keys.
+     */
+    public Map<K, V> getAll(
+            @NonNull final Collection<? extends K> keys,
+            @NonNull final Function<? super Set<K>, ? extends Map<? extends K, ? extends V>> bulkLoader) {
+        final Map<K, V> result = delegate.getAll(keys);
+        statsCounter.recordHits(result.size());
+        statsCounter.recordMisses(keys.size() - result.size());
+        if (0L != refreshNanos) {
+            for (final K key : result.keySet()) {
+                refreshIfStale(key, loader);
+            }
+        }
+        final Map<K, CompletableFuture<V>> owned = new HashMap<>();
+        final Map<K, CompletableFuture<V>> waiting = new HashMap<>();
+        for (final K key : keys) {
+            if (result.containsKey(key) || owned.containsKey(key) || waiting.containsKey(key)) {
+                continue;
+            }
+            final CompletableFuture<V> future = new CompletableFuture<>();
+            synchronized (lockFor(key)) {
+                final V current = delegate.get(key);
+                if (null != current) {
+                    result.put(key, current);
+                    continue;
+                }
+                final CompletableFuture<V> existing = inFlight.putIfAbsent(key, future);
+                if (null == existing) {
+                    owned.put(key, future);
+                } else {
+                    waiting.put(key, existing);
+                }
+            }
+        }
+        if (!owned.isEmpty()) {
+            try {
+                final long start = ticker.read();
+                final Map<K, V> loaded;
+                try {
+                    loaded = new HashMap<>(bulkLoader.apply(Collections.unmodifiableSet(owned.keySet())));
+                } catch (final RuntimeException | Error e) {
+                    statsCounter.recordLoadFailure(ticker.read() - start);
+                    throw e;
+                }
+                statsCounter.recordLoadSuccess(ticker.read() - start);
+                loaded.values().removeIf(value -> null == value);
+                loaded.forEach((key, value) -> {
+                    final CompletableFuture<V> future = owned.get(key);
+                    if (null == future) {
+                        put(key, value);
+                    } else {
+                        storeIfCurrent(key, value, future);
+                    }
+                });
+                for (final Map.Entry<K, CompletableFuture<V>> entry : owned.entrySet()) {
+                    final V value = loaded.get(entry.getKey());
+                    entry.getValue().complete(value);
+                    if (null != value) {
+                        result.put(entry.getKey(), value);
+                    }
+                }
+            } catch (final RuntimeException | Error e) {
+                owned.values().forEach(future -> future.completeExceptionally(e));
+                throw e;
+            } finally {
+                owned.forEach(inFlight::remove);
+            }
+        }
+        for (final Map.Entry<K, CompletableFuture<V>> entry : waiting.entrySet()) {
+            final V value = join(entry.getValue());
+            if (null != value) {
+                result.put(entry.getKey(), value);
+            }
+        }
+        return result;
+    }
+
+    /** Returns the cached value without loading it. */
+    public V getIfPresent(@NonNull final K key) {
+        return delegate.get(key);
+    }
+
+    /** Stores the value and discards the result of any load of the key in progress, which would be older. */
+    @Override
+    public void put(@NonNull final K key, @NonNull final V value) {
+        synchronized (lockFor(key)) {
+            inFlight.remove(key);
+            store(key, value);
+        }
+    }
+
+    /** Puts the entries one at a time, since each must invalidate the loads of its key. */
+    @Override
+    public void putAll(@NonNull final Map<? extends K, ? extends V> entries) {
+        entries.forEach(this::put);
+    }
+
+    /** Removes the entry and discards the result of any load of the key in progress, so that the key does not come back. */
+    @Override
+    public V remove(@NonNull final K key) {
+        synchronized (lockFor(key)) {
+            inFlight.remove(key);
+            return delegate.remove(key);
+        }
+    }
+
+    @Override
+    public Entry<K, V> victim() {
+        return delegate.victim();
+    }
+
+    @Override
+    public int size() {
+        return delegate.size();
+    }
+
+    @Override
+    public int capacity() {
+        return delegate.capacity();
+    }
+
+    @Override
+    public long weightedSize() {
+        return delegate.weightedSize();
+    }
+
+    /** Drops the write times of removed entries and records evictions, sampling their ages like {@link StatsCache}. */
+    private RemovalListener<K, V> trackingListener(final RemovalListener<K, V> removalListener) {
+        return (key, value, cause) -> {
+            if (RemovalCause.REPLACED != cause) {
+                final Long writeTime = tracksWriteTime(key) ? writeTimes.remove(key) : null;
+                if (RemovalCause.SIZE == cause || RemovalCause.EXPIRED == cause) {
+                    statsCounter.recordEviction();
+                    if (null != writeTime && recordStats && StatsCache.isSampled(key)) {
+                        statsCounter.recordEvictionAge(ticker.read() - writeTime);
+                    }
+                }
+            }
+            removalListener.onRemoval(key, value, cause);
+        };
+    }
+
+    private boolean tracksWriteTime(final K key) {
+        return 0L != refreshNanos || (recordStats && StatsCache.isSampled(key));
+    }
+
+    private void refreshIfStale(final K key, final Function<? super K, ? extends V> loader) {
+        if (!isStale(key)) {
+            return;
+        }
+        final CompletableFuture<V> future = new CompletableFuture<>();
+        synchronized (lockFor(key)) {
+            // A put since our hit may have made the entry fresh again
+            if (!isStale(key) || null != inFlight.putIfAbsent(key, future)) {
+                return;
+            }
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    future.complete(load(key, loader, future));
+                } catch (final Throwable t) {
+                    future.completeExceptionally(t);
+                } finally {
+                    inFlight.remove(key, future);
+                }
+            });
+        } catch (final RuntimeException e) {
+            // Rejected by the executor: keep serving the current value and try again on a later hit
+            inFlight.remove(key, future);
+            future.completeExceptionally(e);
+        }
+    }
+
+    private boolean isStale(final K key) {
+        final Long writeTime = writeTimes.get(key);
+        return null != writeTime && ticker.read() - writeTime >= refreshNanos;
+    }
+
+    /** Runs the loader, caches a non-null result unless the load was invalidated meanwhile, and records the load time. */
+    private V load(final K key, final Function<? super K, ? extends V> loader, final CompletableFuture<V> future) {
+        final long start = ticker.read();
+        final V loaded;
+        try {
+            loaded = loader.apply(key);
+        } catch (final RuntimeException | Error e) {
+            statsCounter.recordLoadFailure(ticker.read() - start);
+            throw e;
+        }
+        statsCounter.recordLoadSuccess(ticker.read() - start);
+        if (null != loaded) {
+            storeIfCurrent(key, loaded, future);
+        }
+        return loaded;
+    }
+
+    /** Caches a loaded value, unless a put or remove of the key took the load's future out of {@code inFlight} meanwhile. */
+    private void storeIfCurrent(final K key, final V value, final CompletableFuture<V> future) {
+        synchronized (lockFor(key)) {
+            if (future == inFlight.get(key)) {
+                store(key, value);
+            }
+        }
+    }
+
+    private void store(final K key, final V value) {
+        // Recorded first, so a delegate rejecting the entry right away also drops its write time
+        if (tracksWriteTime(key)) {
+            writeTimes.put(key, ticker.read());
+        }
+        delegate.put(key, value);
+    }
+
+    private Object lockFor(final K key) {
+        final int h = key.hashCode();
+        return locks[(h ^ (h >>> 16)) & (LOCK_STRIPES - 1)];
+    }
+
+    /** Waits for the future, rethrowing the unchecked exception it failed with as is. */
+    static <V> V join(final CompletableFuture<V> future) {
+        try {
+            return future.join();
+        } catch (final CompletionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+
+    public CacheStats stats() {
+        return statsCounter.snapshot();
+    }
+
+    @VisibleForTesting
+    ConcurrentHashMap<K, CompletableFuture<V>> inFlight() {
+        return inFlight;
+    }
+
+    @VisibleForTesting
+    ConcurrentHashMap<K, Long> writeTimes() {
+        return writeTimes;
+    }
+}
@@ -0,0 +1,151 @@
+package com.github.alanzplus.codebox.cache;
+
+import com.github.alanzplus.codebox.misc.SizeEstimator;
+
+/**
+ * An LRU cache keyed by primitive {@code long}s which allocates nothing after construction.
+ *
+ * <p>Keys, values and LRU links live in parallel arrays indexed by entry slot, and lookups go through an open addressing table of
+ * slots. With 8 byte references every entry costs 8 (key) + 8 (value reference) + 8 (prev/next links) + 8 to 16 (2 to 4 index
+ * slots) = 32 to 40 bytes, see {@link #mem()}, against roughly 100 bytes for a {@code SimpleLRU<Long, V>} entry with its boxed key,
+ * node and {@code HashMap} node.
+ *
+ * <p>The {@link Cache} methods box at the boundary; use {@link #put(long, Object)} and {@link #get(long)} to stay allocation-free.
+ */
+public class LongLRU<V> extends PrimitiveLRU<V> implements Cache<Long, V> {
+    private final long[] keys;
+    private final RemovalListener<Long, V> removalListener;
+
+    public LongLRU(final int capacity) {
+        this(capacity, null);
+    }
+
+    /** @param removalListener may be null; notifying a listener boxes the removed key */
+    public LongLRU(final int capacity, final RemovalListener<Long, V> removalListener) {
+        super(capacity);
+        keys = new long[capacity];
+        this.removalListener = removalListener;
+    }
+
+    public void put(final long key, final V value) {
+        final int found = find(key);
+        if (NIL != found) {
+            final V old = valueAt(found);
+            values[found] = value;
+            moveToHead(found);
+            if (null != removalListener) {
+                removalListener.onRemoval(key, old, RemovalCause.REPLACED);
+            }
+            return;
+        }
+        final int entry = allocate();
+        keys[entry] = key;
+        values[entry] = value;
+        index.insert(entry, hash(key));
+        linkFirst(entry);
+    }
+
+    public V get(final long key) {
+        final int found = find(key);
+        if (NIL == found) {
+            return null;
+        }
+        moveToHead(found);
+        return valueAt(found);
+    }
+
+    public V remove(final long key) {
+        final int found = find(key);
+        if (NIL == found) {
+            return null;
+        }
+        final V value = valueAt(found);
+        release(found);
+        if (null != removalListener) {
+            removalListener.onRemoval(key, value, RemovalCause.EXPLICIT);
+        }
+        return value;
+    }
+
+    @Override
+    public void put(final Long key, final V value) {
+        put(key.longValue(), value);
+    }
+
+    @Override
+    public V get(final Long key) {
+        return get(key.longValue());
+    }
+
+    @Override
+    public V remove(final Long key) {
+        return remove(key.longValue());
+    }
+
+    @Override
+    public Entry<Long, V> victim() {
+        return NIL == tail ? null : new LongLRUEntry<>(keys[tail], valueAt(tail));
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public int capacity() {
+        return capacity;
+    }
+
+    /** Shallow memory footprint in bytes, excluding the value objects. */
+    public long mem() {
+        return SizeEstimator.longArrShallow(keys.length) + sharedMem();
+    }
+
+    @Override
+    int hashAt(final int entry) {
+        return hash(keys[entry]);
+    }
+
+    @Override
+    void onEvict(final int entry) {
+        if (null != removalListener) {
+            removalListener.onRemoval(keys[entry], valueAt(entry), RemovalCause.SIZE);
+        }
+        values[entry] = null;
+    }
+
+    private int find(final long key) {
+        for (int slot = index.home(hash(key)), entry; SlotIndex.EMPTY != (entry = index.entryAt(slot)); slot = index.next(slot)) {
+            if (keys[entry] == key) {
+                return entry;
+            }
+        }
+        return NIL;
+    }
+
+    /** Upper half of a Fibonacci multiplication, so sequential ids spread over the whole table. */
+    private static int hash(final long key) {
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> 32);
+    }
+
+    static class LongLRUEntry<V> implements Entry<Long, V> {
+        private final long key;
+        private final V value;
+
+        LongLRUEntry(final long key, final V value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        @Override
+        public Long key() {
+            return key;
+        }
+
+        @Override
+        public V value() {
+            return value;
+        }
+    }
+}
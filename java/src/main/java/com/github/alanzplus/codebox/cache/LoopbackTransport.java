@@ -0,0 +1,84 @@
+package com.github.alanzplus.codebox.cache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A {@link Transport} to caches living in this process, for tests and simulations. Each call runs under the monitor of the node's
+ * cache, so non thread-safe caches like {@link SimpleLRU} can be used; listing the keys of a node requires its cache to support
+ * {@link Cache#evictionOrder()}.
+ */
+public class LoopbackTransport<K, V> implements Transport<K, V> {
+    private final ConcurrentHashMap<String, Cache<K, V>> nodes = new ConcurrentHashMap<>();
+
+    public void register(final String node, final Cache<K, V> cache) {
+        if (null != nodes.putIfAbsent(node, cache)) {
+            throw new IllegalArgumentException("node " + node + " already registered");
+        }
+    }
+
+    public Cache<K, V> unregister(final String node) {
+        return nodes.remove(node);
+    }
+
+    @Override
+    public V get(final String node, final K key) {
+        final Cache<K, V> cache = cacheOf(node);
+        synchronized (cache) {
+            return cache.get(key);
+        }
+    }
+
+    @Override
+    public void put(final String node, final K key, final V value) {
+        final Cache<K, V> cache = cacheOf(node);
+        synchronized (cache) {
+            cache.put(key, value);
+        }
+    }
+
+    @Override
+    public V remove(final String node, final K key) {
+        final Cache<K, V> cache = cacheOf(node);
+        synchronized (cache) {
+            return cache.remove(key);
+        }
+    }
+
+    @Override
+    public Collection<K> keys(final String node) {
+        final Cache<K, V> cache = cacheOf(node);
+        synchronized (cache) {
+            final List<K> keys = new ArrayList<>(cache.size());
+            final Iterator<Cache.Entry<K, V>> entries = cache.evictionOrder();
+            while (entries.hasNext()) {
+                keys.add(entries.next().key());
+            }
+            return keys;
+        }
+    }
+
+    @Override
+    public int size(final String node) {
+        final Cache<K, V> cache = cacheOf(node);
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    @Override
+    public int capacity(final String node) {
+        return cacheOf(node).capacity();
+    }
+
+    private Cache<K, V> cacheOf(final String node) {
+        final Cache<K, V> cache = nodes.get(node);
+        if (null == cache) {
+            throw new IllegalArgumentException("unknown node " + node);
+        }
+        return cache;
+    }
+}
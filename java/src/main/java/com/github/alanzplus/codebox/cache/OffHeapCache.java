@@ -0,0 +1,539 @@
+package com.github.alanzplus.codebox.cache;
+
+import com.github.alanzplus.codebox.misc.Serializer;
+import com.google.common.annotations.VisibleForTesting;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import lombok.NonNull;
+
+/**
+ * An LRU cache of {@code byte[]} values which keeps keys, values, the LRU list and the hash index in direct {@link ByteBuffer}s, so
+ * the garbage collector sees a few dozen large buffers instead of one object per entry.
+ *
+ * <p>Memory is handed out memcached style: the capacity is divided into fixed size slabs, a slab is dedicated to one size class
+ * when first needed, and entries are stored in the smallest chunk class which fits them. Every chunk starts with a 32 byte header
+ *
+ * <pre>
+ * | hash (4) | key length (4) | value length (4) | unused (4) | prev chunk (8) | next chunk (8) | key | value |
+ * </pre>
+ *
+ * <p>where prev/next link live chunks into one global LRU list, and free chunks into the free list of their size class. The index is
+ * an open addressing table of chunk addresses with linear probing. When no chunk of the required class is available, entries are
+ * evicted from the LRU tail until one is freed or a slab empties and can be handed to that class.
+ *
+ * <p>{@link #capacity()} is the number of bytes reserved for slabs and {@link #weightedSize()} the number of bytes held by live
+ * chunks. This class is not thread-safe.
+ */
+public class OffHeapCache<K> implements Cache<K, byte[]> {
+    static final int DEFAULT_SLAB_SIZE = 1 << 20;
+
+    private static final int MIN_CHUNK_SIZE = 64;
+    private static final double GROWTH_FACTOR = 1.25;
+    private static final int HEADER_SIZE = 32;
+    private static final int HASH_OFFSET = 0;
+    private static final int KEY_LENGTH_OFFSET = 4;
+    private static final int VALUE_LENGTH_OFFSET = 8;
+    private static final int PREV_OFFSET = 16;
+    private static final int NEXT_OFFSET = 24;
+    private static final long NIL = -1L;
+    private static final int UNASSIGNED = -1;
+    private static final int NOT_FOUND = -1;
+    private static final int INITIAL_TABLE_SLOTS = 1 << 10;
+
+    private final int capacity;
+    private final int slabSize;
+    private final Serializer<K> keySerializer;
+    private final RemovalListener<K, byte[]> removalListener;
+    private final int[] chunkSizes;
+
+    /* Slab metadata, indexed by slab number */
+    private final ByteBuffer[] slabs;
+    private final int[] slabClass;
+    private final int[] slabCursor;
+    private final int[] slabLive;
+    private final int[] freeSlabs;
+    private int freeSlabCount;
+    private int allocatedSlabs;
+
+    /* Size class metadata, indexed by class number */
+    private final long[] freeChunks;
+    private final int[] currentSlab;
+
+    private ByteBuffer table;
+    private int tableMask;
+    private long head = NIL;
+    private long tail = NIL;
+    private int size;
+    private long usedBytes;
+
+    public OffHeapCache(final int capacityInBytes, final Serializer<K> keySerializer) {
+        this(capacityInBytes, DEFAULT_SLAB_SIZE, keySerializer, null);
+    }
+
+    /** @param removalListener may be null, which avoids copying removed entries back onto the heap */
+    public OffHeapCache(
+            final int capacityInBytes,
+            final int slabSize,
+            @NonNull final Serializer<K> keySerializer,
+            final RemovalListener<K, byte[]> removalListener) {
+        if (slabSize < MIN_CHUNK_SIZE) {
+            throw new IllegalArgumentException("slabSize " + slabSize + " < " + MIN_CHUNK_SIZE);
+        }
+        if (capacityInBytes < slabSize) {
+            throw new IllegalArgumentException("capacity " + capacityInBytes + " < slabSize " + slabSize);
+        }
+        this.slabSize = slabSize;
+        this.keySerializer = keySerializer;
+        this.removalListener = removalListener;
+        final int numSlabs = capacityInBytes / slabSize;
+        capacity = numSlabs * slabSize;
+        slabs = new ByteBuffer[numSlabs];
+        slabClass = new int[numSlabs];
+        slabCursor = new int[numSlabs];
+        slabLive = new int[numSlabs];
+        freeSlabs = new int[numSlabs];
+        chunkSizes = chunkSizes(slabSize);
+        freeChunks = new long[chunkSizes.length];
+        Arrays.fill(freeChunks, NIL);
+        currentSlab = new int[chunkSizes.length];
+        Arrays.fill(currentSlab, UNASSIGNED);
+        allocateTable(INITIAL_TABLE_SLOTS);
+    }
+
+    @Override
+    public void put(@NonNull final K key, @NonNull final byte[] value) {
+        final byte[] keyBytes = keySerializer.serialize(key);
+        final int needed = HEADER_SIZE + keyBytes.length + value.length;
+        if (needed > slabSize) {
+            throw new IllegalArgumentException("entry of " + needed + " bytes does not fit into a slab of " + slabSize + " bytes");
+        }
+        final int hash = hash(keyBytes);
+        final int slot = find(keyBytes, hash);
+        byte[] replaced = null;
+        if (NOT_FOUND != slot) {
+            replaced = null == removalListener ? null : value(entryAt(slot));
+            remove(entryAt(slot));
+        }
+
+        final int sizeClass = sizeClassOf(needed);
+        final long chunk = allocate(sizeClass);
+        final ByteBuffer slab = slabOf(chunk);
+        final int offset = offsetOf(chunk);
+        slab.putInt(offset + HASH_OFFSET, hash);
+        slab.putInt(offset + KEY_LENGTH_OFFSET, keyBytes.length);
+        slab.putInt(offset + VALUE_LENGTH_OFFSET, value.length);
+        final ByteBuffer dst = slab.duplicate();
+        dst.position(offset + HEADER_SIZE);
+        dst.put(keyBytes);
+        dst.put(value);
+
+        insertIntoTable(chunk, hash);
+        linkFirst(chunk);
+        ++size;
+        usedBytes += chunkSizes[sizeClass];
+        if (null != replaced) {
+            removalListener.onRemoval(key, replaced, RemovalCause.REPLACED);
+        }
+    }
+
+    @Override
+    public byte[] get(@NonNull final K key) {
+        final byte[] keyBytes = keySerializer.serialize(key);
+        final int slot = find(keyBytes, hash(keyBytes));
+        if (NOT_FOUND == slot) {
+            return null;
+        }
+        final long chunk = entryAt(slot);
+        if (chunk != head) {
+            unlink(chunk);
+            linkFirst(chunk);
+        }
+        return value(chunk);
+    }
+
+    @Override
+    public byte[] remove(@NonNull final K key) {
+        final byte[] keyBytes = keySerializer.serialize(key);
+        final int slot = find(keyBytes, hash(keyBytes));
+        if (NOT_FOUND == slot) {
+            return null;
+        }
+        final long chunk = entryAt(slot);
+        final byte[] value = value(chunk);
+        remove(chunk);
+        if (null != removalListener) {
+            removalListener.onRemoval(key, value, RemovalCause.EXPLICIT);
+        }
+        return value;
+    }
+
+    @Override
+    public Entry<K, byte[]> victim() {
+        return NIL == tail ? null : new OffHeapEntry<>(key(tail), value(tail));
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /** Bytes available for slabs, which is the requested capacity rounded down to a multiple of the slab size. */
+    @Override
+    public int capacity() {
+        return capacity;
+    }
+
+    /** Bytes held by live chunks, including headers and the unused tail of each chunk. */
+    @Override
+    public long weightedSize() {
+        return usedBytes;
+    }
+
+    /** Bytes of direct memory allocated so far for slabs and the hash index. */
+    public long reservedBytes() {
+        return (long) allocatedSlabs * slabSize + table.capacity();
+    }
+
+    /* ---------------- Chunk allocation ---------------- */
+
+    private long allocate(final int sizeClass) {
+        while (true) {
+            final long free = freeChunks[sizeClass];
+            if (NIL != free) {
+                unlinkFree(sizeClass, free);
+                ++slabLive[slabIndexOf(free)];
+                return free;
+            }
+            final int current = currentSlab[sizeClass];
+            if (UNASSIGNED != current && slabCursor[current] + chunkSizes[sizeClass] <= slabSize) {
+                final int offset = slabCursor[current];
+                slabCursor[current] += chunkSizes[sizeClass];
+                ++slabLive[current];
+                return address(current, offset);
+            }
+            if (!assignSlab(sizeClass)) {
+                evict();
+            }
+        }
+    }
+
+    private boolean assignSlab(final int sizeClass) {
+        final int slab;
+        if (freeSlabCount > 0) {
+            slab = freeSlabs[--freeSlabCount];
+        } else if (allocatedSlabs < slabs.length) {
+            slab = allocatedSlabs++;
+            slabs[slab] = ByteBuffer.allocateDirect(slabSize);
+        } else {
+            return false;
+        }
+        slabClass[slab] = sizeClass;
+        slabCursor[slab] = 0;
+        slabLive[slab] = 0;
+        currentSlab[sizeClass] = slab;
+        return true;
+    }
+
+    private void free(final long chunk) {
+        final int slab = slabIndexOf(chunk);
+        final int sizeClass = slabClass[slab];
+        pushFree(sizeClass, chunk);
+        if (0 == --slabLive[slab]) {
+            releaseSlab(slab, sizeClass);
+        }
+    }
+
+    /** An empty slab goes back to the pool so that any size class can claim it. */
+    private void releaseSlab(final int slab, final int sizeClass) {
+        for (int offset = 0; offset < slabCursor[slab]; offset += chunkSizes[sizeClass]) {
+            unlinkFree(sizeClass, address(slab, offset));
+        }
+        if (currentSlab[sizeClass] == slab) {
+            currentSlab[sizeClass] = UNASSIGNED;
+        }
+        slabClass[slab] = UNASSIGNED;
+        freeSlabs[freeSlabCount++] = slab;
+    }
+
+    private void pushFree(final int sizeClass, final long chunk) {
+        final long first = freeChunks[sizeClass];
+        setPrev(chunk, NIL);
+        setNext(chunk, first);
+        if (NIL != first) {
+            setPrev(first, chunk);
+        }
+        freeChunks[sizeClass] = chunk;
+    }
+
+    private void unlinkFree(final int sizeClass, final long chunk) {
+        final long prev = prev(chunk);
+        final long next = next(chunk);
+        if (NIL == prev) {
+            freeChunks[sizeClass] = next;
+        } else {
+            setNext(prev, next);
+        }
+        if (NIL != next) {
+            setPrev(next, prev);
+        }
+    }
+
+    private int sizeClassOf(final int needed) {
+        final int i = Arrays.binarySearch(chunkSizes, needed);
+        return i >= 0 ? i : -i - 1;
+    }
+
+    private static int[] chunkSizes(final int slabSize) {
+        int[] sizes = new int[8];
+        int count = 0;
+        for (int size = MIN_CHUNK_SIZE; size < slabSize; size = (int) Math.ceil(size * GROWTH_FACTOR / 8) * 8) {
+            if (count == sizes.length) {
+                sizes = Arrays.copyOf(sizes, count * 2);
+            }
+            sizes[count++] = size;
+        }
+        sizes = Arrays.copyOf(sizes, count + 1);
+        sizes[count] = slabSize;
+        return sizes;
+    }
+
+    /* ---------------- LRU list ---------------- */
+
+    private void evict() {
+        if (NIL == tail) {
+            throw new IllegalStateException("cache is empty but no chunk could be allocated");
+        }
+        final long victim = tail;
+        if (null == removalListener) {
+            remove(victim);
+            return;
+        }
+        final K key = key(victim);
+        final byte[] value = value(victim);
+        remove(victim);
+        removalListener.onRemoval(key, value, RemovalCause.SIZE);
+    }
+
+    private void remove(final long chunk) {
+        removeFromTable(chunk);
+        unlink(chunk);
+        --size;
+        usedBytes -= chunkSizes[slabClass[slabIndexOf(chunk)]];
+        free(chunk);
+    }
+
+    private void linkFirst(final long chunk) {
+        setPrev(chunk, NIL);
+        setNext(chunk, head);
+        if (NIL == head) {
+            tail = chunk;
+        } else {
+            setPrev(head, chunk);
+        }
+        head = chunk;
+    }
+
+    private void unlink(final long chunk) {
+        final long prev = prev(chunk);
+        final long next = next(chunk);
+        if (NIL == prev) {
+            head = next;
+        } else {
+            setNext(prev, next);
+        }
+        if (NIL == next) {
+            tail = prev;
+        } else {
+            setPrev(next, prev);
+        }
+    }
+
+    /* ---------------- Hash index ---------------- */
+
+    private void allocateTable(final int slots) {
+        table = ByteBuffer.allocateDirect(slots * Long.BYTES);
+        tableMask = slots - 1;
+        for (int i = 0; i < slots; ++i) {
+            table.putLong(i * Long.BYTES, NIL);
+        }
+    }
+
+    private long entryAt(final int slot) {
+        return table.getLong(slot * Long.BYTES);
+    }
+
+    private void setEntryAt(final int slot, final long chunk) {
+        table.putLong(slot * Long.BYTES, chunk);
+    }
+
+    private int find(final byte[] keyBytes, final int hash) {
+        for (int slot = hash & tableMask; ; slot = (slot + 1) & tableMask) {
+            final long chunk = entryAt(slot);
+            if (NIL == chunk) {
+                return NOT_FOUND;
+            }
+            if (hashOf(chunk) == hash && keyEquals(chunk, keyBytes)) {
+                return slot;
+            }
+        }
+    }
+
+    private void insertIntoTable(final long chunk, final int hash) {
+        if ((size + 1) * 2 > tableMask + 1) {
+            resizeTable();
+        }
+        int slot = hash & tableMask;
+        while (NIL != entryAt(slot)) {
+            slot = (slot + 1) & tableMask;
+        }
+        setEntryAt(slot, chunk);
+    }
+
+    private void resizeTable() {
+        final ByteBuffer old = table;
+        final int oldSlots = tableMask + 1;
+        allocateTable(oldSlots * 2);
+        for (int i = 0; i < oldSlots; ++i) {
+            final long chunk = old.getLong(i * Long.BYTES);
+            if (NIL != chunk) {
+                int slot = hashOf(chunk) & tableMask;
+                while (NIL != entryAt(slot)) {
+                    slot = (slot + 1) & tableMask;
+                }
+                setEntryAt(slot, chunk);
+            }
+        }
+    }
+
+    /** Backward shift deletion, which keeps every probe sequence free of holes without tombstones. */
+    private void removeFromTable(final long chunk) {
+        int hole = hashOf(chunk) & tableMask;
+        while (entryAt(hole) != chunk) {
+            hole = (hole + 1) & tableMask;
+        }
+        for (int slot = (hole + 1) & tableMask; ; slot = (slot + 1) & tableMask) {
+            final long moved = entryAt(slot);
+            if (NIL == moved) {
+                break;
+            }
+            final int ideal = hashOf(moved) & tableMask;
+            // Move the entry into the hole unless its ideal slot lies cyclically in (hole, slot]
+            final boolean reachable = hole <= slot ? (hole < ideal && ideal <= slot) : (hole < ideal || ideal <= slot);
+            if (!reachable) {
+                setEntryAt(hole, moved);
+                hole = slot;
+            }
+        }
+        setEntryAt(hole, NIL);
+    }
+
+    /* ---------------- Chunk access ---------------- */
+
+    private static long address(final int slab, final int offset) {
+        return ((long) slab << 32) | offset;
+    }
+
+    private static int slabIndexOf(final long chunk) {
+        return (int) (chunk >>> 32);
+    }
+
+    private static int offsetOf(final long chunk) {
+        return (int) chunk;
+    }
+
+    private ByteBuffer slabOf(final long chunk) {
+        return slabs[slabIndexOf(chunk)];
+    }
+
+    private int hashOf(final long chunk) {
+        return slabOf(chunk).getInt(offsetOf(chunk) + HASH_OFFSET);
+    }
+
+    private long prev(final long chunk) {
+        return slabOf(chunk).getLong(offsetOf(chunk) + PREV_OFFSET);
+    }
+
+    private long next(final long chunk) {
+        return slabOf(chunk).getLong(offsetOf(chunk) + NEXT_OFFSET);
+    }
+
+    private void setPrev(final long chunk, final long prev) {
+        slabOf(chunk).putLong(offsetOf(chunk) + PREV_OFFSET, prev);
+    }
+
+    private void setNext(final long chunk, final long next) {
+        slabOf(chunk).putLong(offsetOf(chunk) + NEXT_OFFSET, next);
+    }
+
+    private boolean keyEquals(final long chunk, final byte[] keyBytes) {
+        final ByteBuffer slab = slabOf(chunk);
+        final int offset = offsetOf(chunk);
+        if (slab.getInt(offset + KEY_LENGTH_OFFSET) != keyBytes.length) {
+            return false;
+        }
+        for (int i = 0; i < keyBytes.length; ++i) {
+            if (slab.get(offset + HEADER_SIZE + i) != keyBytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private K key(final long chunk) {
+        final ByteBuffer slab = slabOf(chunk).duplicate();
+        final int offset = offsetOf(chunk) + HEADER_SIZE;
+        slab.limit(offset + slab.getInt(offsetOf(chunk) + KEY_LENGTH_OFFSET)).position(offset);
+        return keySerializer.deserialize(slab.slice());
+    }
+
+    private byte[] value(final long chunk) {
+        final ByteBuffer slab = slabOf(chunk).duplicate();
+        final int offset = offsetOf(chunk);
+        final byte[] value = new byte[slab.getInt(offset + VALUE_LENGTH_OFFSET)];
+        slab.position(offset + HEADER_SIZE + slab.getInt(offset + KEY_LENGTH_OFFSET));
+        slab.get(value);
+        return value;
+    }
+
+    /** FNV-1a, finished with a murmur3 mix so that the low bits used by the index are well distributed. */
+    private static int hash(final byte[] bytes) {
+        int h = 0x811c9dc5;
+        for (final byte b : bytes) {
+            h = (h ^ b) * 0x01000193;
+        }
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        return h;
+    }
+
+    @VisibleForTesting
+    int[] chunkSizes() {
+        return chunkSizes;
+    }
+
+    @VisibleForTesting
+    int allocatedSlabs() {
+        return allocatedSlabs;
+    }
+
+    static class OffHeapEntry<K> implements Entry<K, byte[]> {
+        private final K key;
+        private final byte[] value;
+
+        OffHeapEntry(final K key, final byte[] value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        @Override
+        public K key() {
+            return key;
+        }
+
+        @Override
+        public byte[] value() {
+            return value;
+        }
+    }
+}
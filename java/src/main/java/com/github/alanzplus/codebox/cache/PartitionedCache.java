@@ -0,0 +1,139 @@
+package com.github.alanzplus.codebox.cache;
+
+import java.util.Collection;
+import java.util.Collections;
+import lombok.NonNull;
+
+/**
+ * A cache partitioned over several nodes: every key is stored only on the node a {@link ConsistentHashRing} assigns it to, reached
+ * through a {@link Transport}, so that the nodes together hold each hot key once instead of once per node.
+ *
+ * <p>When a node joins, the keys it now owns are moved to it from the other nodes; when a node leaves, its keys are moved to their
+ * new owners. Thanks to consistent hashing only about {@code 1/N} of the keys change owner. Routing reads the current ring without
+ * locking, so a lookup racing with a membership change may miss a key which is being moved, and a write racing with it may be
+ * overwritten by the moved entry; membership changes themselves are serialized.
+ *
+ * <p>Each node evicts on its own, so the partitioned cache as a whole has no single next victim.
+ */
+public class PartitionedCache<K, V> implements Cache<K, V> {
+    private final Transport<K, V> transport;
+    private volatile ConsistentHashRing ring;
+
+    public PartitionedCache(final Transport<K, V> transport, final Collection<String> nodes) {
+        this(transport, nodes, ConsistentHashRing.DEFAULT_VIRTUAL_NODES);
+    }
+
+    public PartitionedCache(final Transport<K, V> transport, final Collection<String> nodes, final int virtualNodes) {
+        this.transport = transport;
+        ConsistentHashRing initial = new ConsistentHashRing(virtualNodes);
+        for (final String node : nodes) {
+            initial = initial.with(node);
+        }
+        ring = initial;
+    }
+
+    @Override
+    public V get(@NonNull final K key) {
+        final String owner = ring.ownerOf(key);
+        return null == owner ? null : transport.get(owner, key);
+    }
+
+    @Override
+    public void put(@NonNull final K key, @NonNull final V value) {
+        transport.put(ownerOrThrow(key), key, value);
+    }
+
+    @Override
+    public V remove(@NonNull final K key) {
+        final String owner = ring.ownerOf(key);
+        return null == owner ? null : transport.remove(owner, key);
+    }
+
+    /** Always {@code null}: each node chooses its own victims, and none of them is the victim of the whole cache. */
+    @Override
+    public Entry<K, V> victim() {
+        return null;
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (final String node : ring.nodes()) {
+            size += transport.size(node);
+        }
+        return size;
+    }
+
+    @Override
+    public int capacity() {
+        int capacity = 0;
+        for (final String node : ring.nodes()) {
+            capacity += transport.capacity(node);
+        }
+        return capacity;
+    }
+
+    /**
+     * Adds the node, which must already be reachable through the transport, and moves to it the keys it now owns.
+     *
+     * @return the number of keys moved
+     */
+    public synchronized int addNode(@NonNull final String node) {
+        final ConsistentHashRing before = ring;
+        if (before.nodes().contains(node)) {
+            return 0;
+        }
+        final ConsistentHashRing after = before.with(node);
+        ring = after;
+        int moved = 0;
+        for (final String source : before.nodes()) {
+            moved += handOver(source, after);
+        }
+        return moved;
+    }
+
+    /**
+     * Moves the keys of the node to their new owners and removes it. The node must stay reachable through the transport until this
+     * returns.
+     *
+     * @return the number of keys moved
+     */
+    public synchronized int removeNode(@NonNull final String node) {
+        final ConsistentHashRing before = ring;
+        if (!before.nodes().contains(node)) {
+            return 0;
+        }
+        final ConsistentHashRing after = before.without(node);
+        ring = after;
+        return after.isEmpty() ? 0 : handOver(node, after);
+    }
+
+    public Collection<String> nodes() {
+        return Collections.unmodifiableSet(ring.nodes());
+    }
+
+    /** Moves every key of the source node which the ring assigns to another node. */
+    private int handOver(final String source, final ConsistentHashRing ring) {
+        int moved = 0;
+        for (final K key : transport.keys(source)) {
+            final String owner = ring.ownerOf(key);
+            if (source.equals(owner)) {
+                continue;
+            }
+            final V value = transport.remove(source, key);
+            if (null != value) {
+                transport.put(owner, key, value);
+                ++moved;
+            }
+        }
+        return moved;
+    }
+
+    private String ownerOrThrow(final K key) {
+        final String owner = ring.ownerOf(key);
+        if (null == owner) {
+            throw new IllegalStateException("no node to store " + key + " on");
+        }
+        return owner;
+    }
+}
@@ -0,0 +1,129 @@
+package com.github.alanzplus.codebox.cache;
+
+import com.github.alanzplus.codebox.misc.SizeEstimator;
+import com.google.common.annotations.VisibleForTesting;
+
+/**
+ * Shared machinery of {@link LongLRU} and {@link IntLRU}: an LRU list and an open addressing index over entry slots held in
+ * parallel arrays.
+ *
+ * <p>An entry is an index into {@code values}, {@code prev} and {@code next} (and the key array of the subclass), found through a
+ * {@link SlotIndex}. Once the cache is full, a new key takes over the slot of the entry it evicts, and slots of removed entries are
+ * chained through {@code next} into a free list, so nothing is allocated after construction.
+ */
+abstract class PrimitiveLRU<V> {
+    static final int NIL = -1;
+
+    final int capacity;
+    final Object[] values;
+    final int[] prev;
+    final int[] next;
+    final SlotIndex index;
+    int head = NIL;
+    int tail = NIL;
+    int free = NIL;
+    int used;
+    int size;
+
+    PrimitiveLRU(final int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity " + capacity + " <= 0");
+        }
+        if (capacity > 1 << 29) {
+            throw new IllegalArgumentException("capacity " + capacity + " > " + (1 << 29));
+        }
+        this.capacity = capacity;
+        values = new Object[capacity];
+        prev = new int[capacity];
+        next = new int[capacity];
+        index = new SlotIndex(capacity, this::hashAt);
+    }
+
+    /** Hash of the key stored in the given entry, as used to place it in the index. */
+    abstract int hashAt(int entry);
+
+    /** Called after {@code entry} is evicted to make room, before its slot is reused. */
+    abstract void onEvict(int entry);
+
+    /** @return a slot for a new entry, evicting the least recently used entry if the cache is full */
+    int allocate() {
+        if (NIL != free) {
+            final int entry = free;
+            free = next[entry];
+            ++size;
+            return entry;
+        }
+        if (used < capacity) {
+            ++size;
+            return used++;
+        }
+        final int victim = tail;
+        unlink(victim);
+        index.remove(victim);
+        onEvict(victim);
+        return victim;
+    }
+
+    /** Unlinks a removed entry and puts its slot on the free list. */
+    void release(final int entry) {
+        unlink(entry);
+        index.remove(entry);
+        values[entry] = null;
+        next[entry] = free;
+        free = entry;
+        --size;
+    }
+
+    @SuppressWarnings("unchecked")
+    V valueAt(final int entry) {
+        return (V) values[entry];
+    }
+
+    /* ---------------- LRU list ---------------- */
+
+    void linkFirst(final int entry) {
+        prev[entry] = NIL;
+        next[entry] = head;
+        if (NIL == head) {
+            tail = entry;
+        } else {
+            prev[head] = entry;
+        }
+        head = entry;
+    }
+
+    void unlink(final int entry) {
+        final int p = prev[entry];
+        final int n = next[entry];
+        if (NIL == p) {
+            head = n;
+        } else {
+            next[p] = n;
+        }
+        if (NIL == n) {
+            tail = p;
+        } else {
+            prev[n] = p;
+        }
+    }
+
+    void moveToHead(final int entry) {
+        if (entry != head) {
+            unlink(entry);
+            linkFirst(entry);
+        }
+    }
+
+    /** Shallow footprint of the arrays shared by every primitive LRU, excluding keys and the values themselves. */
+    long sharedMem() {
+        return SizeEstimator.refArrShallow(values.length)
+                + SizeEstimator.intArrShallow(prev.length)
+                + SizeEstimator.intArrShallow(next.length)
+                + index.mem();
+    }
+
+    @VisibleForTesting
+    int tableLength() {
+        return index.length();
+    }
+}
@@ -0,0 +1,13 @@
+package com.github.alanzplus.codebox.cache;
+
+/** Why an entry left a {@link Cache}. */
+public enum RemovalCause {
+    /** The entry was removed by a call to {@link Cache#remove(Object)}. */
+    EXPLICIT,
+    /** The value was overwritten by a later {@code put} of the same key. */
+    REPLACED,
+    /** The entry outlived its expiration time. */
+    EXPIRED,
+    /** The entry was evicted to make room because the cache reached its capacity. */
+    SIZE
+}
@@ -0,0 +1,11 @@
+package com.github.alanzplus.codebox.cache;
+
+/** Callback invoked synchronously by the cache, on the thread which caused the removal. */
+@FunctionalInterface
+public interface RemovalListener<K, V> {
+    void onRemoval(K key, V value, RemovalCause cause);
+
+    static <K, V> RemovalListener<K, V> noop() {
+        return (key, value, cause) -> {};
+    }
+}
@@ -0,0 +1,38 @@
+package com.github.alanzplus.codebox.cache;
+
+/** An entry which left a cache, together with the reason, as delivered by {@link AsyncRemovalListener}. */
+public final class RemovalNotification<K, V> implements Cache.Entry<K, V> {
+    private final K key;
+    private final V value;
+    private final RemovalCause cause;
+
+    public RemovalNotification(final K key, final V value, final RemovalCause cause) {
+        this.key = key;
+        this.value = value;
+        this.cause = cause;
+    }
+
+    @Override
+    public K key() {
+        return key;
+    }
+
+    @Override
+    public V value() {
+        return value;
+    }
+
+    public RemovalCause cause() {
+        return cause;
+    }
+
+    /** Whether the cache dropped the entry on its own, as opposed to it being replaced or removed by the user. */
+    public boolean wasEvicted() {
+        return RemovalCause.SIZE == cause || RemovalCause.EXPIRED == cause;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s:%s:%s", key, value, cause);
+    }
+}
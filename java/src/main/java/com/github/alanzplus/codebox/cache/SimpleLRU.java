@@ -2,9 +2,14 @@ package com.github.alanzplus.codebox.cache;
 
 import com.google.common.annotations.VisibleForTesting;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 
 public class SimpleLRU<K, V> implements Cache<K, V> {
-    private final int cap;
+    private final long maximumWeight;
+    private final Weigher<K, V> weigher;
+    private final RemovalListener<K, V> removalListener;
+    private long weightedSize;
     private final HashMap<K, CacheEntry<K, V>> cache = new HashMap<>();
     private final CacheEntry<K, V> head = new CacheEntry<>(null, null);
     private final CacheEntry<K, V> tail = new CacheEntry<>(null, null);
@@ -15,22 +20,59 @@ public class SimpleLRU<K, V> implements Cache<K, V> {
     }
 
     public SimpleLRU(final int cap) {
-        this.cap = cap;
+        this(cap, RemovalListener.noop());
     }
 
+    public SimpleLRU(final int cap, final RemovalListener<K, V> removalListener) {
+        this(cap, Weigher.singleton(), removalListener);
+    }
+
+    /** Bounds the cache by the total weight of its entries, evicting as many victims as needed to fit a new entry. */
+    public SimpleLRU(final long maximumWeight, final Weigher<K, V> weigher) {
+        this(maximumWeight, weigher, RemovalListener.noop());
+    }
+
+    public SimpleLRU(final long maximumWeight, final Weigher<K, V> weigher, final RemovalListener<K, V> removalListener) {
+        this.maximumWeight = maximumWeight;
+        this.weigher = weigher;
+        this.removalListener = removalListener;
+    }
+
+    /**
+     * An entry heavier than the maximum weight is never stored: it replaces an existing mapping of the key, and is then reported as
+     * evicted right away.
+     */
     @Override
     public void put(final K key, final V value) {
-        CacheEntry<K, V> entry = cache.get(key);
-        if (null == entry) {
-            if (size() == capacity()) {
-                evict();
-            }
-        } else {
-            unlink(entry);
+        final int weight = weigher.weigh(key, value);
+        if (weight < 0) {
+            throw new IllegalArgumentException("negative weight " + weight + " for key " + key);
+        }
+        final CacheEntry<K, V> old = cache.get(key);
+        if (null != old) {
+            unlink(old);
+            cache.remove(key);
+            weightedSize -= old.weight;
         }
-        entry = new CacheEntry<>(key, value);
+        if (weight > maximumWeight) {
+            notifyReplaced(old);
+            removalListener.onRemoval(key, value, RemovalCause.SIZE);
+            return;
+        }
+        while (weightedSize + weight > maximumWeight) {
+            evict();
+        }
+        final CacheEntry<K, V> entry = new CacheEntry<>(key, value, weight);
         cache.put(key, entry);
+        weightedSize += weight;
         setToHead(entry);
+        notifyReplaced(old);
+    }
+
+    private void notifyReplaced(final CacheEntry<K, V> old) {
+        if (null != old) {
+            removalListener.onRemoval(old.key, old.value, RemovalCause.REPLACED);
+        }
     }
 
     @VisibleForTesting
@@ -52,6 +94,8 @@ public class SimpleLRU<K, V> implements Cache<K, V> {
         link(v.prev, v.next);
         v.reset();
         cache.remove(v.key());
+        weightedSize -= v.weight;
+        removalListener.onRemoval(v.key, v.value, RemovalCause.SIZE);
     }
 
     private void setToHead(final CacheEntry<K, V> entry) {
@@ -69,6 +113,18 @@ public class SimpleLRU<K, V> implements Cache<K, V> {
         return entry.value();
     }
 
+    @Override
+    public V remove(final K key) {
+        final CacheEntry<K, V> entry = cache.remove(key);
+        if (null == entry) {
+            return null;
+        }
+        unlink(entry);
+        weightedSize -= entry.weight;
+        removalListener.onRemoval(entry.key, entry.value, RemovalCause.EXPLICIT);
+        return entry.value;
+    }
+
     private void moveToHead(final CacheEntry<K, V> entry) {
         link(entry.prev, entry.next);
         link(entry, head.next);
@@ -93,6 +149,29 @@ public class SimpleLRU<K, V> implements Cache<K, V> {
         return head == prev ? null : prev;
     }
 
+    /** From the least to the most recently used entry. */
+    @Override
+    public Iterator<Entry<K, V>> evictionOrder() {
+        return new Iterator<Entry<K, V>>() {
+            private CacheEntry<K, V> current = tail.prev;
+
+            @Override
+            public boolean hasNext() {
+                return head != current;
+            }
+
+            @Override
+            public Entry<K, V> next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                final CacheEntry<K, V> entry = current;
+                current = current.prev;
+                return entry;
+            }
+        };
+    }
+
     @Override
     public int size() {
         return cache.size();
@@ -100,7 +179,12 @@ public class SimpleLRU<K, V> implements Cache<K, V> {
 
     @Override
     public int capacity() {
-        return cap;
+        return (int) Math.min(maximumWeight, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public long weightedSize() {
+        return weightedSize;
     }
 
     static class CacheEntry<K, V> implements Entry<K, V> {
@@ -109,10 +193,16 @@ public class SimpleLRU<K, V> implements Cache<K, V> {
 
         K key;
         V value;
+        int weight;
 
         CacheEntry(final K key, final V value) {
+            this(key, value, 0);
+        }
+
+        CacheEntry(final K key, final V value, final int weight) {
             this.key = key;
             this.value = value;
+            this.weight = weight;
         }
 
         @Override
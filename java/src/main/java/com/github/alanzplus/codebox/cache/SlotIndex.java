@@ -0,0 +1,76 @@
+package com.github.alanzplus.codebox.cache;
+
+import com.github.alanzplus.codebox.misc.SizeEstimator;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * An open addressing index from hashes to entry slots, for the caches which keep their entries in parallel arrays, see {@link
+ * PrimitiveLRU} and {@link ClockCache}.
+ *
+ * <p>The table stores {@code entry + 1} so that {@code 0} marks an empty slot; it has between 2 and 4 slots per entry, which keeps
+ * linear probe sequences short. Lookups compare keys the index knows nothing about, so they are left to the callers: they probe from
+ * {@link #home} with {@link #next} until {@link #entryAt} returns {@link #EMPTY}, which compiles down to the same loop as a
+ * hand-written table.
+ */
+final class SlotIndex {
+    static final int EMPTY = -1;
+
+    private final int[] table;
+    private final int mask;
+    private final IntUnaryOperator hashOfEntry;
+
+    /** @param hashOfEntry the hash an entry was inserted with, needed to move entries when another one is removed */
+    SlotIndex(final int capacity, final IntUnaryOperator hashOfEntry) {
+        table = new int[Integer.highestOneBit(capacity * 2 - 1) << 1];
+        mask = table.length - 1;
+        this.hashOfEntry = hashOfEntry;
+    }
+
+    /** The first slot to probe for the hash. */
+    int home(final int hash) {
+        return hash & mask;
+    }
+
+    int next(final int slot) {
+        return (slot + 1) & mask;
+    }
+
+    /** The entry in the slot, or {@link #EMPTY}, which ends a probe sequence. */
+    int entryAt(final int slot) {
+        return table[slot] - 1;
+    }
+
+    int length() {
+        return table.length;
+    }
+
+    void insert(final int entry, final int hash) {
+        int slot = home(hash);
+        while (0 != table[slot]) {
+            slot = next(slot);
+        }
+        table[slot] = entry + 1;
+    }
+
+    /** Backward shift deletion, which keeps every probe sequence free of holes without tombstones. */
+    void remove(final int entry) {
+        int hole = home(hashOfEntry.applyAsInt(entry));
+        while (table[hole] != entry + 1) {
+            hole = next(hole);
+        }
+        for (int slot = next(hole); 0 != table[slot]; slot = next(slot)) {
+            final int ideal = home(hashOfEntry.applyAsInt(table[slot] - 1));
+            // Move the entry into the hole unless its ideal slot lies cyclically in (hole, slot]
+            final boolean reachable = hole <= slot ? (hole < ideal && ideal <= slot) : (hole < ideal || ideal <= slot);
+            if (!reachable) {
+                table[hole] = table[slot];
+                hole = slot;
+            }
+        }
+        table[hole] = 0;
+    }
+
+    long mem() {
+        return SizeEstimator.intArrShallow(table.length);
+    }
+}
@@ -0,0 +1,150 @@
+package com.github.alanzplus.codebox.cache;
+
+import com.google.common.annotations.VisibleForTesting;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Records hits, misses and evictions of a cache into a {@link StatsCounter}.
+ *
+ * <p>The age of evicted entries, i.e. the time since they were last written, is sampled: only the write times of about one key in
+ * {@value #AGE_SAMPLE_RATE} are kept, chosen by hash so that a sampled key stays sampled for its whole life.
+ *
+ * <p>With {@link StatsCounter#disabled()} nothing is sampled, the clock is never read and the removal listener is handed to the
+ * delegate as is, so each call costs one branch on top of the delegate.
+ *
+ * <p>This class is thread-safe if the delegate is.
+ */
+public class StatsCache<K, V> implements Cache<K, V> {
+    static final int AGE_SAMPLE_RATE = 64;
+    private static final int AGE_SAMPLE_SHIFT = Integer.SIZE - Integer.numberOfTrailingZeros(AGE_SAMPLE_RATE);
+
+    private final Cache<K, V> delegate;
+    private final StatsCounter statsCounter;
+    private final Ticker ticker;
+    private final boolean recordStats;
+    private final ConcurrentHashMap<K, Long> sampledWriteTimes = new ConcurrentHashMap<>();
+
+    public StatsCache(final Function<RemovalListener<K, V>, Cache<K, V>> delegateFactory) {
+        this(delegateFactory, StatsCounter.concurrent(), Ticker.systemTicker(), RemovalListener.noop());
+    }
+
+    /**
+     * @param delegateFactory creates the cache holding the entries, which must report every entry it drops to the listener it is
+     *     given
+     */
+    public StatsCache(
+            final Function<RemovalListener<K, V>, Cache<K, V>> delegateFactory,
+            final StatsCounter statsCounter,
+            final Ticker ticker,
+            final RemovalListener<K, V> removalListener) {
+        this.statsCounter = statsCounter;
+        this.ticker = ticker;
+        recordStats = StatsCounter.disabled() != statsCounter;
+        delegate = delegateFactory.apply(recordStats ? recordingListener(removalListener) : removalListener);
+    }
+
+    @Override
+    public void put(final K key, final V value) {
+        if (recordStats && isSampled(key)) {
+            sampledWriteTimes.put(key, ticker.read());
+        }
+        delegate.put(key, value);
+    }
+
+    @Override
+    public V get(final K key) {
+        final V value = delegate.get(key);
+        if (!recordStats) {
+            return value;
+        }
+        if (null == value) {
+            statsCounter.recordMisses(1);
+        } else {
+            statsCounter.recordHits(1);
+        }
+        return value;
+    }
+
+    @Override
+    public Map<K, V> getAll(final Collection<? extends K> keys) {
+        final Map<K, V> result = delegate.getAll(keys);
+        if (!recordStats) {
+            return result;
+        }
+        statsCounter.recordHits(result.size());
+        statsCounter.recordMisses(keys.size() - result.size());
+        return result;
+    }
+
+    @Override
+    public void putAll(final Map<? extends K, ? extends V> entries) {
+        if (!recordStats) {
+            delegate.putAll(entries);
+            return;
+        }
+        final long now = ticker.read();
+        for (final K key : entries.keySet()) {
+            if (isSampled(key)) {
+                sampledWriteTimes.put(key, now);
+            }
+        }
+        delegate.putAll(entries);
+    }
+
+    @Override
+    public V remove(final K key) {
+        return delegate.remove(key);
+    }
+
+    @Override
+    public Entry<K, V> victim() {
+        return delegate.victim();
+    }
+
+    @Override
+    public int size() {
+        return delegate.size();
+    }
+
+    @Override
+    public int capacity() {
+        return delegate.capacity();
+    }
+
+    @Override
+    public long weightedSize() {
+        return delegate.weightedSize();
+    }
+
+    public CacheStats stats() {
+        return statsCounter.snapshot();
+    }
+
+    private RemovalListener<K, V> recordingListener(final RemovalListener<K, V> removalListener) {
+        return (key, value, cause) -> {
+            if (RemovalCause.REPLACED != cause) {
+                final Long writeTime = isSampled(key) ? sampledWriteTimes.remove(key) : null;
+                if (RemovalCause.SIZE == cause || RemovalCause.EXPIRED == cause) {
+                    statsCounter.recordEviction();
+                    if (null != writeTime) {
+                        statsCounter.recordEvictionAge(ticker.read() - writeTime);
+                    }
+                }
+            }
+            removalListener.onRemoval(key, value, cause);
+        };
+    }
+
+    /** Fibonacci hashing, so that sequential integer keys are sampled evenly too. */
+    static boolean isSampled(final Object key) {
+        return 0 == (key.hashCode() * 0x9E3779B9) >>> AGE_SAMPLE_SHIFT;
+    }
+
+    @VisibleForTesting
+    ConcurrentHashMap<K, Long> sampledWriteTimes() {
+        return sampledWriteTimes;
+    }
+}
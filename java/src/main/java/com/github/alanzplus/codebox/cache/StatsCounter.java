@@ -0,0 +1,65 @@
+package com.github.alanzplus.codebox.cache;
+
+/**
+ * Receives the events of a cache, see {@link StatsCache} and {@link LoadingCache}.
+ *
+ * <p>Use {@link #disabled()} to turn statistics off: {@link StatsCache} recognizes it and skips its bookkeeping altogether.
+ */
+public interface StatsCounter {
+    void recordHits(int count);
+
+    void recordMisses(int count);
+
+    void recordLoadSuccess(long loadTimeNanos);
+
+    void recordLoadFailure(long loadTimeNanos);
+
+    void recordEviction();
+
+    /** Records how long an evicted entry lived. Callers may sample, so not every eviction needs an age. */
+    void recordEvictionAge(long ageNanos);
+
+    /**
+     * Records the current configuration of an adaptive policy such as {@link TinyLFU}: the size of its admission window and the
+     * next step of its hill climber, in entries. Later calls overwrite earlier ones. Does nothing by default.
+     */
+    default void recordWindow(final int windowSize, final double windowStep) {}
+
+    CacheStats snapshot();
+
+    static StatsCounter disabled() {
+        return DisabledStatsCounter.INSTANCE;
+    }
+
+    /** A thread-safe counter backed by {@link java.util.concurrent.atomic.LongAdder}s. */
+    static StatsCounter concurrent() {
+        return new ConcurrentStatsCounter();
+    }
+
+    enum DisabledStatsCounter implements StatsCounter {
+        INSTANCE;
+
+        @Override
+        public void recordHits(final int count) {}
+
+        @Override
+        public void recordMisses(final int count) {}
+
+        @Override
+        public void recordLoadSuccess(final long loadTimeNanos) {}
+
+        @Override
+        public void recordLoadFailure(final long loadTimeNanos) {}
+
+        @Override
+        public void recordEviction() {}
+
+        @Override
+        public void recordEvictionAge(final long ageNanos) {}
+
+        @Override
+        public CacheStats snapshot() {
+            return CacheStats.empty();
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package com.github.alanzplus.codebox.cache;
+
+import com.google.common.annotations.VisibleForTesting;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import lombok.NonNull;
+
+/**
+ * A thread-safe LRU cache which partitions the key space into independently locked {@link SimpleLRU} segments.
+ *
+ * <p>Recency is tracked per segment, so eviction is exact LRU inside a segment and approximate LRU across the whole cache. Threads
+ * working on keys owned by different segments never contend. Every operation on a segment takes the segment's lock though,
+ * {@code get} included since it updates the recency order, so accesses to the same hot keys are serialized; prefer a
+ * {@link BufferedCache} for read-heavy workloads with a skewed key distribution. {@link #size()} and {@link #victim()} read the
+ * sizes each segment publishes after every change, without taking any lock.
+ */
+public class StripedLRU<K, V> implements Cache<K, V> {
+    private static final int DEFAULT_CONCURRENCY_LEVEL = 64;
+    private static final int MAX_SEGMENTS = 1 << 16;
+
+    private final int capacity;
+    private final Segment<K, V>[] segments;
+    private final int segmentShift;
+
+    public StripedLRU(final int capacity) {
+        this(capacity, DEFAULT_CONCURRENCY_LEVEL);
+    }
+
+    public StripedLRU(final int capacity, final int concurrencyLevel) {
+        this(capacity, concurrencyLevel, RemovalListener.noop());
+    }
+
+    /** @param removalListener is called while the lock of the entry's segment is held, see {@link AsyncRemovalListener} */
+    @SuppressWarnings("unchecked")
+    public StripedLRU(final int capacity, final int concurrencyLevel, final RemovalListener<K, V> removalListener) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity " + capacity + " <= 0");
+        }
+        if (concurrencyLevel <= 0) {
+            throw new IllegalArgumentException("concurrencyLevel " + concurrencyLevel + " <= 0");
+        }
+        this.capacity = capacity;
+        // Power of two segments, but never more segments than entries so every segment can hold at least one entry
+        final int numSegments = Math.min(
+                Integer.highestOneBit(Math.min(capacity, MAX_SEGMENTS)), ceilingPowerOfTwo(Math.min(concurrencyLevel, MAX_SEGMENTS)));
+        segmentShift = 32 - Integer.numberOfTrailingZeros(numSegments);
+        segments = (Segment<K, V>[]) new Segment<?, ?>[numSegments];
+        for (int i = 0; i < numSegments; ++i) {
+            segments[i] = new Segment<>(capacity / numSegments + (i < capacity % numSegments ? 1 : 0), removalListener);
+        }
+    }
+
+    @Override
+    public void put(@NonNull final K key, final V value) {
+        final Segment<K, V> segment = segmentFor(key);
+        segment.lock();
+        try {
+            segment.lru.put(key, value);
+            segment.publishSize();
+        } finally {
+            segment.unlock();
+        }
+    }
+
+    @Override
+    public V get(@NonNull final K key) {
+        final Segment<K, V> segment = segmentFor(key);
+        segment.lock();
+        try {
+            return segment.lru.get(key);
+        } finally {
+            segment.unlock();
+        }
+    }
+
+    @Override
+    public V remove(@NonNull final K key) {
+        final Segment<K, V> segment = segmentFor(key);
+        segment.lock();
+        try {
+            final V value = segment.lru.remove(key);
+            segment.publishSize();
+            return value;
+        } finally {
+            segment.unlock();
+        }
+    }
+
+    /** Groups the keys by segment so that each segment is locked once, instead of once per key. */
+    @Override
+    public Map<K, V> getAll(@NonNull final Collection<? extends K> keys) {
+        final Map<K, V> result = new HashMap<>(Cache.mapCapacity(keys.size()));
+        final List<K>[] groups = groupBySegment(keys, key -> key);
+        for (int i = 0; i < groups.length; ++i) {
+            if (null == groups[i]) {
+                continue;
+            }
+            final Segment<K, V> segment = segments[i];
+            segment.lock();
+            try {
+                for (final K key : groups[i]) {
+                    final V value = segment.lru.get(key);
+                    if (null != value) {
+                        result.put(key, value);
+                    }
+                }
+            } finally {
+                segment.unlock();
+            }
+        }
+        return result;
+    }
+
+    /** Groups the entries by segment so that each segment is locked once, instead of once per entry. */
+    @Override
+    public void putAll(@NonNull final Map<? extends K, ? extends V> entries) {
+        final List<Map.Entry<? extends K, ? extends V>>[] groups = groupBySegment(entries.entrySet(), Map.Entry::getKey);
+        for (int i = 0; i < groups.length; ++i) {
+            if (null == groups[i]) {
+                continue;
+            }
+            final Segment<K, V> segment = segments[i];
+            segment.lock();
+            try {
+                for (final Map.Entry<? extends K, ? extends V> entry : groups[i]) {
+                    segment.lru.put(entry.getKey(), entry.getValue());
+                }
+                segment.publishSize();
+            } finally {
+                segment.unlock();
+            }
+        }
+    }
+
+    /** The least recently used entry of the fullest segment, which is the most likely entry to be evicted next. */
+    @Override
+    public Entry<K, V> victim() {
+        Segment<K, V> fullest = segments[0];
+        int maxSize = -1;
+        for (final Segment<K, V> segment : segments) {
+            final int size = segment.size();
+            if (size > maxSize) {
+                fullest = segment;
+                maxSize = size;
+            }
+        }
+        fullest.lock();
+        try {
+            return fullest.lru.victim();
+        } finally {
+            fullest.unlock();
+        }
+    }
+
+    /** Sum of the segment sizes. Not an atomic snapshot when other threads are modifying the cache. */
+    @Override
+    public int size() {
+        int size = 0;
+        for (final Segment<K, V> segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    @Override
+    public int capacity() {
+        return capacity;
+    }
+
+    @VisibleForTesting
+    Segment<K, V> segmentFor(final K key) {
+        return segments[segmentIndex(key)];
+    }
+
+    private int segmentIndex(final K key) {
+        return 1 == segments.length ? 0 : spread(key.hashCode()) >>> segmentShift;
+    }
+
+    /** Buckets the items by the segment of their key, keeping their order; segments without items get {@code null}. */
+    @SuppressWarnings("unchecked")
+    private <T> List<T>[] groupBySegment(final Collection<? extends T> items, final Function<T, ? extends K> keyOf) {
+        final List<T>[] groups = (List<T>[]) new List<?>[segments.length];
+        for (final T item : items) {
+            final int index = segmentIndex(keyOf.apply(item));
+            if (null == groups[index]) {
+                groups[index] = new ArrayList<>();
+            }
+            groups[index].add(item);
+        }
+        return groups;
+    }
+
+    @VisibleForTesting
+    Segment<K, V>[] segments() {
+        return segments;
+    }
+
+    /**
+     * MurmurHash3 finalizer. Segments are chosen from the high bits so they stay independent of the low bits used by the {@link
+     * java.util.HashMap} inside each segment.
+     */
+    private static int spread(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    private static int ceilingPowerOfTwo(final int n) {
+        return 1 == n ? 1 : Integer.highestOneBit(n - 1) << 1;
+    }
+
+    @VisibleForTesting
+    static class Segment<K, V> extends ReentrantLock {
+        private static final long serialVersionUID = 1L;
+
+        final SimpleLRU<K, V> lru;
+        /** Written under the lock after every change, so it can be read without it. */
+        private volatile int size;
+
+        Segment(final int capacity, final RemovalListener<K, V> removalListener) {
+            lru = new SimpleLRU<>(capacity, removalListener);
+        }
+
+        void publishSize() {
+            size = lru.size();
+        }
+
+        int size() {
+            return size;
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.github.alanzplus.codebox.cache;
+
+/** A source of nanosecond timestamps, replaceable in tests. */
+@FunctionalInterface
+public interface Ticker {
+    long read();
+
+    static Ticker systemTicker() {
+        return System::nanoTime;
+    }
+}
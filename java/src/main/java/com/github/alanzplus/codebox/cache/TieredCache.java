@@ -0,0 +1,132 @@
+package com.github.alanzplus.codebox.cache;
+
+import com.github.alanzplus.codebox.misc.Serializer;
+import com.google.common.annotations.VisibleForTesting;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.function.Function;
+
+/**
+ * A two-level cache: an on-heap L1 cache backed by a much larger {@link DiskStore} L2.
+ *
+ * <p>Instead of being dropped, entries evicted from L1 are serialized and appended to L2. A miss in L1 which hits L2 promotes the
+ * entry back to L1, possibly demoting another one, so every key lives in exactly one level. The caller is only told of entries leaving
+ * the cache as a whole: L1 evictions are not reported, L2 evictions are reported as {@link RemovalCause#SIZE}.
+ *
+ * <p>{@link #capacity()} and {@link #victim()} describe L1, while {@link #size()} counts both levels. This class is not thread-safe,
+ * and must be {@link #close() closed} to delete the files of L2.
+ */
+public class TieredCache<K, V> implements Cache<K, V>, Closeable {
+    private final Cache<K, V> l1;
+    private final DiskStore<K, V> l2;
+    private final RemovalListener<K, V> removalListener;
+    private long l2Hits;
+
+    public TieredCache(
+            final Function<RemovalListener<K, V>, Cache<K, V>> l1Factory,
+            final Path directory,
+            final int segmentBytes,
+            final int maxSegments,
+            final Serializer<K> keySerializer,
+            final Serializer<V> valueSerializer) {
+        this(l1Factory, directory, segmentBytes, maxSegments, keySerializer, valueSerializer, RemovalListener.noop());
+    }
+
+    /**
+     * @param l1Factory creates the on-heap cache, e.g. {@code SimpleLRU} or {@code FastLFU}, which must report its evictions to the
+     *     listener it is given
+     * @param directory where L2 keeps its segment files, see {@link DiskStore}
+     */
+    public TieredCache(
+            final Function<RemovalListener<K, V>, Cache<K, V>> l1Factory,
+            final Path directory,
+            final int segmentBytes,
+            final int maxSegments,
+            final Serializer<K> keySerializer,
+            final Serializer<V> valueSerializer,
+            final RemovalListener<K, V> removalListener) {
+        this.removalListener = removalListener;
+        l2 = new DiskStore<>(directory, segmentBytes, maxSegments, DiskStore.DEFAULT_COMPACTION_THRESHOLD, keySerializer,
+                valueSerializer, removalListener);
+        l1 = l1Factory.apply((key, value, cause) -> {
+            if (RemovalCause.SIZE == cause) {
+                l2.put(key, value);
+            } else {
+                removalListener.onRemoval(key, value, cause);
+            }
+        });
+    }
+
+    @Override
+    public void put(final K key, final V value) {
+        final V demoted = l2.remove(key);
+        l1.put(key, value);
+        if (null != demoted) {
+            removalListener.onRemoval(key, demoted, RemovalCause.REPLACED);
+        }
+    }
+
+    @Override
+    public V get(final K key) {
+        final V value = l1.get(key);
+        if (null != value) {
+            return value;
+        }
+        final V promoted = l2.remove(key);
+        if (null != promoted) {
+            ++l2Hits;
+            l1.put(key, promoted);
+        }
+        return promoted;
+    }
+
+    @Override
+    public V remove(final K key) {
+        final V value = l1.remove(key);
+        if (null != value) {
+            return value;
+        }
+        final V demoted = l2.remove(key);
+        if (null != demoted) {
+            removalListener.onRemoval(key, demoted, RemovalCause.EXPLICIT);
+        }
+        return demoted;
+    }
+
+    /** The entry L1 would demote next. */
+    @Override
+    public Entry<K, V> victim() {
+        return l1.victim();
+    }
+
+    @Override
+    public int size() {
+        return l1.size() + l2.size();
+    }
+
+    @Override
+    public int capacity() {
+        return l1.capacity();
+    }
+
+    /** Number of {@link #get} calls served by promoting an entry from L2. */
+    public long l2Hits() {
+        return l2Hits;
+    }
+
+    @Override
+    public void close() throws IOException {
+        l2.close();
+    }
+
+    @VisibleForTesting
+    Cache<K, V> l1() {
+        return l1;
+    }
+
+    @VisibleForTesting
+    DiskStore<K, V> l2() {
+        return l2;
+    }
+}
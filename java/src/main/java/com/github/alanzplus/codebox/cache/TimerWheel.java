@@ -0,0 +1,161 @@
+package com.github.alanzplus.codebox.cache;
+
+import com.google.common.annotations.VisibleForTesting;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * A hierarchical timing wheel which expires timers in amortized O(1).
+ *
+ * <p>Each level is a ring of buckets covering a power of two span of time: 64 buckets of ~1.07s, 64 of ~1.14m, 32 of ~1.22h, 4 of
+ * ~1.63d and a single overflow bucket. A timer is placed in the finest level whose span covers its remaining delay. When time
+ * advances, the buckets whose span has elapsed are emptied; due timers are expired and the others are rescheduled, which cascades
+ * them into a finer level. A timer therefore moves at most once per level before it fires, with a precision of one bucket of the
+ * finest level.
+ *
+ * @see <a href="http://www.cs.columbia.edu/~nahum/w6998/papers/ton97-timing-wheels.pdf">Hashed and Hierarchical Timing Wheels</a>
+ */
+class TimerWheel<K> {
+    private static final int[] BUCKETS = {64, 64, 32, 4, 1};
+    private static final long[] SPANS = {
+        ceilingPowerOfTwo(TimeUnit.SECONDS.toNanos(1)),
+        ceilingPowerOfTwo(TimeUnit.MINUTES.toNanos(1)),
+        ceilingPowerOfTwo(TimeUnit.HOURS.toNanos(1)),
+        ceilingPowerOfTwo(TimeUnit.DAYS.toNanos(1)),
+        BUCKETS[3] * ceilingPowerOfTwo(TimeUnit.DAYS.toNanos(1)),
+        BUCKETS[3] * ceilingPowerOfTwo(TimeUnit.DAYS.toNanos(1)),
+    };
+    private static final long[] SHIFT = {
+        Long.numberOfTrailingZeros(SPANS[0]),
+        Long.numberOfTrailingZeros(SPANS[1]),
+        Long.numberOfTrailingZeros(SPANS[2]),
+        Long.numberOfTrailingZeros(SPANS[3]),
+        Long.numberOfTrailingZeros(SPANS[4]),
+    };
+
+    private final Timer<K>[][] wheel;
+    private long nanos;
+
+    @SuppressWarnings("unchecked")
+    TimerWheel(final long nanos) {
+        this.nanos = nanos;
+        wheel = (Timer<K>[][]) new Timer<?>[BUCKETS.length][];
+        for (int i = 0; i < wheel.length; ++i) {
+            wheel[i] = (Timer<K>[]) new Timer<?>[BUCKETS[i]];
+            for (int j = 0; j < wheel[i].length; ++j) {
+                wheel[i][j] = Timer.sentinel();
+            }
+        }
+    }
+
+    /** Advances the clock, expiring every timer whose time has come by passing it to {@code onExpired} after unlinking it. */
+    void advance(final long currentTimeNanos, final Consumer<Timer<K>> onExpired) {
+        final long previousTimeNanos = nanos;
+        nanos = currentTimeNanos;
+        for (int i = 0; i < SHIFT.length; ++i) {
+            final long previousTicks = previousTimeNanos >>> SHIFT[i];
+            final long currentTicks = currentTimeNanos >>> SHIFT[i];
+            if (currentTicks - previousTicks <= 0L) {
+                break;
+            }
+            expire(i, previousTicks, currentTicks - previousTicks, onExpired);
+        }
+    }
+
+    void schedule(final Timer<K> timer) {
+        final Timer<K> sentinel = findBucket(timer.time);
+        timer.next = sentinel;
+        timer.prev = sentinel.prev;
+        sentinel.prev.next = timer;
+        sentinel.prev = timer;
+    }
+
+    void reschedule(final Timer<K> timer) {
+        deschedule(timer);
+        schedule(timer);
+    }
+
+    void deschedule(final Timer<K> timer) {
+        if (null != timer.next) {
+            timer.next.prev = timer.prev;
+            timer.prev.next = timer.next;
+            timer.next = null;
+            timer.prev = null;
+        }
+    }
+
+    private void expire(final int level, final long previousTicks, final long delta, final Consumer<Timer<K>> onExpired) {
+        final Timer<K>[] buckets = wheel[level];
+        final int mask = buckets.length - 1;
+        // Every bucket is visited at most once, however far the clock jumped
+        final int steps = (int) Math.min(1L + delta, buckets.length);
+        final int start = (int) (previousTicks & mask);
+        for (int i = start; i < start + steps; ++i) {
+            final Timer<K> sentinel = buckets[i & mask];
+            Timer<K> timer = sentinel.next;
+            sentinel.prev = sentinel;
+            sentinel.next = sentinel;
+            while (timer != sentinel) {
+                final Timer<K> next = timer.next;
+                timer.prev = null;
+                timer.next = null;
+                if (timer.time - nanos > 0L) {
+                    schedule(timer);
+                } else {
+                    onExpired.accept(timer);
+                }
+                timer = next;
+            }
+        }
+    }
+
+    private Timer<K> findBucket(final long time) {
+        final long duration = time - nanos;
+        final int overflow = wheel.length - 1;
+        for (int i = 0; i < overflow; ++i) {
+            if (duration < SPANS[i + 1]) {
+                final long ticks = time >>> SHIFT[i];
+                return wheel[i][(int) (ticks & (wheel[i].length - 1))];
+            }
+        }
+        return wheel[overflow][0];
+    }
+
+    @VisibleForTesting
+    int levelOf(final Timer<K> timer) {
+        for (int i = 0; i < wheel.length; ++i) {
+            for (final Timer<K> sentinel : wheel[i]) {
+                for (Timer<K> t = sentinel.next; t != sentinel; t = t.next) {
+                    if (t == timer) {
+                        return i;
+                    }
+                }
+            }
+        }
+        return -1;
+    }
+
+    private static long ceilingPowerOfTwo(final long n) {
+        return 1L << (64 - Long.numberOfLeadingZeros(n - 1));
+    }
+
+    /** A timer node, linked into the doubly linked list of its bucket while scheduled. */
+    static class Timer<K> {
+        final K key;
+        long time;
+        Timer<K> prev;
+        Timer<K> next;
+
+        Timer(final K key, final long time) {
+            this.key = key;
+            this.time = time;
+        }
+
+        static <K> Timer<K> sentinel() {
+            final Timer<K> sentinel = new Timer<>(null, 0L);
+            sentinel.prev = sentinel;
+            sentinel.next = sentinel;
+            return sentinel;
+        }
+    }
+}
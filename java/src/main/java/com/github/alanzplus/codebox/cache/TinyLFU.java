@@ -0,0 +1,417 @@
+package com.github.alanzplus.codebox.cache;
+
+import com.google.common.annotations.VisibleForTesting;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * W-TinyLFU: a small LRU admission window in front of a segmented LRU main region, guarded by a {@link FrequencySketch}.
+ *
+ * <p>New entries always enter the window, which holds 1% of the capacity and absorbs bursts of recent keys. An entry falling out
+ * of the window is only admitted into the main region if the sketch has seen it more often than the main region's victim, so a
+ * scan of one-hit wonders cannot flush the hot set. The main region is split into a probation segment (20%) and a protected segment
+ * (80%). A hit in probation promotes the entry to protected, and protected overflow is demoted back to probation.
+ *
+ * <p>In adaptive mode the split between window and main region is tuned by hill climbing: every {@code 10 * capacity} lookups, the
+ * hit rate of the sample is compared with the previous one, and the window is resized by a step in the same direction as the last
+ * step if the hit rate improved, in the opposite one otherwise. Steps start at 6.25% of the capacity and shrink by 2% every sample
+ * so the split settles, until the hit rate moves by 5% or more, which signals a new workload and restarts with a full step. Resizing
+ * only moves the boundary; the entries follow it by at most {@value #MAX_RESIZE_MOVES} per later access, so no single access pays
+ * for the whole step, and none is evicted by it. Until the regions have caught up, the window or the main region may hold more
+ * than its share, but the cache never holds more than its capacity. The current window size and step are reported to the
+ * {@link StatsCounter} given at construction, see {@link CacheStats#windowSize()}.
+ *
+ * @see <a href="https://arxiv.org/abs/1512.00727">TinyLFU: A Highly Efficient Cache Admission Policy</a>
+ */
+public class TinyLFU<K, V> implements Cache<K, V> {
+    private static final double WINDOW_RATIO = 0.01;
+    private static final double PROTECTED_RATIO = 0.8;
+    private static final int SAMPLE_MULTIPLIER = 10;
+    private static final double STEP_PERCENT = 0.0625;
+    private static final double STEP_DECAY = 0.98;
+    private static final double RESTART_THRESHOLD = 0.05;
+    static final int MAX_RESIZE_MOVES = 16;
+
+    private final int capacity;
+    private final Map<K, Node<K, V>> cache = new HashMap<>();
+    private final FrequencySketch<K> sketch;
+    private final RemovalListener<K, V> removalListener;
+    private final AccessOrder<Node<K, V>> window = new AccessOrder<>();
+    private final AccessOrder<Node<K, V>> probation = new AccessOrder<>();
+    private final AccessOrder<Node<K, V>> protectedSegment = new AccessOrder<>();
+    private final boolean adaptive;
+    private final StatsCounter statsCounter;
+    private final long samplePeriod;
+    private int windowMax;
+    private int protectedMax;
+    private long sampleHits;
+    private long sampleMisses;
+    private double previousHitRate;
+    private double stepSize;
+    private long adjustments;
+
+    public TinyLFU(final int capacity) {
+        this(capacity, RemovalListener.noop());
+    }
+
+    public TinyLFU(final int capacity, final RemovalListener<K, V> removalListener) {
+        this(capacity, false, removalListener);
+    }
+
+    /** @param adaptive whether to tune the size of the window by hill climbing, instead of keeping it at 1% of the capacity */
+    public TinyLFU(final int capacity, final boolean adaptive, final RemovalListener<K, V> removalListener) {
+        this(capacity, adaptive, removalListener, StatsCounter.disabled());
+    }
+
+    /**
+     * @param statsCounter receives the window configuration whenever it changes; share it with a {@link StatsCache} wrapping this
+     *     cache to find the configuration next to the hit rate in the same {@link CacheStats}
+     */
+    public TinyLFU(
+            final int capacity,
+            final boolean adaptive,
+            final RemovalListener<K, V> removalListener,
+            final StatsCounter statsCounter) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity " + capacity + " <= 0");
+        }
+        this.capacity = capacity;
+        this.adaptive = adaptive;
+        this.removalListener = removalListener;
+        this.statsCounter = statsCounter;
+        sketch = new FrequencySketch<>(capacity);
+        samplePeriod = (long) SAMPLE_MULTIPLIER * capacity;
+        stepSize = STEP_PERCENT * capacity;
+        windowMax = Math.max(1, (int) (capacity * WINDOW_RATIO));
+        protectedMax = (int) ((capacity - windowMax) * PROTECTED_RATIO);
+        statsCounter.recordWindow(windowMax, adaptive ? stepSize : 0.0);
+    }
+
+    @Override
+    public void put(final K key, final V value) {
+        sketch.increment(key);
+        rebalance();
+        final Node<K, V> node = cache.get(key);
+        if (null != node) {
+            final V old = node.value;
+            node.value = value;
+            onHit(node);
+            removalListener.onRemoval(key, old, RemovalCause.REPLACED);
+            return;
+        }
+        final Node<K, V> newNode = new Node<>(key, value);
+        cache.put(key, newNode);
+        window.addLast(newNode.moveTo(Region.WINDOW));
+        // The second test matters while a resize is in progress and the window is still smaller than its share
+        if (window.size > windowMax || cache.size() > capacity) {
+            admit(window.first);
+        }
+    }
+
+    @Override
+    public V get(final K key) {
+        sketch.increment(key);
+        rebalance();
+        final Node<K, V> node = cache.get(key);
+        if (adaptive) {
+            recordAccess(null != node);
+        }
+        if (null == node) {
+            return null;
+        }
+        onHit(node);
+        return node.value;
+    }
+
+    @Override
+    public V remove(final K key) {
+        final Node<K, V> node = cache.remove(key);
+        if (null == node) {
+            return null;
+        }
+        regionOf(node).remove(node);
+        removalListener.onRemoval(key, node.value, RemovalCause.EXPLICIT);
+        return node.value;
+    }
+
+    /** The entry which would be dropped if a new key were inserted into the full cache now. */
+    @Override
+    public Entry<K, V> victim() {
+        if (cache.isEmpty()) {
+            return null;
+        }
+        final Node<K, V> mainVictim = mainVictim();
+        if (window.isEmpty()) {
+            return mainVictim;
+        }
+        if (null == mainVictim) {
+            return window.first;
+        }
+        return sketch.frequency(window.first.key) > sketch.frequency(mainVictim.key) ? mainVictim : window.first;
+    }
+
+    @Override
+    public int size() {
+        return cache.size();
+    }
+
+    @Override
+    public int capacity() {
+        return capacity;
+    }
+
+    /** The current split of the capacity and, in adaptive mode, the state of the hill climber. */
+    public PolicyStats policyStats() {
+        return new PolicyStats(windowMax, capacity - windowMax - protectedMax, protectedMax, previousHitRate, stepSize,
+                adjustments);
+    }
+
+    /**
+     * Moves the window's LRU entry into the main region. If the cache is over capacity, the entry must beat the main region's
+     * victim first, otherwise it is evicted.
+     */
+    private void admit(final Node<K, V> candidate) {
+        if (cache.size() > capacity) {
+            final Node<K, V> victim = mainVictim();
+            if (null == victim || sketch.frequency(candidate.key) <= sketch.frequency(victim.key)) {
+                evict(candidate);
+                return;
+            }
+            evict(victim);
+        }
+        window.remove(candidate);
+        probation.addLast(candidate.moveTo(Region.PROBATION));
+    }
+
+    private Node<K, V> mainVictim() {
+        if (!probation.isEmpty()) {
+            return probation.first;
+        }
+        return protectedSegment.first;
+    }
+
+    private void evict(final Node<K, V> node) {
+        regionOf(node).remove(node);
+        cache.remove(node.key);
+        removalListener.onRemoval(node.key, node.value, RemovalCause.SIZE);
+    }
+
+    private void onHit(final Node<K, V> node) {
+        switch (node.region) {
+            case WINDOW:
+                window.moveToLast(node);
+                break;
+            case PROBATION:
+                probation.remove(node);
+                protectedSegment.addLast(node.moveTo(Region.PROTECTED));
+                if (protectedSegment.size > protectedMax) {
+                    demote();
+                }
+                break;
+            case PROTECTED:
+                protectedSegment.moveToLast(node);
+                break;
+            default:
+                throw new IllegalStateException("unknown region " + node.region);
+        }
+    }
+
+    private void demote() {
+        final Node<K, V> demoted = protectedSegment.first;
+        protectedSegment.remove(demoted);
+        probation.addLast(demoted.moveTo(Region.PROBATION));
+    }
+
+    private void recordAccess(final boolean hit) {
+        if (hit) {
+            ++sampleHits;
+        } else {
+            ++sampleMisses;
+        }
+        if (sampleHits + sampleMisses >= samplePeriod) {
+            climb();
+        }
+    }
+
+    /** Takes one hill climbing step, see the class comment. */
+    private void climb() {
+        final double hitRate = (double) sampleHits / (sampleHits + sampleMisses);
+        final double change = hitRate - previousHitRate;
+        final double amount = change >= 0 ? stepSize : -stepSize;
+        stepSize = Math.abs(change) >= RESTART_THRESHOLD
+                ? Math.copySign(STEP_PERCENT * capacity, amount)
+                : STEP_DECAY * amount;
+        previousHitRate = hitRate;
+        sampleHits = 0;
+        sampleMisses = 0;
+        resizeWindow((int) Math.round(amount));
+        statsCounter.recordWindow(windowMax, stepSize);
+    }
+
+    /** Moves the boundary between window and main region; {@link #rebalance()} moves the entries afterwards. */
+    @VisibleForTesting
+    void resizeWindow(final int delta) {
+        final int newWindowMax = Math.max(1, Math.min(capacity - 1, windowMax + delta));
+        if (newWindowMax == windowMax || capacity < 2) {
+            return;
+        }
+        windowMax = newWindowMax;
+        protectedMax = (int) ((capacity - windowMax) * PROTECTED_RATIO);
+        ++adjustments;
+    }
+
+    /**
+     * Moves up to {@value #MAX_RESIZE_MOVES} entries towards the current split. Entries leaving a shrinking window join probation
+     * without an admission test, having earned their place already; a growing window takes the main region's victims, which are the
+     * next to be tested.
+     */
+    private void rebalance() {
+        int moves = 0;
+        while (moves < MAX_RESIZE_MOVES && window.size > windowMax) {
+            final Node<K, V> node = window.first;
+            window.remove(node);
+            probation.addLast(node.moveTo(Region.PROBATION));
+            ++moves;
+        }
+        while (moves < MAX_RESIZE_MOVES && probation.size + protectedSegment.size > capacity - windowMax) {
+            final Node<K, V> node = mainVictim();
+            regionOf(node).remove(node);
+            window.addLast(node.moveTo(Region.WINDOW));
+            ++moves;
+        }
+        while (moves < MAX_RESIZE_MOVES && protectedSegment.size > protectedMax) {
+            demote();
+            ++moves;
+        }
+    }
+
+    private AccessOrder<Node<K, V>> regionOf(final Node<K, V> node) {
+        switch (node.region) {
+            case WINDOW:
+                return window;
+            case PROBATION:
+                return probation;
+            case PROTECTED:
+                return protectedSegment;
+            default:
+                throw new IllegalStateException("unknown region " + node.region);
+        }
+    }
+
+    @VisibleForTesting
+    Map<K, Node<K, V>> cache() {
+        return cache;
+    }
+
+    @VisibleForTesting
+    int windowMax() {
+        return windowMax;
+    }
+
+    @VisibleForTesting
+    int protectedMax() {
+        return protectedMax;
+    }
+
+    @VisibleForTesting
+    FrequencySketch<K> sketch() {
+        return sketch;
+    }
+
+    /** An immutable snapshot of the configuration of a {@link TinyLFU}. */
+    public static final class PolicyStats {
+        private final int windowMax;
+        private final int probationMax;
+        private final int protectedMax;
+        private final double sampleHitRate;
+        private final double stepSize;
+        private final long adjustments;
+
+        PolicyStats(
+                final int windowMax,
+                final int probationMax,
+                final int protectedMax,
+                final double sampleHitRate,
+                final double stepSize,
+                final long adjustments) {
+            this.windowMax = windowMax;
+            this.probationMax = probationMax;
+            this.protectedMax = protectedMax;
+            this.sampleHitRate = sampleHitRate;
+            this.stepSize = stepSize;
+            this.adjustments = adjustments;
+        }
+
+        public int windowMax() {
+            return windowMax;
+        }
+
+        /** The part of the main region not reserved for protected entries. */
+        public int probationMax() {
+            return probationMax;
+        }
+
+        public int protectedMax() {
+            return protectedMax;
+        }
+
+        /** The hit rate of the last complete sample, {@code 0} before the first one. */
+        public double sampleHitRate() {
+            return sampleHitRate;
+        }
+
+        /** The size of the next hill climbing step in entries, negative when the window is shrinking. */
+        public double stepSize() {
+            return stepSize;
+        }
+
+        /** How many times the window was resized. */
+        public long adjustments() {
+            return adjustments;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("PolicyStats{window=%d, probation=%d, protected=%d, sampleHitRate=%.4f, step=%.2f, adjustments=%d}",
+                    windowMax, probationMax, protectedMax, sampleHitRate, stepSize, adjustments);
+        }
+    }
+
+    enum Region {
+        WINDOW,
+        PROBATION,
+        PROTECTED
+    }
+
+    @VisibleForTesting
+    static class Node<K, V> extends AccessOrder.Linked<Node<K, V>> implements Entry<K, V> {
+        final K key;
+        V value;
+        Region region;
+
+        Node(final K key, final V value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        Node<K, V> moveTo(final Region region) {
+            this.region = region;
+            return this;
+        }
+
+        @Override
+        public K key() {
+            return key;
+        }
+
+        @Override
+        public V value() {
+            return value;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s:%s", key, value);
+        }
+    }
+}
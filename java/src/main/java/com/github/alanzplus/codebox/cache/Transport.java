@@ -0,0 +1,23 @@
+package com.github.alanzplus.codebox.cache;
+
+import java.util.Collection;
+
+/**
+ * How a {@link PartitionedCache} reaches the cache of each node. Nodes are named by strings, e.g. {@code host:port}.
+ *
+ * <p>Implementations must be thread-safe if the partitioned cache is used from several threads.
+ */
+public interface Transport<K, V> {
+    V get(String node, K key);
+
+    void put(String node, K key, V value);
+
+    V remove(String node, K key);
+
+    /** The keys held by the node, to find those to hand over when the membership changes. */
+    Collection<K> keys(String node);
+
+    int size(String node);
+
+    int capacity(String node);
+}
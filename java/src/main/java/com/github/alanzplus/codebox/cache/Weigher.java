@@ -0,0 +1,20 @@
+package com.github.alanzplus.codebox.cache;
+
+import com.github.alanzplus.codebox.misc.SizeEstimator;
+
+/** Computes the weight of an entry, which bounds a cache by total weight instead of by number of entries. */
+@FunctionalInterface
+public interface Weigher<K, V> {
+    /** @return a non-negative weight, evaluated once when the entry is inserted */
+    int weigh(K key, V value);
+
+    /** Every entry weighs 1, which makes the weight bound an entry count bound. */
+    static <K, V> Weigher<K, V> singleton() {
+        return (key, value) -> 1;
+    }
+
+    /** Approximate heap bytes of the key and value, according to {@link SizeEstimator#estimate(Object)}. */
+    static <K, V> Weigher<K, V> estimatedBytes() {
+        return (key, value) -> (int) Math.min(SizeEstimator.estimate(key) + SizeEstimator.estimate(value), Integer.MAX_VALUE);
+    }
+}
@@ -0,0 +1,32 @@
+package com.github.alanzplus.codebox.cache.simulator;
+
+import com.github.alanzplus.codebox.cache.ARC;
+import com.github.alanzplus.codebox.cache.Cache;
+import com.github.alanzplus.codebox.cache.ClockCache;
+import com.github.alanzplus.codebox.cache.DecayingLFU;
+import com.github.alanzplus.codebox.cache.FastLFU;
+import com.github.alanzplus.codebox.cache.RemovalListener;
+import com.github.alanzplus.codebox.cache.SimpleLRU;
+import com.github.alanzplus.codebox.cache.TinyLFU;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/** Creates the cache replaying a trace at a given capacity. */
+@FunctionalInterface
+public interface Policy {
+    /** @param removalListener must be told of every eviction, which is how the simulator counts them */
+    Cache<Long, Long> create(int capacity, RemovalListener<Long, Long> removalListener);
+
+    /** The policies of this package, by the name the command line knows them by. */
+    static Map<String, Policy> builtIn() {
+        final Map<String, Policy> policies = new LinkedHashMap<>();
+        policies.put("lru", SimpleLRU::new);
+        policies.put("lfu", FastLFU::new);
+        policies.put("decaying-lfu", DecayingLFU::new);
+        policies.put("tinylfu", TinyLFU::new);
+        policies.put("adaptive-tinylfu", (capacity, removalListener) -> new TinyLFU<>(capacity, true, removalListener));
+        policies.put("arc", ARC::new);
+        policies.put("clock", ClockCache::new);
+        return policies;
+    }
+}
@@ -0,0 +1,73 @@
+package com.github.alanzplus.codebox.cache.simulator;
+
+import java.util.concurrent.TimeUnit;
+
+/** What one policy at one capacity did with the trace. */
+public final class SimulationResult {
+    private final String policy;
+    private final int capacity;
+    private final long hits;
+    private final long misses;
+    private final long evictions;
+    private final long elapsedNanos;
+
+    SimulationResult(
+            final String policy,
+            final int capacity,
+            final long hits,
+            final long misses,
+            final long evictions,
+            final long elapsedNanos) {
+        this.policy = policy;
+        this.capacity = capacity;
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public String policy() {
+        return policy;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public long hits() {
+        return hits;
+    }
+
+    public long misses() {
+        return misses;
+    }
+
+    public long requests() {
+        return hits + misses;
+    }
+
+    public double hitRatio() {
+        final long requests = requests();
+        return 0 == requests ? 1.0 : (double) hits / requests;
+    }
+
+    public long evictions() {
+        return evictions;
+    }
+
+    /** Time spent in the cache, excluding reading the trace and waiting for the other policies. */
+    public long elapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /** Requests per second of {@link #elapsedNanos()}, a miss counting as one request even though it also does a put. */
+    public double opsPerSecond() {
+        return 0 == elapsedNanos ? 0.0 : requests() * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "%-16s %12d %9.2f%% %14d %14.0f", policy, capacity, hitRatio() * 100, evictions, opsPerSecond());
+    }
+}
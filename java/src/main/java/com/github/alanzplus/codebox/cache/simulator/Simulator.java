@@ -0,0 +1,203 @@
+package com.github.alanzplus.codebox.cache.simulator;
+
+import com.github.alanzplus.codebox.cache.Cache;
+import com.github.alanzplus.codebox.cache.RemovalCause;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Replays an access trace through several cache policies at several capacities, reading the trace only once.
+ *
+ * <p>Every key of the trace is looked up, and put on a miss, in one cache per policy and capacity. The trace is read in chunks of
+ * {@code chunkSize} keys: while the caches replay one chunk in parallel, the calling thread reads the next one, so memory use does not
+ * depend on the length of the trace and a slow policy only delays the others by one chunk. Each cache is driven by one thread at a
+ * time, so policies which are not thread-safe can be simulated too.
+ *
+ * <pre>
+ * java com.github.alanzplus.codebox.cache.simulator.Simulator [--format text|arc|binary] [--policies lru,arc,...]
+ *     --capacities 1000,10000,... trace
+ * </pre>
+ */
+public class Simulator {
+    static final int DEFAULT_CHUNK_SIZE = 1 << 16;
+
+    private final Map<String, Policy> policies;
+    private final int[] capacities;
+    private final int chunkSize;
+
+    public Simulator(final Map<String, Policy> policies, final int... capacities) {
+        this(policies, capacities, DEFAULT_CHUNK_SIZE);
+    }
+
+    public Simulator(final Map<String, Policy> policies, final int[] capacities, final int chunkSize) {
+        if (policies.isEmpty()) {
+            throw new IllegalArgumentException("no policy to simulate");
+        }
+        if (0 == capacities.length) {
+            throw new IllegalArgumentException("no capacity to simulate");
+        }
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize " + chunkSize + " <= 0");
+        }
+        this.policies = new LinkedHashMap<>(policies);
+        this.capacities = capacities.clone();
+        this.chunkSize = chunkSize;
+    }
+
+    /** @return one result per policy and capacity, policies in the order they were given, capacities ascending within each */
+    public List<SimulationResult> run(final TraceReader trace) throws IOException {
+        final int[] sortedCapacities = capacities.clone();
+        Arrays.sort(sortedCapacities);
+        final List<Replay> replays = new ArrayList<>();
+        for (final Map.Entry<String, Policy> policy : policies.entrySet()) {
+            for (final int capacity : sortedCapacities) {
+                replays.add(new Replay(policy.getKey(), capacity, policy.getValue()));
+            }
+        }
+        final ExecutorService executor = Executors.newFixedThreadPool(
+                Math.min(replays.size(), Runtime.getRuntime().availableProcessors()));
+        try {
+            long[] current = new long[chunkSize];
+            long[] next = new long[chunkSize];
+            int currentLength = trace.read(current);
+            final List<Future<?>> pending = new ArrayList<>(replays.size());
+            while (0 != currentLength) {
+                final long[] keys = current;
+                final int length = currentLength;
+                for (final Replay replay : replays) {
+                    pending.add(executor.submit(() -> replay.replay(keys, length)));
+                }
+                final int nextLength = trace.read(next);
+                awaitAll(pending);
+                current = next;
+                next = keys;
+                currentLength = nextLength;
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        final List<SimulationResult> results = new ArrayList<>(replays.size());
+        for (final Replay replay : replays) {
+            results.add(replay.result());
+        }
+        return results;
+    }
+
+    private static void awaitAll(final List<Future<?>> pending) throws IOException {
+        try {
+            for (final Future<?> future : pending) {
+                future.get();
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while replaying the trace", e);
+        } catch (final ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        } finally {
+            pending.clear();
+        }
+    }
+
+    public static void main(final String[] args) throws IOException {
+        TraceFormat format = TraceFormat.TEXT;
+        String policyNames = String.join(",", Policy.builtIn().keySet());
+        int[] capacities = null;
+        String trace = null;
+        for (int i = 0; i < args.length; ++i) {
+            switch (args[i]) {
+                case "--format":
+                    format = TraceFormat.valueOf(args[++i].toUpperCase());
+                    break;
+                case "--policies":
+                    policyNames = args[++i];
+                    break;
+                case "--capacities":
+                    capacities = Arrays.stream(args[++i].split(",")).mapToInt(Integer::parseInt).toArray();
+                    break;
+                default:
+                    trace = args[i];
+            }
+        }
+        if (null == trace || null == capacities) {
+            System.err.println(
+                    "usage: Simulator [--format text|arc|binary] [--policies lru,lfu,...] --capacities 1000,10000,... trace");
+            System.exit(1);
+        }
+        final Map<String, Policy> builtIn = Policy.builtIn();
+        final Map<String, Policy> selected = new LinkedHashMap<>();
+        for (final String name : policyNames.split(",")) {
+            final Policy policy = builtIn.get(name);
+            if (null == policy) {
+                throw new IllegalArgumentException("unknown policy " + name + ", expected one of " + builtIn.keySet());
+            }
+            selected.put(name, policy);
+        }
+        final List<SimulationResult> results;
+        try (InputStream in = Files.newInputStream(Paths.get(trace));
+                TraceReader reader = format.open(in)) {
+            results = new Simulator(selected, capacities).run(reader);
+        }
+        System.out.println(String.format(
+                "%-16s %12s %10s %14s %14s", "policy", "capacity", "hit ratio", "evictions", "ops/sec"));
+        for (final SimulationResult result : results) {
+            System.out.println(result);
+        }
+    }
+
+    /** The state of one cache replaying the trace, only ever touched by one thread at a time. */
+    private static class Replay {
+        private final String name;
+        private final int capacity;
+        private final Cache<Long, Long> cache;
+        private long hits;
+        private long misses;
+        private long evictions;
+        private long elapsedNanos;
+
+        Replay(final String name, final int capacity, final Policy policy) {
+            this.name = name;
+            this.capacity = capacity;
+            cache = policy.create(capacity, (key, value, cause) -> {
+                if (RemovalCause.SIZE == cause) {
+                    ++evictions;
+                }
+            });
+        }
+
+        void replay(final long[] keys, final int length) {
+            final long start = System.nanoTime();
+            for (int i = 0; i < length; ++i) {
+                final Long key = keys[i];
+                if (null == cache.get(key)) {
+                    ++misses;
+                    cache.put(key, key);
+                } else {
+                    ++hits;
+                }
+            }
+            elapsedNanos += System.nanoTime() - start;
+        }
+
+        SimulationResult result() {
+            return new SimulationResult(name, capacity, hits, misses, evictions, elapsedNanos);
+        }
+    }
+}
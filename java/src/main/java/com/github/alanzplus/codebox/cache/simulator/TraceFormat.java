@@ -0,0 +1,128 @@
+package com.github.alanzplus.codebox.cache.simulator;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+/** The trace file formats understood by the {@link Simulator}. */
+public enum TraceFormat {
+    /** One key per line. Numeric keys are used as is, anything else is hashed; blank lines are skipped. */
+    TEXT {
+        @Override
+        public TraceReader open(final InputStream in) {
+            final BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 1 << 16);
+            return new TraceReader() {
+                @Override
+                public int read(final long[] buffer) throws IOException {
+                    int count = 0;
+                    String line;
+                    while (count < buffer.length && null != (line = reader.readLine())) {
+                        line = line.trim();
+                        if (!line.isEmpty()) {
+                            buffer[count++] = parseKey(line);
+                        }
+                    }
+                    return count;
+                }
+
+                @Override
+                public void close() throws IOException {
+                    reader.close();
+                }
+            };
+        }
+    },
+
+    /**
+     * The format of the traces published with the ARC paper: {@code startBlock numBlocks ignored requestNumber} per line, standing for
+     * an access to each of the blocks {@code startBlock .. startBlock + numBlocks - 1}.
+     */
+    ARC {
+        @Override
+        public TraceReader open(final InputStream in) {
+            final BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.US_ASCII), 1 << 16);
+            return new TraceReader() {
+                private long nextBlock;
+                private long remaining;
+
+                @Override
+                public int read(final long[] buffer) throws IOException {
+                    int count = 0;
+                    while (count < buffer.length) {
+                        if (0 != remaining) {
+                            buffer[count++] = nextBlock++;
+                            --remaining;
+                            continue;
+                        }
+                        final String line = reader.readLine();
+                        if (null == line) {
+                            break;
+                        }
+                        final String[] fields = line.trim().split("\\s+");
+                        if (fields.length < 2) {
+                            continue;
+                        }
+                        nextBlock = Long.parseLong(fields[0]);
+                        remaining = Long.parseLong(fields[1]);
+                    }
+                    return count;
+                }
+
+                @Override
+                public void close() throws IOException {
+                    reader.close();
+                }
+            };
+        }
+    },
+
+    /** Raw big-endian 64-bit keys, back to back. */
+    BINARY {
+        @Override
+        public TraceReader open(final InputStream in) {
+            final DataInputStream data = new DataInputStream(new BufferedInputStream(in, 1 << 16));
+            return new TraceReader() {
+                @Override
+                public int read(final long[] buffer) throws IOException {
+                    int count = 0;
+                    try {
+                        while (count < buffer.length) {
+                            buffer[count] = data.readLong();
+                            ++count;
+                        }
+                    } catch (final EOFException e) {
+                        // End of trace; a trailing partial key is ignored
+                    }
+                    return count;
+                }
+
+                @Override
+                public void close() throws IOException {
+                    data.close();
+                }
+            };
+        }
+    };
+
+    /** Wraps the stream, which is closed with the returned reader. */
+    public abstract TraceReader open(InputStream in);
+
+    static long parseKey(final String key) {
+        try {
+            return Long.parseLong(key);
+        } catch (final NumberFormatException e) {
+            // FNV-1a, 64 bit: far fewer collisions than String.hashCode on large traces
+            long hash = 0xcbf29ce484222325L;
+            for (int i = 0; i < key.length(); ++i) {
+                hash ^= key.charAt(i);
+                hash *= 0x100000001b3L;
+            }
+            return hash;
+        }
+    }
+}
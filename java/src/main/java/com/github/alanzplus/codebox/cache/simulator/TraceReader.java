@@ -0,0 +1,10 @@
+package com.github.alanzplus.codebox.cache.simulator;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/** A stream of keys read from an access trace. */
+public interface TraceReader extends Closeable {
+    /** Fills the buffer with the next keys. @return the number of keys read, {@code 0} only at the end of the trace */
+    int read(long[] buffer) throws IOException;
+}
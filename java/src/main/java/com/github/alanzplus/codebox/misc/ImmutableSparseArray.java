@@ -2,12 +2,15 @@ package com.github.alanzplus.codebox.misc;
 
 import com.google.common.annotations.VisibleForTesting;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Comparator;
 import java.util.List;
 import java.util.SortedMap;
 import java.util.SortedSet;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import java.util.stream.Collectors;
 
 public interface ImmutableSparseArray<V> extends SparseArray<V> {
@@ -67,8 +70,7 @@ public interface ImmutableSparseArray<V> extends SparseArray<V> {
                 Arrays.fill(pagePtr, EMPTY_PAGE);
                 values = new Object[nonEmptyPages.size() * pageSize];
                 final Integer[] pageNums = nonEmptyPages.toArray(new Integer[0]);
-                pagePtr[0] = 0;
-                for (int i = 1; i < pageNums.length; ++i) {
+                for (int i = 0; i < pageNums.length; ++i) {
                     pagePtr[pageNums[i]] = i * pageSize;
                 }
                 kvs.forEach((i, v) -> values[pagePtr[i / pageSize] + i % pageSize] = v);
@@ -96,10 +98,14 @@ public interface ImmutableSparseArray<V> extends SparseArray<V> {
             private final int pageSize;
 
             PageBasedImpl(final Page page) {
-                length = page.keyLength;
-                pagePtr = page.pagePtr;
-                values = page.values;
-                pageSize = page.pageSize;
+                this(page.keyLength, page.pagePtr, page.values, page.pageSize);
+            }
+
+            PageBasedImpl(final int length, final int[] pagePtr, final Object[] values, final int pageSize) {
+                this.length = length;
+                this.pagePtr = pagePtr;
+                this.values = values;
+                this.pageSize = pageSize;
             }
 
             @SuppressWarnings("unchecked")
@@ -123,6 +129,165 @@ public interface ImmutableSparseArray<V> extends SparseArray<V> {
             public int pageSize() {
                 return pageSize;
             }
+
+            int length() {
+                return length;
+            }
+
+            int[] pagePtr() {
+                return pagePtr;
+            }
+
+            Object[] values() {
+                return values;
+            }
+        }
+    }
+
+    /**
+     * Builds the same arrays as {@link PageBasedBuilder} from a stream of entries, without a {@code TreeMap} or a boxed page number.
+     *
+     * <p>Entries are appended to flat arrays. If they arrive in ascending index order, e.g. from a sorted source or an external sort,
+     * they are used as is; otherwise, or if an index repeats, {@link #build()} sorts them first, the last value of an index winning.
+     * A single pass over the sorted indices then marks the occupied pages of every candidate page size in one {@link BitSet} per size,
+     * whose cardinalities give the memory of each candidate. Finally the values are copied into the chosen layout by a fork/join task
+     * splitting the entries into ranges, which write disjoint slots.
+     */
+    class StreamingPageBasedBuilder<V> {
+        private static final int PARALLEL_THRESHOLD = 1 << 16;
+
+        private final int length;
+        private final ForkJoinPool pool;
+        private int[] indices = new int[16];
+        private Object[] values = new Object[16];
+        private int count;
+        private boolean sorted = true;
+
+        public StreamingPageBasedBuilder(final int length) {
+            this(length, ForkJoinPool.commonPool());
+        }
+
+        public StreamingPageBasedBuilder(final int length, final ForkJoinPool pool) {
+            if (length < 0) {
+                throw new IllegalArgumentException("length " + length + " < 0");
+            }
+            this.length = length;
+            this.pool = pool;
+        }
+
+        public StreamingPageBasedBuilder<V> set(final int idx, final V value) {
+            if (idx < 0 || idx >= length) {
+                throw new ArrayIndexOutOfBoundsException("idx " + idx + " not in [0, " + length + ")");
+            }
+            if (count == indices.length) {
+                indices = Arrays.copyOf(indices, count * 2);
+                values = Arrays.copyOf(values, count * 2);
+            }
+            if (0 != count && idx <= indices[count - 1]) {
+                sorted = false;
+            }
+            indices[count] = idx;
+            values[count] = value;
+            ++count;
+            return this;
+        }
+
+        public ImmutableSparseArray<V> build() {
+            final int[] keys;
+            final Object[] entries;
+            if (sorted) {
+                keys = indices;
+                entries = values;
+            } else {
+                final int[] positions = PrimitiveSparseLayout.lastWrites(indices, count);
+                keys = new int[positions.length];
+                entries = new Object[positions.length];
+                for (int i = 0; i < positions.length; ++i) {
+                    keys[i] = indices[positions[i]];
+                    entries[i] = values[positions[i]];
+                }
+            }
+            final int size = sorted ? count : keys.length;
+            final int[] pageSizes = PageBasedBuilder.PAGE_SIZES.stream().mapToInt(Integer::intValue).toArray();
+            final BitSet[] occupied = new BitSet[pageSizes.length];
+            for (int i = 0; i < occupied.length; ++i) {
+                occupied[i] = new BitSet(numPage(pageSizes[i]));
+            }
+            for (int i = 0; i < size; ++i) {
+                for (int j = 0; j < occupied.length; ++j) {
+                    occupied[j].set(keys[i] / pageSizes[j]);
+                }
+            }
+            int best = 0;
+            long bestMem = Long.MAX_VALUE;
+            for (int i = 0; i < occupied.length; ++i) {
+                final int pageSize = pageSizes[i];
+                final long mem = SizeEstimator.intArrShallow(numPage(pageSize))
+                        + SizeEstimator.refArrShallow(pageSize * occupied[i].cardinality());
+                if (mem < bestMem) {
+                    bestMem = mem;
+                    best = i;
+                }
+            }
+            final int pageSize = pageSizes[best];
+            final int[] pagePtr = new int[numPage(pageSize)];
+            Arrays.fill(pagePtr, PageBasedBuilder.EMPTY_PAGE);
+            int start = 0;
+            for (int page = occupied[best].nextSetBit(0); page >= 0; page = occupied[best].nextSetBit(page + 1)) {
+                pagePtr[page] = start;
+                start += pageSize;
+            }
+            final Object[] pageValues = new Object[start];
+            pool.invoke(new Fill(keys, entries, 0, size, pagePtr, pageValues, pageSize));
+            return new PageBasedBuilder.PageBasedImpl<>(length, pagePtr, pageValues, pageSize);
+        }
+
+        private int numPage(final int pageSize) {
+            return (length + pageSize - 1) / pageSize;
+        }
+
+        /** Copies the entries {@code [from, to)} into their slots, splitting the range while it is large. */
+        private static class Fill extends RecursiveAction {
+            private static final long serialVersionUID = 1L;
+
+            private final int[] keys;
+            private final Object[] entries;
+            private final int from;
+            private final int to;
+            private final int[] pagePtr;
+            private final Object[] pageValues;
+            private final int pageSize;
+
+            Fill(
+                    final int[] keys,
+                    final Object[] entries,
+                    final int from,
+                    final int to,
+                    final int[] pagePtr,
+                    final Object[] pageValues,
+                    final int pageSize) {
+                this.keys = keys;
+                this.entries = entries;
+                this.from = from;
+                this.to = to;
+                this.pagePtr = pagePtr;
+                this.pageValues = pageValues;
+                this.pageSize = pageSize;
+            }
+
+            @Override
+            protected void compute() {
+                if (to - from > PARALLEL_THRESHOLD) {
+                    final int middle = (from + to) >>> 1;
+                    invokeAll(
+                            new Fill(keys, entries, from, middle, pagePtr, pageValues, pageSize),
+                            new Fill(keys, entries, middle, to, pagePtr, pageValues, pageSize));
+                    return;
+                }
+                for (int i = from; i < to; ++i) {
+                    pageValues[pagePtr[keys[i] / pageSize] + keys[i] % pageSize] = entries[i];
+                }
+            }
         }
     }
 
@@ -171,6 +336,14 @@ public interface ImmutableSparseArray<V> extends SparseArray<V> {
             public long mem() {
                 return SizeEstimator.intArrShallow(keys.length) + SizeEstimator.refArrShallow(values.length);
             }
+
+            int[] keys() {
+                return keys;
+            }
+
+            Object[] values() {
+                return values;
+            }
         }
     }
 }
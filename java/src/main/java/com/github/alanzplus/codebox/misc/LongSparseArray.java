@@ -0,0 +1,94 @@
+package com.github.alanzplus.codebox.misc;
+
+import java.util.Arrays;
+
+/**
+ * An immutable sparse array of {@code long} values, stored unboxed in a {@code long[]}: the primitive counterpart of {@link
+ * ImmutableSparseArray}, with the same page based and binary search based layouts. An entry costs 8 bytes of value instead of a
+ * reference to a boxed object; in the page based layout, empty slots are marked by a presence bitmap rather than by {@code null}.
+ */
+public final class LongSparseArray {
+    private final PrimitiveSparseLayout layout;
+    private final long[] values;
+    private final int size;
+
+    private LongSparseArray(final PrimitiveSparseLayout layout, final long[] values, final int size) {
+        this.layout = layout;
+        this.values = values;
+        this.size = size;
+    }
+
+    /** Indices must be in {@code [0, length)}; {@code get} is O(1). */
+    public static Builder pageBasedBuilder(final int length) {
+        if (length < 0) {
+            throw new IllegalArgumentException("length " + length + " < 0");
+        }
+        return new Builder(length);
+    }
+
+    /** Any index is allowed; {@code get} is a binary search over the indices with a value. */
+    public static Builder binarySearchBasedBuilder() {
+        return new Builder(-1);
+    }
+
+    public boolean contains(final int idx) {
+        return PrimitiveSparseLayout.ABSENT != layout.slotOf(idx);
+    }
+
+    /** @return the value at the index, or {@code defaultValue} if it has none */
+    public long get(final int idx, final long defaultValue) {
+        final int slot = layout.slotOf(idx);
+        return PrimitiveSparseLayout.ABSENT == slot ? defaultValue : values[slot];
+    }
+
+    /** The number of indices with a value. */
+    public int size() {
+        return size;
+    }
+
+    public long mem() {
+        return layout.mem() + SizeEstimator.longArrShallow(values.length);
+    }
+
+    public static final class Builder {
+        private final int length;
+        private int[] keys = new int[16];
+        private long[] entries = new long[16];
+        private int count;
+
+        private Builder(final int length) {
+            this.length = length;
+        }
+
+        /** A later value for the same index replaces the earlier one. */
+        public Builder set(final int idx, final long value) {
+            if (length >= 0) {
+                PrimitiveSparseLayout.checkIndex(idx, length);
+            }
+            if (count == keys.length) {
+                keys = Arrays.copyOf(keys, count * 2);
+                entries = Arrays.copyOf(entries, count * 2);
+            }
+            keys[count] = idx;
+            entries[count] = value;
+            ++count;
+            return this;
+        }
+
+        public LongSparseArray build() {
+            final int[] positions = PrimitiveSparseLayout.lastWrites(keys, count);
+            final int[] sortedKeys = new int[positions.length];
+            for (int i = 0; i < positions.length; ++i) {
+                sortedKeys[i] = keys[positions[i]];
+            }
+            final PrimitiveSparseLayout layout = length >= 0
+                    ? PrimitiveSparseLayout.pageBased(length, sortedKeys, Long.BYTES)
+                    : PrimitiveSparseLayout.binarySearchBased(sortedKeys);
+            final long[] values = new long[layout.slotCount()];
+            for (int i = 0; i < positions.length; ++i) {
+                values[layout.slotOfKey(i, sortedKeys[i])] = entries[positions[i]];
+            }
+            return new LongSparseArray(layout, values, positions.length);
+        }
+    }
+}
@@ -0,0 +1,284 @@
+package com.github.alanzplus.codebox.misc;
+
+import com.google.common.annotations.VisibleForTesting;
+import java.util.Arrays;
+
+/**
+ * A mutable {@link SparseArray} over the whole non-negative {@code int} index space, organized like a Roaring bitmap.
+ *
+ * <p>The index space is cut into chunks of {@value #CHUNK_SIZE} indices, reached through a two-level directory whose second level
+ * is allocated on first use, so empty regions of the index space cost one null reference per {@value #DIRECTORY_SIZE} chunks. Each
+ * non-empty chunk is held by the container which suits its density:
+ *
+ * <ul>
+ *   <li>a sparse chunk keeps the in-chunk offsets of its entries in a sorted {@code byte[]}, next to their values, and is searched by
+ *       binary search; inserting shifts at most {@value #TO_DENSE} entries.
+ *   <li>a dense chunk is a plain {@code Object[]} page of {@value #CHUNK_SIZE} values indexed by offset.
+ * </ul>
+ *
+ * <p>A sparse chunk growing past {@value #TO_DENSE} entries becomes dense, and a dense chunk shrinking below {@value #TO_SPARSE}
+ * entries becomes sparse again; the gap between both thresholds keeps a chunk from flipping back and forth. So {@link #get} is a
+ * constant number of array reads plus a search of at most {@value #TO_DENSE} bytes, and {@link #set} is amortized constant.
+ *
+ * <p>Setting {@code null} removes the entry, and a chunk left empty is freed. {@link #mem()} counts every array and container,
+ * headers included, but not the values themselves. This class is not thread-safe.
+ */
+public class MutableSparseArray<V> implements SparseArray<V> {
+    static final int CHUNK_BITS = 8;
+    static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    static final int TO_DENSE = 192;
+    static final int TO_SPARSE = 96;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final int DIRECTORY_BITS = 11;
+    private static final int DIRECTORY_SIZE = 1 << DIRECTORY_BITS;
+    private static final int DIRECTORY_MASK = DIRECTORY_SIZE - 1;
+    private static final int INITIAL_SPARSE_CAPACITY = 4;
+
+    private final Chunk[][] directory = new Chunk[1 << (Integer.SIZE - 1 - CHUNK_BITS - DIRECTORY_BITS)][];
+    private final int[] directoryCounts = new int[directory.length];
+    private int size;
+    private int chunkCount;
+
+    @Override
+    public V get(final int idx) {
+        checkIndex(idx);
+        final Chunk[] chunks = directory[idx >>> (CHUNK_BITS + DIRECTORY_BITS)];
+        if (null == chunks) {
+            return null;
+        }
+        final Chunk chunk = chunks[(idx >>> CHUNK_BITS) & DIRECTORY_MASK];
+        return null == chunk ? null : chunk.get(idx & CHUNK_MASK);
+    }
+
+    /** Maps the index to the value, or removes its entry if the value is {@code null}. */
+    @Override
+    public void set(final int idx, final V value) {
+        checkIndex(idx);
+        final int high = idx >>> (CHUNK_BITS + DIRECTORY_BITS);
+        final int middle = (idx >>> CHUNK_BITS) & DIRECTORY_MASK;
+        final int offset = idx & CHUNK_MASK;
+        Chunk[] chunks = directory[high];
+        Chunk chunk = null == chunks ? null : chunks[middle];
+        if (null == value) {
+            if (null == chunk || !chunk.remove(offset)) {
+                return;
+            }
+            --size;
+            if (0 == chunk.count) {
+                chunks[middle] = null;
+                --chunkCount;
+                if (0 == --directoryCounts[high]) {
+                    directory[high] = null;
+                }
+            } else if (chunk instanceof DenseChunk && chunk.count < TO_SPARSE) {
+                chunks[middle] = ((DenseChunk) chunk).toSparse();
+            }
+            return;
+        }
+        if (null == chunk) {
+            if (null == chunks) {
+                chunks = new Chunk[DIRECTORY_SIZE];
+                directory[high] = chunks;
+            }
+            chunk = new SparseChunk(INITIAL_SPARSE_CAPACITY);
+            chunks[middle] = chunk;
+            ++chunkCount;
+            ++directoryCounts[high];
+        } else if (chunk instanceof SparseChunk && chunk.count >= TO_DENSE && null == chunk.get(offset)) {
+            chunk = ((SparseChunk) chunk).toDense();
+            chunks[middle] = chunk;
+        }
+        if (chunk.put(offset, value)) {
+            ++size;
+        }
+    }
+
+    /** The number of indices with a value. */
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public long mem() {
+        long mem = SizeEstimator.objectShallow(2, 2)
+                + SizeEstimator.estimate(directory)
+                + SizeEstimator.estimate(directoryCounts);
+        for (final Chunk[] chunks : directory) {
+            if (null == chunks) {
+                continue;
+            }
+            mem += SizeEstimator.estimate(chunks);
+            for (final Chunk chunk : chunks) {
+                if (null != chunk) {
+                    mem += chunk.mem();
+                }
+            }
+        }
+        return mem;
+    }
+
+    private static void checkIndex(final int idx) {
+        if (idx < 0) {
+            throw new ArrayIndexOutOfBoundsException("idx " + idx + " < 0");
+        }
+    }
+
+    @VisibleForTesting
+    int chunkCount() {
+        return chunkCount;
+    }
+
+    @VisibleForTesting
+    boolean isDense(final int idx) {
+        final Chunk[] chunks = directory[idx >>> (CHUNK_BITS + DIRECTORY_BITS)];
+        return null != chunks && chunks[(idx >>> CHUNK_BITS) & DIRECTORY_MASK] instanceof DenseChunk;
+    }
+
+    private abstract static class Chunk {
+        int count;
+
+        abstract <V> V get(int offset);
+
+        /** @return whether the offset had no value before */
+        abstract boolean put(int offset, Object value);
+
+        /** @return whether the offset had a value */
+        abstract boolean remove(int offset);
+
+        abstract long mem();
+    }
+
+    private static final class SparseChunk extends Chunk {
+        private byte[] offsets;
+        private Object[] values;
+
+        SparseChunk(final int capacity) {
+            offsets = new byte[capacity];
+            values = new Object[capacity];
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        <V> V get(final int offset) {
+            final int i = search(offset);
+            return i < 0 ? null : (V) values[i];
+        }
+
+        @Override
+        boolean put(final int offset, final Object value) {
+            final int i = search(offset);
+            if (i >= 0) {
+                values[i] = value;
+                return false;
+            }
+            final int insertion = -i - 1;
+            if (count == offsets.length) {
+                final int capacity = Math.min(TO_DENSE, count * 2);
+                offsets = Arrays.copyOf(offsets, capacity);
+                values = Arrays.copyOf(values, capacity);
+            }
+            System.arraycopy(offsets, insertion, offsets, insertion + 1, count - insertion);
+            System.arraycopy(values, insertion, values, insertion + 1, count - insertion);
+            offsets[insertion] = (byte) offset;
+            values[insertion] = value;
+            ++count;
+            return true;
+        }
+
+        @Override
+        boolean remove(final int offset) {
+            final int i = search(offset);
+            if (i < 0) {
+                return false;
+            }
+            System.arraycopy(offsets, i + 1, offsets, i, count - i - 1);
+            System.arraycopy(values, i + 1, values, i, count - i - 1);
+            values[--count] = null;
+            if (count <= offsets.length / 4 && offsets.length > INITIAL_SPARSE_CAPACITY) {
+                final int capacity = Math.max(INITIAL_SPARSE_CAPACITY, offsets.length / 2);
+                offsets = Arrays.copyOf(offsets, capacity);
+                values = Arrays.copyOf(values, capacity);
+            }
+            return true;
+        }
+
+        /** Binary search over the unsigned offsets, with the contract of {@link Arrays#binarySearch(int[], int)}. */
+        private int search(final int offset) {
+            int low = 0;
+            int high = count - 1;
+            while (low <= high) {
+                final int mid = (low + high) >>> 1;
+                final int midOffset = offsets[mid] & 0xFF;
+                if (midOffset < offset) {
+                    low = mid + 1;
+                } else if (midOffset > offset) {
+                    high = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -(low + 1);
+        }
+
+        DenseChunk toDense() {
+            final DenseChunk dense = new DenseChunk();
+            for (int i = 0; i < count; ++i) {
+                dense.values[offsets[i] & 0xFF] = values[i];
+            }
+            dense.count = count;
+            return dense;
+        }
+
+        @Override
+        long mem() {
+            return SizeEstimator.objectShallow(2, 1) + SizeEstimator.estimate(offsets) + SizeEstimator.estimate(values);
+        }
+    }
+
+    private static final class DenseChunk extends Chunk {
+        private final Object[] values = new Object[CHUNK_SIZE];
+
+        @Override
+        @SuppressWarnings("unchecked")
+        <V> V get(final int offset) {
+            return (V) values[offset];
+        }
+
+        @Override
+        boolean put(final int offset, final Object value) {
+            final boolean added = null == values[offset];
+            values[offset] = value;
+            if (added) {
+                ++count;
+            }
+            return added;
+        }
+
+        @Override
+        boolean remove(final int offset) {
+            if (null == values[offset]) {
+                return false;
+            }
+            values[offset] = null;
+            --count;
+            return true;
+        }
+
+        SparseChunk toSparse() {
+            final SparseChunk sparse = new SparseChunk(Math.max(INITIAL_SPARSE_CAPACITY, Integer.highestOneBit(count) << 1));
+            for (int offset = 0; offset < CHUNK_SIZE; ++offset) {
+                if (null != values[offset]) {
+                    sparse.offsets[sparse.count] = (byte) offset;
+                    sparse.values[sparse.count] = values[offset];
+                    ++sparse.count;
+                }
+            }
+            return sparse;
+        }
+
+        @Override
+        long mem() {
+            return SizeEstimator.objectShallow(1, 1) + SizeEstimator.estimate(values);
+        }
+    }
+}
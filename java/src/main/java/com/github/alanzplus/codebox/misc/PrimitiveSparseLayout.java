@@ -0,0 +1,186 @@
+package com.github.alanzplus.codebox.misc;
+
+import java.util.Arrays;
+
+/**
+ * Where the values of a primitive sparse array live: maps an index to a slot of the value array, or to {@link #ABSENT}. The layouts
+ * are those of {@link ImmutableSparseArray}, with a presence bitmap taking the place of {@code null} as the marker of an empty slot,
+ * so that the value arrays can be primitive.
+ */
+abstract class PrimitiveSparseLayout {
+    static final int ABSENT = -1;
+    private static final int EMPTY_PAGE = -1;
+    private static final int[] PAGE_SIZES = {8, 16, 32, 64, 128, 256};
+
+    /** @return the slot of the index, or {@link #ABSENT} */
+    abstract int slotOf(int idx);
+
+    /** The number of slots the value array needs. */
+    abstract int slotCount();
+
+    /** The slot of the {@code i}-th smallest key given to the layout, while filling the value array. */
+    abstract int slotOfKey(int i, int key);
+
+    abstract long mem();
+
+    /**
+     * The page size using the least memory is chosen, counting {@code valueBytes} per slot plus one presence bit.
+     *
+     * @param keys ascending and distinct, all in {@code [0, length)}
+     */
+    static PrimitiveSparseLayout pageBased(final int length, final int[] keys, final int valueBytes) {
+        int bestPageSize = PAGE_SIZES[0];
+        long bestMem = Long.MAX_VALUE;
+        for (final int pageSize : PAGE_SIZES) {
+            final long mem = PageLayout.mem(length, pageSize, countPages(keys, pageSize), valueBytes);
+            if (mem < bestMem) {
+                bestMem = mem;
+                bestPageSize = pageSize;
+            }
+        }
+        return new PageLayout(length, bestPageSize, keys);
+    }
+
+    /** @param keys ascending and distinct */
+    static PrimitiveSparseLayout binarySearchBased(final int[] keys) {
+        return new SortedKeysLayout(keys);
+    }
+
+    /**
+     * Sorts the entries set into a builder by index without boxing, the last write of an index winning.
+     *
+     * @return the positions, in insertion order, of the surviving entries, by ascending index
+     */
+    static int[] lastWrites(final int[] keys, final int size) {
+        // Index in the high half, insertion order in the low half: sorting orders by index, then by time
+        final long[] order = new long[size];
+        for (int i = 0; i < size; ++i) {
+            order[i] = (long) keys[i] << 32 | i;
+        }
+        Arrays.sort(order);
+        int unique = 0;
+        for (int i = 0; i < size; ++i) {
+            if (i + 1 == size || (int) (order[i] >>> 32) != (int) (order[i + 1] >>> 32)) {
+                order[unique++] = order[i];
+            }
+        }
+        final int[] positions = new int[unique];
+        for (int i = 0; i < unique; ++i) {
+            positions[i] = (int) order[i];
+        }
+        return positions;
+    }
+
+    static void checkIndex(final int idx, final int length) {
+        if (idx < 0 || idx >= length) {
+            throw new ArrayIndexOutOfBoundsException("idx " + idx + " not in [0, " + length + ")");
+        }
+    }
+
+    private static int countPages(final int[] keys, final int pageSize) {
+        int pages = 0;
+        int lastPage = EMPTY_PAGE;
+        for (final int key : keys) {
+            if (key / pageSize != lastPage) {
+                lastPage = key / pageSize;
+                ++pages;
+            }
+        }
+        return pages;
+    }
+
+    /** {@code slot = pagePtr[idx / pageSize] + idx % pageSize}, present if its bit is set. */
+    static final class PageLayout extends PrimitiveSparseLayout {
+        private final int length;
+        private final int pageSize;
+        private final int[] pagePtr;
+        private final long[] presence;
+        private final int slotCount;
+
+        PageLayout(final int length, final int pageSize, final int[] keys) {
+            this.length = length;
+            this.pageSize = pageSize;
+            pagePtr = new int[(length + pageSize - 1) / pageSize];
+            Arrays.fill(pagePtr, EMPTY_PAGE);
+            int slots = 0;
+            for (final int key : keys) {
+                final int page = key / pageSize;
+                if (EMPTY_PAGE == pagePtr[page]) {
+                    pagePtr[page] = slots;
+                    slots += pageSize;
+                }
+            }
+            slotCount = slots;
+            presence = new long[(slots + Long.SIZE - 1) / Long.SIZE];
+            for (final int key : keys) {
+                final int slot = pagePtr[key / pageSize] + key % pageSize;
+                presence[slot >>> 6] |= 1L << slot;
+            }
+        }
+
+        @Override
+        int slotOf(final int idx) {
+            checkIndex(idx, length);
+            final int start = pagePtr[idx / pageSize];
+            if (EMPTY_PAGE == start) {
+                return ABSENT;
+            }
+            final int slot = start + idx % pageSize;
+            return 0 == (presence[slot >>> 6] & 1L << slot) ? ABSENT : slot;
+        }
+
+        @Override
+        int slotCount() {
+            return slotCount;
+        }
+
+        @Override
+        int slotOfKey(final int i, final int key) {
+            return pagePtr[key / pageSize] + key % pageSize;
+        }
+
+        @Override
+        long mem() {
+            return SizeEstimator.intArrShallow(pagePtr.length) + SizeEstimator.longArrShallow(presence.length);
+        }
+
+        int pageSize() {
+            return pageSize;
+        }
+
+        static long mem(final int length, final int pageSize, final int pages, final int valueBytes) {
+            final long slots = (long) pages * pageSize;
+            return SizeEstimator.intArrShallow((length + pageSize - 1) / pageSize) + slots * valueBytes + (slots + 7) / 8;
+        }
+    }
+
+    /** The slot of an index is its position in the sorted keys. */
+    static final class SortedKeysLayout extends PrimitiveSparseLayout {
+        private final int[] keys;
+
+        SortedKeysLayout(final int[] keys) {
+            this.keys = keys;
+        }
+
+        @Override
+        int slotOf(final int idx) {
+            final int i = Arrays.binarySearch(keys, idx);
+            return i < 0 ? ABSENT : i;
+        }
+
+        @Override
+        int slotCount() {
+            return keys.length;
+        }
+
+        @Override
+        int slotOfKey(final int i, final int key) {
+            return i;
+        }
+
+        @Override
+        long mem() {
+            return SizeEstimator.intArrShallow(keys.length);
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.github.alanzplus.codebox.misc;
+
+import com.google.common.annotations.VisibleForTesting;
+
+/**
+ * A mutable sparse array over the whole non-negative {@code long} index space, organized like a multi-level page table.
+ *
+ * <p>An index is split into groups of {@value #BITS} bits. The lowest group selects a value within a leaf page of {@value #FANOUT}
+ * values, and every higher group selects a child within an interior node of {@value #FANOUT} references. Nodes are allocated on the
+ * first write below them and freed once their last entry is removed, so memory is proportional to the number of populated pages
+ * times the tree height, however large and however scattered the index space is.
+ *
+ * <p>The tree only grows as tall as the largest index requires: it starts as a single leaf, and a new root is pushed on top, with
+ * the old root as its first child, whenever an index does not fit. Small indices thus take a single level, and no index takes more
+ * than {@code ceil(63 / BITS)} levels. The root is popped again once it only holds its first child.
+ *
+ * <p>Setting {@code null} removes the entry. {@link #mem()} counts every node, headers included, but not the values themselves. This
+ * class is not thread-safe.
+ */
+public class RadixSparseArray<V> implements SparseArray<V> {
+    static final int BITS = 8;
+    static final int FANOUT = 1 << BITS;
+    private static final int MASK = FANOUT - 1;
+    private static final int MAX_HEIGHT = (Long.SIZE - 1 + BITS - 1) / BITS;
+    private static final long NODE_MEM = SizeEstimator.objectShallow(1, 1) + SizeEstimator.estimate(new Object[FANOUT]);
+
+    /** {@code null} when the array is empty. */
+    private Node root;
+    /** Number of levels, the leaf included; {@code 0} when the array is empty. */
+    private int height;
+    private long size;
+    private long nodeCount;
+
+    @SuppressWarnings("unchecked")
+    public V get(final long idx) {
+        checkIndex(idx);
+        if (!fits(idx, height)) {
+            return null;
+        }
+        Node node = root;
+        for (int level = height - 1; level > 0; --level) {
+            node = (Node) node.slots[slot(idx, level)];
+            if (null == node) {
+                return null;
+            }
+        }
+        return (V) node.slots[slot(idx, 0)];
+    }
+
+    /** Maps the index to the value, or removes its entry if the value is {@code null}. */
+    public void set(final long idx, final V value) {
+        checkIndex(idx);
+        if (null == value) {
+            remove(idx);
+            return;
+        }
+        if (null == root) {
+            height = 1;
+            while (!fits(idx, height)) {
+                ++height;
+            }
+            root = newNode();
+        }
+        while (!fits(idx, height)) {
+            final Node newRoot = newNode();
+            newRoot.slots[0] = root;
+            newRoot.count = 1;
+            root = newRoot;
+            ++height;
+        }
+        Node node = root;
+        for (int level = height - 1; level > 0; --level) {
+            final int slot = slot(idx, level);
+            Node child = (Node) node.slots[slot];
+            if (null == child) {
+                child = newNode();
+                node.slots[slot] = child;
+                ++node.count;
+            }
+            node = child;
+        }
+        final int slot = slot(idx, 0);
+        if (null == node.slots[slot]) {
+            ++node.count;
+            ++size;
+        }
+        node.slots[slot] = value;
+    }
+
+    @Override
+    public V get(final int idx) {
+        return get((long) idx);
+    }
+
+    @Override
+    public void set(final int idx, final V value) {
+        set((long) idx, value);
+    }
+
+    /** The number of indices with a value. */
+    public long size() {
+        return size;
+    }
+
+    @Override
+    public long mem() {
+        return SizeEstimator.objectShallow(1, 5) + nodeCount * NODE_MEM;
+    }
+
+    private void remove(final long idx) {
+        if (!fits(idx, height)) {
+            return;
+        }
+        final Node[] path = new Node[height];
+        Node node = root;
+        for (int level = height - 1; level > 0; --level) {
+            path[level] = node;
+            node = (Node) node.slots[slot(idx, level)];
+            if (null == node) {
+                return;
+            }
+        }
+        path[0] = node;
+        if (null == node.slots[slot(idx, 0)]) {
+            return;
+        }
+        --size;
+        // Clears the slot, then frees every node it leaves empty, bottom up
+        for (int level = 0; level < height; ++level) {
+            final Node current = path[level];
+            current.slots[slot(idx, level)] = null;
+            if (0 != --current.count) {
+                break;
+            }
+            --nodeCount;
+            if (level == height - 1) {
+                root = null;
+                height = 0;
+                return;
+            }
+        }
+        while (height > 1 && 1 == root.count && null != root.slots[0]) {
+            root = (Node) root.slots[0];
+            --nodeCount;
+            --height;
+        }
+    }
+
+    private Node newNode() {
+        ++nodeCount;
+        return new Node();
+    }
+
+    private static int slot(final long idx, final int level) {
+        return (int) (idx >>> (level * BITS)) & MASK;
+    }
+
+    /** Whether a tree of the given height covers the index. */
+    private static boolean fits(final long idx, final int height) {
+        return height >= MAX_HEIGHT || (0 != height && 0 == idx >>> (height * BITS));
+    }
+
+    private static void checkIndex(final long idx) {
+        if (idx < 0) {
+            throw new ArrayIndexOutOfBoundsException("idx " + idx + " < 0");
+        }
+    }
+
+    @VisibleForTesting
+    int height() {
+        return height;
+    }
+
+    @VisibleForTesting
+    long nodeCount() {
+        return nodeCount;
+    }
+
+    /** A leaf holds values, an interior node holds child nodes. */
+    private static final class Node {
+        private final Object[] slots = new Object[FANOUT];
+        private int count;
+    }
+}
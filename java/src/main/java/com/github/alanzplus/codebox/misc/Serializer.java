@@ -0,0 +1,70 @@
+package com.github.alanzplus.codebox.misc;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/** Converts values to and from a compact binary form. */
+public interface Serializer<T> {
+    byte[] serialize(T value);
+
+    /** Reads a value from the {@link ByteBuffer#remaining() remaining} bytes of the buffer. */
+    T deserialize(ByteBuffer buffer);
+
+    static Serializer<byte[]> bytes() {
+        return new Serializer<byte[]>() {
+            @Override
+            public byte[] serialize(final byte[] value) {
+                return value;
+            }
+
+            @Override
+            public byte[] deserialize(final ByteBuffer buffer) {
+                final byte[] bytes = new byte[buffer.remaining()];
+                buffer.get(bytes);
+                return bytes;
+            }
+        };
+    }
+
+    static Serializer<String> utf8() {
+        return new Serializer<String>() {
+            @Override
+            public byte[] serialize(final String value) {
+                return value.getBytes(StandardCharsets.UTF_8);
+            }
+
+            @Override
+            public String deserialize(final ByteBuffer buffer) {
+                return StandardCharsets.UTF_8.decode(buffer).toString();
+            }
+        };
+    }
+
+    static Serializer<Long> longs() {
+        return new Serializer<Long>() {
+            @Override
+            public byte[] serialize(final Long value) {
+                return ByteBuffer.allocate(Long.BYTES).putLong(value).array();
+            }
+
+            @Override
+            public Long deserialize(final ByteBuffer buffer) {
+                return buffer.getLong();
+            }
+        };
+    }
+
+    static Serializer<Integer> ints() {
+        return new Serializer<Integer>() {
+            @Override
+            public byte[] serialize(final Integer value) {
+                return ByteBuffer.allocate(Integer.BYTES).putInt(value).array();
+            }
+
+            @Override
+            public Integer deserialize(final ByteBuffer buffer) {
+                return buffer.getInt();
+            }
+        };
+    }
+}
@@ -2,9 +2,13 @@ package com.github.alanzplus.codebox.misc;
 
 public enum SizeEstimator {
     ;
+    private static final long BYTE_SIZE = 1;
+    private static final long SHORT_SIZE = 2;
     private static final long INT_SIZE = 4;
     private static final long LONG_SIZE = 8;
     private static final long REFERENCE_SIZE = 8;
+    private static final long OBJECT_HEADER_SIZE = 16;
+    private static final long ARRAY_HEADER_SIZE = 16;
 
     public static long intArrShallow(final int length) {
         return INT_SIZE * length;
@@ -13,4 +17,62 @@ public enum SizeEstimator {
     public static long refArrShallow(final int length) {
         return REFERENCE_SIZE * length;
     }
+
+    public static long longArrShallow(final int length) {
+        return LONG_SIZE * length;
+    }
+
+    /** An object with the given number of reference and int fields, padded to 8 bytes like the JVM does. */
+    public static long objectShallow(final int referenceFields, final int intFields) {
+        final long size = OBJECT_HEADER_SIZE + REFERENCE_SIZE * referenceFields + INT_SIZE * intFields;
+        return (size + 7) & ~7L;
+    }
+
+    /**
+     * Rough heap footprint of common value types: primitive arrays and strings are measured by their contents, boxed primitives by
+     * their header plus payload, and reference arrays shallowly. Anything else counts as a bare object header.
+     */
+    public static long estimate(final Object o) {
+        if (null == o) {
+            return 0;
+        }
+        if (o instanceof byte[]) {
+            return ARRAY_HEADER_SIZE + BYTE_SIZE * ((byte[]) o).length;
+        }
+        if (o instanceof boolean[]) {
+            return ARRAY_HEADER_SIZE + BYTE_SIZE * ((boolean[]) o).length;
+        }
+        if (o instanceof char[]) {
+            return ARRAY_HEADER_SIZE + SHORT_SIZE * ((char[]) o).length;
+        }
+        if (o instanceof short[]) {
+            return ARRAY_HEADER_SIZE + SHORT_SIZE * ((short[]) o).length;
+        }
+        if (o instanceof int[]) {
+            return ARRAY_HEADER_SIZE + intArrShallow(((int[]) o).length);
+        }
+        if (o instanceof float[]) {
+            return ARRAY_HEADER_SIZE + INT_SIZE * ((float[]) o).length;
+        }
+        if (o instanceof long[]) {
+            return ARRAY_HEADER_SIZE + longArrShallow(((long[]) o).length);
+        }
+        if (o instanceof double[]) {
+            return ARRAY_HEADER_SIZE + LONG_SIZE * ((double[]) o).length;
+        }
+        if (o instanceof Object[]) {
+            return ARRAY_HEADER_SIZE + refArrShallow(((Object[]) o).length);
+        }
+        if (o instanceof String) {
+            // String object (header, hash, array reference) plus its backing array
+            return OBJECT_HEADER_SIZE + INT_SIZE + REFERENCE_SIZE + ARRAY_HEADER_SIZE + SHORT_SIZE * ((String) o).length();
+        }
+        if (o instanceof Long || o instanceof Double) {
+            return OBJECT_HEADER_SIZE + LONG_SIZE;
+        }
+        if (o instanceof Number || o instanceof Character || o instanceof Boolean) {
+            return OBJECT_HEADER_SIZE + INT_SIZE;
+        }
+        return OBJECT_HEADER_SIZE;
+    }
 }
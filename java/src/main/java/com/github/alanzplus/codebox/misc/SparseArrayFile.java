@@ -0,0 +1,303 @@
+package com.github.alanzplus.codebox.misc;
+
+import com.github.alanzplus.codebox.misc.ImmutableSparseArray.BinarySearchBasedBuilder.BinarySearchBasedImpl;
+import com.github.alanzplus.codebox.misc.ImmutableSparseArray.PageBasedBuilder.PageBasedImpl;
+import com.google.common.annotations.VisibleForTesting;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Stores an {@link ImmutableSparseArray} in a file which is queried in place through a memory mapping, so opening it is O(1)
+ * whatever its size, nothing is copied onto the heap, and processes mapping the same file share its pages through the OS page cache.
+ *
+ * <p>The file mirrors the arrays of the in-memory layouts:
+ *
+ * <pre>
+ * header: magic | version | kind | window bits | length or key count | page size | page count | slot count   (8 ints)
+ * index:  pagePtr (int[page count]) for the page based kind, keys (int[key count]) for the binary search based one
+ * slots:  offset in the blob of the value of each slot, -1 for none (long[slot count], 8 byte aligned)
+ * blob:   { value length (int) | serialized value }*
+ * </pre>
+ *
+ * <p>The blob is mapped in windows of {@code 2^windowBits} bytes, 1GB by default, and the writer pads it so that no value straddles
+ * two windows; a single serialized value must therefore fit in a window. The slot offsets are mapped in windows too, so the file is
+ * not limited to the 2GB of a single mapping.
+ */
+public final class SparseArrayFile {
+    static final int MAGIC = 0x53504152;
+    static final int VERSION = 1;
+    static final int PAGE_BASED = 0;
+    static final int BINARY_SEARCH_BASED = 1;
+    private static final int HEADER_BYTES = 8 * Integer.BYTES;
+    private static final int DEFAULT_WINDOW_BITS = 30;
+    private static final int ABSENT = -1;
+    private static final int EMPTY_PAGE = -1;
+
+    private SparseArrayFile() {}
+
+    /**
+     * Writes an array built by {@link ImmutableSparseArray.PageBasedBuilder} or {@link ImmutableSparseArray.BinarySearchBasedBuilder}.
+     * The file is written under a temporary name and renamed, so readers never see a partial file.
+     */
+    public static <V> void write(final ImmutableSparseArray<V> array, final Path file, final Serializer<V> serializer)
+            throws IOException {
+        write(array, file, serializer, DEFAULT_WINDOW_BITS);
+    }
+
+    @VisibleForTesting
+    @SuppressWarnings("unchecked")
+    static <V> void write(
+            final ImmutableSparseArray<V> array, final Path file, final Serializer<V> serializer, final int windowBits)
+            throws IOException {
+        final int kind;
+        final int[] index;
+        final Object[] values;
+        final int[] header;
+        if (array instanceof PageBasedImpl) {
+            final PageBasedImpl<V> pageBased = (PageBasedImpl<V>) array;
+            kind = PAGE_BASED;
+            index = pageBased.pagePtr();
+            values = pageBased.values();
+            header = new int[] {pageBased.length(), pageBased.pageSize(), index.length, values.length};
+        } else if (array instanceof BinarySearchBasedImpl) {
+            final BinarySearchBasedImpl<V> binarySearchBased = (BinarySearchBasedImpl<V>) array;
+            kind = BINARY_SEARCH_BASED;
+            index = binarySearchBased.keys();
+            values = binarySearchBased.values();
+            header = new int[] {index.length, 0, 0, values.length};
+        } else {
+            throw new IllegalArgumentException("cannot write a " + array.getClass().getSimpleName());
+        }
+        final long windowBytes = 1L << windowBits;
+        final long slotsStart = align8(HEADER_BYTES + (long) Integer.BYTES * index.length);
+        final long blobStart = slotsStart + (long) Long.BYTES * values.length;
+        final long[] offsets = new long[values.length];
+        final Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(
+                tmp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            final ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+            // The blob first, at its final position, so that the offsets are known when the slots are written
+            channel.position(blobStart);
+            long blobPosition = 0;
+            for (int slot = 0; slot < values.length; ++slot) {
+                if (null == values[slot]) {
+                    offsets[slot] = ABSENT;
+                    continue;
+                }
+                final byte[] bytes = serializer.serialize((V) values[slot]);
+                final long recordBytes = Integer.BYTES + (long) bytes.length;
+                if (recordBytes > windowBytes) {
+                    throw new IllegalArgumentException(
+                            "value of " + bytes.length + " bytes does not fit a " + windowBytes + " byte window");
+                }
+                final long windowLeft = windowBytes - (blobPosition & (windowBytes - 1));
+                if (recordBytes > windowLeft) {
+                    flush(channel, buffer);
+                    blobPosition += windowLeft;
+                    channel.position(blobStart + blobPosition);
+                }
+                offsets[slot] = blobPosition;
+                putInt(channel, buffer, bytes.length);
+                put(channel, buffer, bytes);
+                blobPosition += recordBytes;
+            }
+            flush(channel, buffer);
+            channel.position(0);
+            for (final int value : new int[] {MAGIC, VERSION, kind, windowBits}) {
+                putInt(channel, buffer, value);
+            }
+            for (final int value : header) {
+                putInt(channel, buffer, value);
+            }
+            for (final int value : index) {
+                putInt(channel, buffer, value);
+            }
+            flush(channel, buffer);
+            channel.position(slotsStart);
+            for (final long offset : offsets) {
+                if (buffer.remaining() < Long.BYTES) {
+                    flush(channel, buffer);
+                }
+                buffer.putLong(offset);
+            }
+            flush(channel, buffer);
+            channel.force(true);
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /** Maps the file; the mapping stays valid after the file is deleted or replaced. */
+    public static <V> ImmutableSparseArray<V> map(final Path file, final Serializer<V> serializer) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            if (size < HEADER_BYTES) {
+                throw new IOException("not a sparse array file: " + file);
+            }
+            final IntBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES).asIntBuffer();
+            if (MAGIC != header.get(0) || VERSION != header.get(1)) {
+                throw new IOException("not a version " + VERSION + " sparse array file: " + file);
+            }
+            final int kind = header.get(2);
+            final int windowBits = header.get(3);
+            final int indexLength = PAGE_BASED == kind ? header.get(6) : header.get(4);
+            final int slotCount = header.get(7);
+            if ((PAGE_BASED != kind && BINARY_SEARCH_BASED != kind) || windowBits < 3 || windowBits > 30
+                    || indexLength < 0 || slotCount < 0) {
+                throw new IOException("corrupted sparse array file: " + file);
+            }
+            final long slotsStart = align8(HEADER_BYTES + (long) Integer.BYTES * indexLength);
+            final long blobStart = slotsStart + (long) Long.BYTES * slotCount;
+            if (blobStart > size) {
+                throw new IOException("truncated sparse array file: " + file);
+            }
+            final IntBuffer index = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES, (long) Integer.BYTES * indexLength)
+                    .asIntBuffer();
+            final LongBuffer[] slots = toLongBuffers(mapWindows(channel, slotsStart, (long) Long.BYTES * slotCount, windowBits));
+            final ByteBuffer[] blob = mapWindows(channel, blobStart, size - blobStart, windowBits);
+            return new MappedImpl<>(kind, header.get(4), header.get(5), index, slots, windowBits - 3, blob, windowBits, serializer);
+        }
+    }
+
+    private static ByteBuffer[] mapWindows(final FileChannel channel, final long start, final long length, final int windowBits)
+            throws IOException {
+        final long windowBytes = 1L << windowBits;
+        final ByteBuffer[] windows = new ByteBuffer[(int) ((length + windowBytes - 1) >>> windowBits)];
+        for (int i = 0; i < windows.length; ++i) {
+            final long offset = (long) i << windowBits;
+            windows[i] = channel.map(FileChannel.MapMode.READ_ONLY, start + offset, Math.min(windowBytes, length - offset));
+        }
+        return windows;
+    }
+
+    private static LongBuffer[] toLongBuffers(final ByteBuffer[] windows) {
+        final LongBuffer[] buffers = new LongBuffer[windows.length];
+        for (int i = 0; i < windows.length; ++i) {
+            buffers[i] = windows[i].asLongBuffer();
+        }
+        return buffers;
+    }
+
+    private static long align8(final long position) {
+        return (position + 7) & ~7L;
+    }
+
+    private static void putInt(final FileChannel channel, final ByteBuffer buffer, final int value) throws IOException {
+        if (buffer.remaining() < Integer.BYTES) {
+            flush(channel, buffer);
+        }
+        buffer.putInt(value);
+    }
+
+    private static void put(final FileChannel channel, final ByteBuffer buffer, final byte[] bytes) throws IOException {
+        if (bytes.length > buffer.capacity()) {
+            flush(channel, buffer);
+            final ByteBuffer wrapped = ByteBuffer.wrap(bytes);
+            while (wrapped.hasRemaining()) {
+                channel.write(wrapped);
+            }
+            return;
+        }
+        if (buffer.remaining() < bytes.length) {
+            flush(channel, buffer);
+        }
+        buffer.put(bytes);
+    }
+
+    private static void flush(final FileChannel channel, final ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /** Reads values straight from the mapping; only the small arrays of buffers live on the heap. */
+    static class MappedImpl<V> implements ImmutableSparseArray<V> {
+        private final int kind;
+        private final int length;
+        private final int pageSize;
+        private final IntBuffer index;
+        private final LongBuffer[] slots;
+        private final int slotWindowBits;
+        private final ByteBuffer[] blob;
+        private final int windowBits;
+        private final Serializer<V> serializer;
+
+        MappedImpl(
+                final int kind,
+                final int length,
+                final int pageSize,
+                final IntBuffer index,
+                final LongBuffer[] slots,
+                final int slotWindowBits,
+                final ByteBuffer[] blob,
+                final int windowBits,
+                final Serializer<V> serializer) {
+            this.kind = kind;
+            this.length = length;
+            this.pageSize = pageSize;
+            this.index = index;
+            this.slots = slots;
+            this.slotWindowBits = slotWindowBits;
+            this.blob = blob;
+            this.windowBits = windowBits;
+            this.serializer = serializer;
+        }
+
+        @Override
+        public V get(final int idx) {
+            final int slot = PAGE_BASED == kind ? pageSlot(idx) : keySlot(idx);
+            if (ABSENT == slot) {
+                return null;
+            }
+            final long offset = slots[slot >>> slotWindowBits].get(slot & ((1 << slotWindowBits) - 1));
+            if (ABSENT == offset) {
+                return null;
+            }
+            final ByteBuffer window = blob[(int) (offset >>> windowBits)];
+            final int position = (int) (offset & ((1L << windowBits) - 1));
+            final int valueLength = window.getInt(position);
+            final ByteBuffer value = window.duplicate();
+            value.limit(position + Integer.BYTES + valueLength).position(position + Integer.BYTES);
+            return serializer.deserialize(value.slice());
+        }
+
+        /** The heap footprint: the buffers, not the mapped file, which lives in the page cache. */
+        @Override
+        public long mem() {
+            return SizeEstimator.refArrShallow(slots.length + blob.length + 2);
+        }
+
+        private int pageSlot(final int idx) {
+            if (idx >= length) {
+                throw new ArrayIndexOutOfBoundsException("idx " + idx + " >= " + length);
+            }
+            final int start = index.get(idx / pageSize);
+            return EMPTY_PAGE == start ? ABSENT : start + idx % pageSize;
+        }
+
+        private int keySlot(final int idx) {
+            int low = 0;
+            int high = index.limit() - 1;
+            while (low <= high) {
+                final int mid = (low + high) >>> 1;
+                final int key = index.get(mid);
+                if (key < idx) {
+                    low = mid + 1;
+                } else if (key > idx) {
+                    high = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return ABSENT;
+        }
+    }
+}
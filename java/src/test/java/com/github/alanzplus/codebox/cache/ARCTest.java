@@ -0,0 +1,85 @@
+package com.github.alanzplus.codebox.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ARCTest {
+    @Test
+    void ghostHits_shouldAdaptTheRecencyTarget() throws Exception {
+        final List<String> removed = new ArrayList<>();
+        final ARC<String, Integer> cache = new ARC<>(2, (key, value, cause) -> removed.add(key + ":" + value + ":" + cause));
+        cache.put("A", 1);
+        cache.put("B", 2);
+        assertThat(cache.get("A")).isEqualTo(1);
+        assertThat(cache.listOf("A")).isEqualTo(ARC.ListType.T2);
+        assertThat(cache.victim().key()).isEqualTo("B");
+
+        cache.put("C", 3);
+        assertThat(cache.listOf("B")).isEqualTo(ARC.ListType.B1);
+        assertThat(cache.get("B")).isNull();
+        assertThat(cache.p()).isEqualTo(0);
+
+        // B was evicted too early from the recency side: T1 should get more room
+        cache.put("B", 20);
+        assertThat(cache.p()).isEqualTo(1);
+        assertThat(cache.listOf("B")).isEqualTo(ARC.ListType.T2);
+        assertThat(cache.get("B")).isEqualTo(20);
+        // T1 is now at its target size of 1, so the frequency side gives up its LRU entry
+        assertThat(cache.listOf("A")).isEqualTo(ARC.ListType.B2);
+        assertThat(cache.listOf("C")).isEqualTo(ARC.ListType.T1);
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(removed).containsExactly("B:2:SIZE", "A:1:SIZE");
+
+        cache.put("A", 10);
+        assertThat(cache.p()).isEqualTo(0);
+    }
+
+    @Test
+    void scan_shouldNotFlushFrequentEntries() throws Exception {
+        final ARC<Integer, Integer> cache = new ARC<>(100);
+        for (int round = 0; round < 2; ++round) {
+            for (int i = 0; i < 50; ++i) {
+                if (null == cache.get(i)) {
+                    cache.put(i, i);
+                }
+            }
+        }
+        for (int i = 1000; i < 11_000; ++i) {
+            cache.put(i, i);
+        }
+        for (int i = 0; i < 50; ++i) {
+            assertThat(cache.get(i)).isEqualTo(i);
+        }
+    }
+
+    @Test
+    void randomWorkload_shouldRespectBounds() throws Exception {
+        final int capacity = 64;
+        final ARC<Integer, Integer> cache = new ARC<>(capacity);
+        final Random random = new Random(7);
+        for (int i = 0; i < 200_000; ++i) {
+            // Alternate between a recency heavy and a frequency heavy phase
+            final int key = 0 == (i / 20_000) % 2 ? random.nextInt(1000) : (int) Math.abs(random.nextGaussian() * 30);
+            final int op = random.nextInt(10);
+            if (op < 6) {
+                final Integer value = cache.get(key);
+                if (null == value) {
+                    cache.put(key, key);
+                } else {
+                    assertThat(value).isEqualTo(key);
+                }
+            } else if (op < 9) {
+                cache.put(key, key);
+            } else {
+                cache.remove(key);
+            }
+            assertThat(cache.size()).isLessThanOrEqualTo(capacity);
+            assertThat(cache.size() + cache.ghostCount()).isLessThanOrEqualTo(2 * capacity);
+            assertThat(cache.p()).isBetween(0, capacity);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.github.alanzplus.codebox.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AsyncCacheTest {
+    @Test
+    void get_shouldShareInFlightLoads() {
+        final AtomicInteger loads = new AtomicInteger();
+        final CompletableFuture<String> load = new CompletableFuture<>();
+        final AsyncCache<String, String> cache = new AsyncCache<>(
+                listener -> new StripedLRU<>(100, 4, listener), key -> {
+                    loads.incrementAndGet();
+                    return load;
+                });
+
+        final CompletableFuture<String> first = cache.get("A");
+        final CompletableFuture<String> second = cache.get("A");
+
+        assertThat(second).isSameAs(first);
+        assertThat(first).isNotDone();
+        load.complete("a");
+        assertThat(first.join()).isEqualTo("a");
+        assertThat(cache.get("A").join()).isEqualTo("a");
+        assertThat(loads.get()).isEqualTo(1);
+    }
+
+    @Test
+    void get_shouldEvictFailedFutures() {
+        final List<CompletableFuture<String>> loads = new ArrayList<>();
+        final AsyncCache<String, String> cache = new AsyncCache<>(
+                listener -> new StripedLRU<>(100, 4, listener), key -> {
+                    final CompletableFuture<String> load = new CompletableFuture<>();
+                    loads.add(load);
+                    return load;
+                });
+
+        final CompletableFuture<String> failed = cache.get("A");
+        loads.get(0).completeExceptionally(new IllegalStateException("boom"));
+
+        assertThat(failed).isCompletedExceptionally();
+        assertThat(cache.getIfPresent("A")).isNull();
+        final CompletableFuture<String> retried = cache.get("A");
+        assertThat(retried).isNotSameAs(failed);
+        loads.get(1).complete("a");
+        assertThat(retried.join()).isEqualTo("a");
+        assertThat(cache.size()).isEqualTo(1);
+    }
+
+    @Test
+    void get_shouldTreatThrowingLoaderAsFailedLoad() {
+        final AsyncCache<String, String> cache = new AsyncCache<>(
+                listener -> new StripedLRU<>(100, 4, listener), key -> {
+                    throw new IllegalArgumentException(key);
+                });
+
+        final CompletableFuture<String> future = cache.get("A");
+
+        assertThatThrownBy(future::get).isInstanceOf(ExecutionException.class).hasCauseInstanceOf(IllegalArgumentException.class);
+        assertThat(cache.size()).isZero();
+        assertThatThrownBy(() -> cache.synchronous().get("B")).isInstanceOf(IllegalArgumentException.class).hasMessage("B");
+    }
+
+    @Test
+    void put_shouldNotLetFailureRemoveReplacingFuture() {
+        final AsyncCache<String, String> cache = new AsyncCache<>(
+                listener -> new StripedLRU<>(100, 4, listener), key -> CompletableFuture.completedFuture(key));
+        final CompletableFuture<String> failing = new CompletableFuture<>();
+        cache.put("A", failing);
+        cache.put("A", CompletableFuture.completedFuture("a"));
+
+        failing.completeExceptionally(new IllegalStateException());
+
+        assertThat(cache.getIfPresent("A").join()).isEqualTo("a");
+    }
+
+    @Test
+    void synchronous_shouldShareEntriesAndReportCompletedValues() {
+        final List<String> removed = new ArrayList<>();
+        final AsyncCache<String, String> cache = new AsyncCache<>(
+                listener -> new StripedLRU<>(2, 1, listener),
+                key -> CompletableFuture.completedFuture(key + "!"),
+                (key, value, cause) -> removed.add(key + "=" + value + ":" + cause));
+        final Cache<String, String> view = cache.synchronous();
+
+        assertThat(view.get("A")).isEqualTo("A!");
+        view.put("B", "b");
+        assertThat(cache.getIfPresent("B").join()).isEqualTo("b");
+        cache.put("C", new CompletableFuture<>());
+        cache.put("D", CompletableFuture.completedFuture("d"));
+
+        assertThat(view.remove("D")).isEqualTo("d");
+        // The pending future of C was evicted without a value, so it is not reported
+        assertThat(removed).containsExactly("A=A!:SIZE", "B=b:SIZE", "D=d:EXPLICIT");
+        assertThat(view.size()).isEqualTo(1);
+        assertThat(view.victim().key()).isEqualTo("C");
+        assertThat(view.victim().value()).isNull();
+    }
+}
@@ -0,0 +1,140 @@
+package com.github.alanzplus.codebox.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AsyncRemovalListenerTest {
+    @Test
+    void notifications_shouldBeDeliveredInBatchesOffTheCallingThread() throws Exception {
+        final List<Runnable> tasks = new ArrayList<>();
+        final List<List<RemovalNotification<Integer, Integer>>> batches = new ArrayList<>();
+        final AsyncRemovalListener<Integer, Integer> listener = new AsyncRemovalListener<>(batches::add, tasks::add, 4);
+        final SimpleLRU<Integer, Integer> cache = new SimpleLRU<>(2, listener);
+        for (int i = 0; i < 12; ++i) {
+            cache.put(i, i);
+        }
+        cache.put(11, 110);
+
+        assertThat(batches).isEmpty();
+        assertThat(tasks).hasSize(1);
+        assertThat(listener.pendingCount()).isEqualTo(11);
+
+        tasks.remove(0).run();
+        assertThat(batches).extracting(List::size).containsExactly(4, 4, 3);
+        assertThat(batches.get(0).get(0).key()).isEqualTo(0);
+        assertThat(batches.get(0).get(0).wasEvicted()).isTrue();
+        assertThat(batches.get(2).get(2).toString()).isEqualTo("11:11:REPLACED");
+        assertThat(tasks).isEmpty();
+
+        cache.remove(10);
+        assertThat(tasks).hasSize(1);
+    }
+
+    @Test
+    void failingConsumer_shouldOnlyDropItsBatch() throws Exception {
+        final List<Runnable> tasks = new ArrayList<>();
+        final List<Integer> delivered = new ArrayList<>();
+        final AtomicInteger calls = new AtomicInteger();
+        final AsyncRemovalListener<Integer, Integer> listener = new AsyncRemovalListener<>(batch -> {
+            if (1 == calls.incrementAndGet()) {
+                throw new IllegalStateException("boom");
+            }
+            batch.forEach(n -> delivered.add(n.key()));
+        }, tasks::add, 1);
+        listener.onRemoval(1, 1, RemovalCause.SIZE);
+        listener.onRemoval(2, 2, RemovalCause.SIZE);
+
+        tasks.remove(0).run();
+        assertThat(tasks).isEmpty();
+        assertThat(delivered).containsExactly(2);
+        assertThat(listener.failedBatchCount()).isEqualTo(1);
+    }
+
+    @Test
+    void failingConsumer_shouldNotFailTheCacheOperationOnADirectExecutor() throws Exception {
+        final List<Integer> delivered = new ArrayList<>();
+        final AsyncRemovalListener<Integer, Integer> listener = new AsyncRemovalListener<>(batch -> {
+            if (1 == batch.get(0).key()) {
+                throw new IllegalStateException("boom");
+            }
+            batch.forEach(n -> delivered.add(n.key()));
+        }, Runnable::run);
+        final SimpleLRU<Integer, Integer> cache = new SimpleLRU<>(1, listener);
+
+        cache.put(1, 1);
+        cache.put(2, 2);
+        cache.put(3, 3);
+
+        assertThat(cache.get(3)).isEqualTo(3);
+        assertThat(delivered).containsExactly(2);
+        assertThat(listener.failedBatchCount()).isEqualTo(1);
+        assertThat(listener.rejectedCount()).isZero();
+        assertThat(listener.pendingCount()).isZero();
+    }
+
+    @Test
+    void rejectedTask_shouldNotFailTheCacheOperation() throws Exception {
+        final AtomicBoolean rejecting = new AtomicBoolean(true);
+        final List<Runnable> tasks = new ArrayList<>();
+        final List<Integer> delivered = new ArrayList<>();
+        final AsyncRemovalListener<Integer, Integer> listener = new AsyncRemovalListener<>(
+                batch -> batch.forEach(notification -> delivered.add(notification.key())),
+                task -> {
+                    if (rejecting.get()) {
+                        throw new RejectedExecutionException("shut down");
+                    }
+                    tasks.add(task);
+                });
+        final SimpleLRU<Integer, Integer> cache = new SimpleLRU<>(1, listener);
+
+        cache.put(1, 1);
+        cache.put(2, 2);
+        cache.put(3, 3);
+
+        assertThat(cache.get(3)).isEqualTo(3);
+        assertThat(cache.size()).isEqualTo(1);
+        assertThat(listener.rejectedCount()).isEqualTo(2);
+        assertThat(listener.pendingCount()).isEqualTo(2);
+
+        rejecting.set(false);
+        cache.put(4, 4);
+        assertThat(tasks).hasSize(1);
+        tasks.remove(0).run();
+        assertThat(delivered).containsExactly(1, 2, 3);
+    }
+
+    @Test
+    void stripedLRU_shouldReportEvictionsOfEverySegment() throws Exception {
+        final int numThreads = 4;
+        final ExecutorService pool = Executors.newFixedThreadPool(numThreads);
+        final AtomicInteger evicted = new AtomicInteger();
+        final CountDownLatch done = new CountDownLatch(1);
+        final int total = 10_000;
+        final int capacity = 100;
+        final AsyncRemovalListener<Integer, Integer> listener = new AsyncRemovalListener<>(batch -> {
+            if (evicted.addAndGet(batch.size()) == total - capacity) {
+                done.countDown();
+            }
+        }, pool);
+        final StripedLRU<Integer, Integer> cache = new StripedLRU<>(capacity, 4, listener);
+        try {
+            for (int i = 0; i < total; ++i) {
+                cache.put(i, i);
+            }
+            assertThat(done.await(10, TimeUnit.SECONDS)).isTrue();
+        } finally {
+            pool.shutdownNow();
+        }
+        assertThat(evicted.get()).isEqualTo(total - cache.size());
+    }
+}
@@ -0,0 +1,148 @@
+package com.github.alanzplus.codebox.cache;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BufferedCacheTest {
+    @Test
+    void readBuffer_shouldDropWhenFull() throws Exception {
+        final BufferedCache.ReadBuffer<Integer> buffer = new BufferedCache.ReadBuffer<>();
+        for (int i = 1; i < BufferedCache.ReadBuffer.FULL; ++i) {
+            assertThat(buffer.offer(i)).isEqualTo(i);
+        }
+        assertThat(buffer.offer(100)).isEqualTo(BufferedCache.ReadBuffer.FULL);
+        assertThat(buffer.offer(101)).isEqualTo(BufferedCache.ReadBuffer.FULL);
+
+        final List<Integer> drained = new ArrayList<>();
+        buffer.drainTo(drained::add);
+        assertThat(drained).hasSize(BufferedCache.ReadBuffer.FULL).startsWith(1, 2, 3).endsWith(100);
+
+        assertThat(buffer.offer(7)).isEqualTo(1);
+    }
+
+    @Test
+    void bufferedHits_shouldBeReplayedAgainstLRU() throws Exception {
+        final BufferedCache<Integer, Integer> cache = new BufferedCache<>(listener -> new SimpleLRU<>(3, listener));
+        cache.put(1, 1);
+        cache.put(2, 2);
+        cache.put(3, 3);
+
+        assertThat(cache.get(1)).isEqualTo(1);
+        assertThat(cache.victim().key()).isEqualTo(2);
+
+        cache.put(4, 4);
+        assertThat(cache.size()).isEqualTo(3);
+        assertThat(cache.get(2)).isNull();
+        assertThat(cache.get(1)).isEqualTo(1);
+        assertThat(cache.get(4)).isEqualTo(4);
+    }
+
+    @Test
+    void getAll_shouldReplayEveryHitWhenTheLockIsFree() throws Exception {
+        final BufferedCache<Integer, Integer> cache = new BufferedCache<>(listener -> new SimpleLRU<>(100, listener));
+        final Map<Integer, Integer> entries = new LinkedHashMap<>();
+        for (int i = 0; i < 100; ++i) {
+            entries.put(i, i);
+        }
+        cache.putAll(entries);
+        assertThat(cache.victim().key()).isEqualTo(0);
+
+        final List<Integer> keys = new ArrayList<>();
+        for (int i = 0; i < 50; ++i) {
+            keys.add(i);
+        }
+        assertThat(cache.getAll(keys)).hasSize(50);
+        // Far more hits than the read buffers could hold, yet none of them was dropped
+        assertThat(cache.victim().key()).isEqualTo(50);
+        assertThat(cache.getAll(Arrays.asList(-1, 99))).containsOnlyKeys(99);
+    }
+
+    @Test
+    void bufferedHits_shouldBeReplayedAgainstLFU() throws Exception {
+        final BufferedCache<String, Integer> cache = new BufferedCache<>(listener -> new FastLFU<>(2, listener));
+        cache.put("A", 1);
+        cache.put("B", 2);
+        cache.get("A");
+        cache.get("A");
+        cache.get("B");
+        cache.cleanUp();
+
+        final FastLFU<String, Integer> lfu = (FastLFU<String, Integer>) cache.policy();
+        assertThat(lfu.cache().get("A").freqNode.freq).isEqualTo(2);
+        assertThat(lfu.cache().get("B").freqNode.freq).isEqualTo(1);
+
+        cache.put("A", 10);
+        assertThat(lfu.cache().get("A").freqNode.freq).isEqualTo(2);
+        assertThat(cache.get("A")).isEqualTo(10);
+
+        cache.put("C", 3);
+        assertThat(cache.get("B")).isNull();
+        assertThat(cache.size()).isEqualTo(2);
+    }
+
+    @Test
+    void failingPolicy_shouldNotLeaveAnUntrackedEntry() throws Exception {
+        final BufferedCache<Integer, Integer> cache = new BufferedCache<>(listener -> new SimpleLRU<>(2, (key, value) -> {
+            if (value < 0) {
+                throw new IllegalArgumentException("negative value " + value);
+            }
+            return 1;
+        }, listener));
+        cache.put(1, 1);
+
+        assertThatThrownBy(() -> cache.put(2, -2)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> cache.put(1, -1)).isInstanceOf(IllegalArgumentException.class);
+        assertThat(cache.get(2)).isNull();
+        assertThat(cache.get(1)).isEqualTo(1);
+        assertThat(cache.size()).isEqualTo(1);
+
+        cache.put(3, 3);
+        cache.put(4, 4);
+        assertThat(cache.get(1)).isNull();
+        assertThat(cache.getAll(Arrays.asList(1, 2, 3, 4))).containsOnlyKeys(3, 4);
+    }
+
+    @Test
+    void concurrentAccess() throws Exception {
+        final int cap = 100;
+        final BufferedCache<Integer, Integer> cache = new BufferedCache<>(listener -> new SimpleLRU<>(cap, listener));
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; ++t) {
+                final long seed = t;
+                futures.add(executor.submit(() -> {
+                    final Random random = new Random(seed);
+                    for (int i = 0; i < 20_000; ++i) {
+                        final int key = random.nextInt(cap * 2);
+                        final Integer value = cache.get(key);
+                        if (null == value) {
+                            cache.put(key, key);
+                        } else {
+                            assertThat(value).isEqualTo(key);
+                        }
+                    }
+                }));
+            }
+            for (final Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        cache.cleanUp();
+        assertThat(cache.size()).isEqualTo(cap);
+        assertThat(cache.policy().size()).isEqualTo(cap);
+    }
+}
@@ -0,0 +1,86 @@
+package com.github.alanzplus.codebox.cache;
+
+import com.github.alanzplus.codebox.misc.Serializer;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CacheSnapshotTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void restore_shouldRecreateRecencyOrder() throws Exception {
+        final SimpleLRU<String, String> cache = new SimpleLRU<>(1000);
+        for (int i = 0; i < 1000; ++i) {
+            cache.put("key" + i, "value" + i);
+        }
+        for (int i = 0; i < 1000; i += 3) {
+            cache.get("key" + i);
+        }
+        final Path file = dir.resolve("lru.snapshot");
+        assertThat(CacheSnapshot.write(cache, file, Serializer.utf8(), Serializer.utf8())).isEqualTo(1000);
+        assertThat(Files.exists(dir.resolve("lru.snapshot.tmp"))).isFalse();
+
+        // A tiny window forces many remappings, with entries straddling window boundaries
+        final SimpleLRU<String, String> restored = new SimpleLRU<>(1000);
+        assertThat(CacheSnapshot.restore(file, restored, Serializer.utf8(), Serializer.utf8(), 100)).isEqualTo(1000);
+        assertThat(keys(restored)).isEqualTo(keys(cache));
+        assertThat(restored.get("key999")).isEqualTo("value999");
+    }
+
+    @Test
+    void restore_shouldHandleEntriesLargerThanTheWindow() throws Exception {
+        final FastLFU<Long, byte[]> cache = new FastLFU<>(10);
+        for (long i = 0; i < 10; ++i) {
+            cache.put(i, new byte[(int) i * 100]);
+            for (int j = 0; j < i; ++j) {
+                cache.get(i);
+            }
+        }
+        final Path file = dir.resolve("lfu.snapshot");
+        CacheSnapshot.write(cache, file, Serializer.longs(), Serializer.bytes());
+
+        final SimpleLRU<Long, byte[]> restored = new SimpleLRU<>(10);
+        assertThat(CacheSnapshot.restore(file, restored, Serializer.longs(), Serializer.bytes(), 64)).isEqualTo(10);
+        assertThat(restored.victim().key()).isEqualTo(0L);
+        assertThat(restored.get(9L)).hasSize(900);
+    }
+
+    @Test
+    void restore_shouldRejectDamagedFiles() throws Exception {
+        final SimpleLRU<String, String> cache = new SimpleLRU<>(10);
+        cache.put("A", "a");
+        cache.put("B", "b");
+        final Path file = dir.resolve("damaged.snapshot");
+        CacheSnapshot.write(cache, file, Serializer.utf8(), Serializer.utf8());
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(Files.size(file) - 1);
+        }
+        assertThatThrownBy(() -> CacheSnapshot.restore(file, new SimpleLRU<>(10), Serializer.utf8(), Serializer.utf8()))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("truncated");
+
+        Files.write(file, "not a snapshot at all".getBytes());
+        assertThatThrownBy(() -> CacheSnapshot.restore(file, new SimpleLRU<>(10), Serializer.utf8(), Serializer.utf8()))
+                .isInstanceOf(IOException.class);
+    }
+
+    private static <K, V> List<K> keys(final Cache<K, V> cache) {
+        final List<K> keys = new ArrayList<>();
+        for (final Iterator<Cache.Entry<K, V>> it = cache.evictionOrder(); it.hasNext(); ) {
+            keys.add(it.next().key());
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,96 @@
+package com.github.alanzplus.codebox.cache;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ClockCacheTest {
+    @Test
+    void referencedEntries_shouldGetASecondChance() throws Exception {
+        final List<String> removed = new ArrayList<>();
+        final ClockCache<String, Integer> cache = new ClockCache<>(3, (key, value, cause) -> removed.add(key + ":" + cause));
+        cache.put("A", 1);
+        cache.put("B", 2);
+        cache.put("C", 3);
+        assertThat(cache.get("A")).isEqualTo(1);
+        assertThat(cache.isReferenced("A")).isTrue();
+        assertThat(cache.victim().key()).isEqualTo("B");
+
+        cache.put("D", 4);
+        assertThat(cache.get("B")).isNull();
+        assertThat(cache.isReferenced("A")).isFalse();
+        assertThat(cache.hand()).isEqualTo(2);
+
+        cache.put("E", 5);
+        assertThat(cache.get("C")).isNull();
+        assertThat(removed).containsExactly("B:SIZE", "C:SIZE");
+
+        assertThat(cache.remove("A")).isEqualTo(1);
+        cache.put("F", 6);
+        assertThat(cache.size()).isEqualTo(3);
+        assertThat(removed).containsExactly("B:SIZE", "C:SIZE", "A:EXPLICIT");
+    }
+
+    @Test
+    void randomWorkload_shouldAgreeWithModel() throws Exception {
+        final Map<Integer, Integer> model = new HashMap<>();
+        final ClockCache<Integer, Integer> cache = new ClockCache<>(100, (key, value, cause) -> {
+            if (RemovalCause.REPLACED != cause) {
+                assertThat(model.remove(key)).isEqualTo(value);
+            }
+        });
+        final Random random = new Random(3);
+        for (int i = 0; i < 200_000; ++i) {
+            final int key = random.nextInt(500);
+            final int op = random.nextInt(10);
+            if (op < 5) {
+                assertThat(cache.get(key)).isEqualTo(model.get(key));
+            } else if (op < 9) {
+                cache.put(key, i);
+                model.put(key, i);
+            } else {
+                cache.remove(key);
+            }
+            assertThat(cache.size()).isEqualTo(model.size()).isLessThanOrEqualTo(100);
+        }
+    }
+
+    @Test
+    void concurrentAccess() throws Exception {
+        final ClockCache<Integer, Integer> cache = new ClockCache<>(1000);
+        final int numThreads = 8;
+        final ExecutorService pool = Executors.newFixedThreadPool(numThreads);
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < numThreads; ++t) {
+                final int seed = t;
+                futures.add(pool.submit(() -> {
+                    final Random random = new Random(seed);
+                    for (int i = 0; i < 100_000; ++i) {
+                        final int key = random.nextInt(2000);
+                        if (0 == seed % 4) {
+                            cache.put(key, -key);
+                        } else {
+                            final Integer value = cache.get(key);
+                            assertThat(null == value || value == -key).isTrue();
+                        }
+                    }
+                }));
+            }
+            for (final Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        assertThat(cache.size()).isEqualTo(1000);
+    }
+}
@@ -0,0 +1,72 @@
+package com.github.alanzplus.codebox.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DecayingLFUTest {
+    @Test
+    void victim_shouldBeLeastRecentlyUsedOfTheLeastFrequent() throws Exception {
+        final List<String> removed = new ArrayList<>();
+        final DecayingLFU<String, Integer> cache =
+                new DecayingLFU<>(3, 1000, (key, value, cause) -> removed.add(key + ":" + cause));
+        cache.put("A", 1);
+        cache.put("B", 2);
+        cache.put("C", 3);
+        cache.get("A");
+        assertThat(cache.victim().key()).isEqualTo("B");
+
+        cache.put("D", 4);
+        assertThat(cache.get("B")).isNull();
+        cache.get("C");
+        assertThat(cache.victim().key()).isEqualTo("D");
+
+        cache.put("A", 10);
+        assertThat(cache.cache().get("A").frequency).isEqualTo(2);
+        assertThat(cache.remove("D")).isEqualTo(4);
+        assertThat(cache.victim().key()).isEqualTo("C");
+        assertThat(removed).containsExactly("B:SIZE", "A:REPLACED", "D:EXPLICIT");
+        assertThat(cache.evictionOrder()).toIterable().extracting(Cache.Entry::key).containsExactly("C", "A");
+        assertThatThrownBy(() -> new DecayingLFU<>(0)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void frequency_shouldSaturate() throws Exception {
+        final DecayingLFU<String, Integer> cache = new DecayingLFU<>(2, Integer.MAX_VALUE, RemovalListener.noop());
+        cache.put("A", 1);
+        for (int i = 0; i < 10_000; ++i) {
+            assertThat(cache.get("A")).isEqualTo(1);
+        }
+        assertThat(cache.cache().get("A").frequency).isEqualTo(DecayingLFU.MAX_FREQUENCY);
+    }
+
+    @Test
+    void formerlyHotEntry_shouldAgeOut() throws Exception {
+        final DecayingLFU<Integer, Integer> cache = new DecayingLFU<>(10, 100, RemovalListener.noop());
+        cache.put(-1, -1);
+        for (int i = 0; i < 90; ++i) {
+            cache.get(-1);
+        }
+        assertThat(cache.cache().get(-1).frequency).isEqualTo(90);
+
+        // A new working set, each key read a few times per aging period, while the old hot key is never read again
+        for (int round = 0; round < 40; ++round) {
+            for (int key = 0; key < 9; ++key) {
+                if (null == cache.get(key)) {
+                    cache.put(key, key);
+                }
+                cache.get(key);
+            }
+        }
+        assertThat(cache.cache().get(-1).frequency).isEqualTo(0);
+        cache.put(100, 100);
+        cache.put(101, 101);
+        assertThat(cache.get(-1)).isNull();
+        for (int key = 0; key < 9; ++key) {
+            assertThat(cache.cache()).containsKey(key);
+        }
+    }
+}
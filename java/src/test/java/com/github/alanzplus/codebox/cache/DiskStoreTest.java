@@ -0,0 +1,97 @@
+package com.github.alanzplus.codebox.cache;
+
+import com.github.alanzplus.codebox.misc.Serializer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DiskStoreTest {
+    // 8 byte header + 8 byte key + 16 byte value
+    private static final int RECORD_BYTES = 32;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void put_shouldOverwriteAndRemove() throws Exception {
+        try (DiskStore<Long, String> store = store(4, 4, RemovalListener.noop())) {
+            store.put(1L, value(1));
+            store.put(2L, value(2));
+            store.put(1L, value(3));
+
+            assertThat(store.get(1L)).isEqualTo(value(3));
+            assertThat(store.remove(2L)).isEqualTo(value(2));
+            assertThat(store.get(2L)).isNull();
+            assertThat(store.size()).isEqualTo(1);
+            assertThat(store.liveBytes()).isEqualTo(RECORD_BYTES);
+        }
+    }
+
+    @Test
+    void roll_shouldCompactSparseSegmentsInsteadOfDroppingEntries() throws Exception {
+        final List<Long> evicted = new ArrayList<>();
+        try (DiskStore<Long, String> store = store(4, 2, (key, value, cause) -> evicted.add(key))) {
+            // Overwriting the same 2 keys fills segments with garbage only
+            for (int i = 0; i < 100; ++i) {
+                store.put((long) (i % 2), value(i));
+            }
+
+            assertThat(evicted).isEmpty();
+            assertThat(store.compactions()).isPositive();
+            assertThat(store.segmentCount()).isLessThanOrEqualTo(2);
+            assertThat(store.get(0L)).isEqualTo(value(98));
+            assertThat(store.get(1L)).isEqualTo(value(99));
+        }
+    }
+
+    @Test
+    void roll_shouldDropOldestSegmentWhenSegmentsAreLive() throws Exception {
+        final List<Long> evicted = new ArrayList<>();
+        try (DiskStore<Long, String> store = store(4, 3, (key, value, cause) -> evicted.add(key))) {
+            for (long i = 0; i < 16; ++i) {
+                store.put(i, value((int) i));
+            }
+
+            assertThat(evicted).containsExactly(0L, 1L, 2L, 3L);
+            assertThat(store.size()).isEqualTo(12);
+            assertThat(store.get(0L)).isNull();
+            assertThat(store.get(15L)).isEqualTo(value(15));
+        }
+    }
+
+    @Test
+    void close_shouldDeleteSegmentFiles() throws Exception {
+        final DiskStore<Long, String> store = store(4, 3, RemovalListener.noop());
+        for (long i = 0; i < 10; ++i) {
+            store.put(i, value((int) i));
+        }
+        assertThat(list()).hasSize(3);
+
+        store.close();
+
+        assertThat(list()).isEmpty();
+    }
+
+    private DiskStore<Long, String> store(
+            final int recordsPerSegment, final int maxSegments, final RemovalListener<Long, String> listener) {
+        return new DiskStore<>(dir, recordsPerSegment * RECORD_BYTES, maxSegments, DiskStore.DEFAULT_COMPACTION_THRESHOLD,
+                Serializer.longs(), Serializer.utf8(), listener);
+    }
+
+    private List<Path> list() throws Exception {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.collect(Collectors.toList());
+        }
+    }
+
+    private static String value(final int i) {
+        return String.format("value-%010d", i);
+    }
+}
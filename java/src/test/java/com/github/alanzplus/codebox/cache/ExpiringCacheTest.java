@@ -0,0 +1,113 @@
+package com.github.alanzplus.codebox.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ExpiringCacheTest {
+    private final AtomicLong nanos = new AtomicLong(TimeUnit.DAYS.toNanos(1000));
+    private final List<String> removed = new ArrayList<>();
+
+    @Test
+    void expireAfterWrite() throws Exception {
+        final ExpiringCache<String, Integer> cache = cache(ExpiringCache.Expiry.AFTER_WRITE, 10, TimeUnit.SECONDS, 100);
+        cache.put("A", 1);
+        tick(5, TimeUnit.SECONDS);
+        assertThat(cache.get("A")).isEqualTo(1);
+        tick(5, TimeUnit.SECONDS);
+        assertThat(cache.get("A")).isNull();
+        assertThat(removed).containsExactly("A:1:EXPIRED");
+        assertThat(cache.size()).isEqualTo(0);
+        assertThat(cache.timers()).isEmpty();
+    }
+
+    @Test
+    void expireAfterAccess() throws Exception {
+        final ExpiringCache<String, Integer> cache = cache(ExpiringCache.Expiry.AFTER_ACCESS, 10, TimeUnit.SECONDS, 100);
+        cache.put("A", 1);
+        for (int i = 0; i < 12; ++i) {
+            tick(5, TimeUnit.SECONDS);
+            assertThat(cache.get("A")).isEqualTo(1);
+        }
+        tick(11, TimeUnit.SECONDS);
+        cache.cleanUp();
+        assertThat(removed).containsExactly("A:1:EXPIRED");
+    }
+
+    @Test
+    void unreadEntries_shouldBeReclaimedByLaterOperations() throws Exception {
+        final ExpiringCache<Integer, Integer> cache = cache(ExpiringCache.Expiry.AFTER_WRITE, 1, TimeUnit.MINUTES, 1000);
+        for (int i = 0; i < 100; ++i) {
+            cache.put(i, i);
+        }
+        tick(30, TimeUnit.SECONDS);
+        cache.put(100, 100);
+        assertThat(cache.size()).isEqualTo(101);
+
+        tick(40, TimeUnit.SECONDS);
+        cache.put(101, 101);
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(removed).hasSize(100).allMatch(r -> r.endsWith(":EXPIRED"));
+    }
+
+    @Test
+    void timers_shouldCascadeThroughEveryLevel() throws Exception {
+        final ExpiringCache<Long, Long> cache = cache(ExpiringCache.Expiry.AFTER_WRITE, 1, TimeUnit.SECONDS, 100);
+        final long[] delays = {
+            TimeUnit.SECONDS.toNanos(30),
+            TimeUnit.MINUTES.toNanos(10),
+            TimeUnit.HOURS.toNanos(5),
+            TimeUnit.DAYS.toNanos(3),
+            TimeUnit.DAYS.toNanos(30),
+        };
+        final long start = nanos.get();
+        final TimerWheel<Long> wheel = cache.wheel();
+        for (int level = 0; level < delays.length; ++level) {
+            final TimerWheel.Timer<Long> timer = new TimerWheel.Timer<>((long) level, start + delays[level]);
+            wheel.schedule(timer);
+            assertThat(wheel.levelOf(timer)).isEqualTo(level);
+        }
+
+        final List<Long> expired = new ArrayList<>();
+        for (int level = 0; level < delays.length; ++level) {
+            wheel.advance(start + delays[level] - TimeUnit.SECONDS.toNanos(2), t -> expired.add(t.key));
+            assertThat(expired).hasSize(level);
+            wheel.advance(start + delays[level] + TimeUnit.SECONDS.toNanos(2), t -> expired.add(t.key));
+            assertThat(expired).hasSize(level + 1).endsWith((long) level);
+        }
+    }
+
+    @Test
+    void sizeEviction_shouldDropTheTimer() throws Exception {
+        final ExpiringCache<String, Integer> cache = cache(ExpiringCache.Expiry.AFTER_WRITE, 10, TimeUnit.SECONDS, 2);
+        cache.put("A", 1);
+        cache.put("B", 2);
+        cache.put("A", 10);
+        cache.put("C", 3);
+        assertThat(removed).containsExactly("A:1:REPLACED", "B:2:SIZE");
+        assertThat(cache.timers()).containsOnlyKeys("A", "C");
+
+        assertThat(cache.remove("A")).isEqualTo(10);
+        assertThat(removed).endsWith("A:10:EXPLICIT");
+        assertThat(cache.timers()).containsOnlyKeys("C");
+    }
+
+    private <K, V> ExpiringCache<K, V> cache(
+            final ExpiringCache.Expiry expiry, final long duration, final TimeUnit unit, final int capacity) {
+        return new ExpiringCache<>(
+                listener -> new SimpleLRU<>(capacity, listener),
+                expiry,
+                duration,
+                unit,
+                nanos::get,
+                (key, value, cause) -> removed.add(key + ":" + value + ":" + cause));
+    }
+
+    private void tick(final long duration, final TimeUnit unit) {
+        nanos.addAndGet(unit.toNanos(duration));
+    }
+}
@@ -1,5 +1,7 @@
 package com.github.alanzplus.codebox.cache;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import org.junit.jupiter.api.Test;
 
@@ -123,4 +125,45 @@ class FastLFUTest {
         assertThat(internal.get("D").freqNode.freq).isEqualTo(0);
         assertThat(internal.get("B").freqNode).isSameAs(internal.get("D").freqNode.next);
     }
+
+    @Test
+    void put_existingKey_shouldKeepFrequency() throws Exception {
+        final List<String> removed = new ArrayList<>();
+        final FastLFU<String, Integer> cache = new FastLFU<>(2, (key, value, cause) -> removed.add(key + ":" + value + ":" + cause));
+        final Map<String, FastLFU.CacheNode<String, Integer>> internal = cache.cache();
+
+        cache.put("A", 1);
+        cache.put("B", 2);
+        cache.get("A");
+        cache.put("A", 10);
+
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(internal.get("A").freqNode.freq).isEqualTo(1);
+        assertThat(internal.get("A").freqNode.set).hasSize(1);
+        assertThat(cache.get("A")).isEqualTo(10);
+        assertThat(cache.victim().key()).isEqualTo("B");
+
+        cache.put("C", 3);
+        assertThat(removed).containsExactly("A:1:REPLACED", "B:2:SIZE");
+    }
+
+    @Test
+    void weigher_shouldEvictLeastFrequentUntilTheNewEntryFits() throws Exception {
+        final FastLFU<String, String> cache = new FastLFU<>(10, (key, value) -> value.length());
+        cache.put("A", "aaaa");
+        cache.put("B", "bbbb");
+        cache.get("A");
+        cache.put("C", "cc");
+        assertThat(cache.weightedSize()).isEqualTo(10);
+
+        cache.put("D", "dddddd");
+        assertThat(cache.get("B")).isNull();
+        assertThat(cache.get("C")).isNull();
+        assertThat(cache.get("A")).isEqualTo("aaaa");
+        assertThat(cache.weightedSize()).isEqualTo(10);
+
+        cache.put("A", "aaaaaaa");
+        assertThat(cache.get("D")).isNull();
+        assertThat(cache.weightedSize()).isEqualTo(7);
+    }
 }
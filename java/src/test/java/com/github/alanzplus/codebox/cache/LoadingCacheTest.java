@@ -0,0 +1,243 @@
+package com.github.alanzplus.codebox.cache;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LoadingCacheTest {
+    @Test
+    void concurrentMisses_shouldShareOneLoad() throws Exception {
+        final AtomicInteger loads = new AtomicInteger();
+        final CountDownLatch release = new CountDownLatch(1);
+        final LoadingCache<String, String> cache = new LoadingCache<>(
+                listener -> new BufferedCache<>(l -> new SimpleLRU<>(100, l), listener),
+                key -> {
+                    loads.incrementAndGet();
+                    try {
+                        release.await();
+                    } catch (final InterruptedException e) {
+                        throw new IllegalStateException(e);
+                    }
+                    return key + "!";
+                });
+
+        final int numThreads = 16;
+        final ExecutorService pool = Executors.newFixedThreadPool(numThreads);
+        try {
+            final List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < numThreads; ++i) {
+                results.add(pool.submit(() -> cache.get("A")));
+            }
+            while (cache.inFlight().isEmpty()) {
+                Thread.yield();
+            }
+            Thread.sleep(50);
+            release.countDown();
+            for (final Future<String> result : results) {
+                assertThat(result.get(10, TimeUnit.SECONDS)).isEqualTo("A!");
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        assertThat(loads.get()).isEqualTo(1);
+        assertThat(cache.inFlight()).isEmpty();
+        assertThat(cache.getIfPresent("A")).isEqualTo("A!");
+    }
+
+    @Test
+    void failedLoad_shouldNotBeCached() throws Exception {
+        final AtomicInteger loads = new AtomicInteger();
+        final LoadingCache<String, String> cache = new LoadingCache<>(
+                listener -> new BufferedCache<>(l -> new SimpleLRU<>(100, l), listener),
+                key -> {
+                    if (1 == loads.incrementAndGet()) {
+                        throw new IllegalStateException("boom");
+                    }
+                    return key + "!";
+                },
+                0,
+                TimeUnit.SECONDS,
+                Runnable::run,
+                Ticker.systemTicker(),
+                RemovalListener.noop(),
+                StatsCounter.concurrent());
+
+        assertThatThrownBy(() -> cache.get("A")).isInstanceOf(IllegalStateException.class).hasMessage("boom");
+        assertThat(cache.getIfPresent("A")).isNull();
+        assertThat(cache.get("A")).isEqualTo("A!");
+        assertThat(cache.get("B", key -> null)).isNull();
+        assertThat(cache.size()).isEqualTo(1);
+        assertThat(cache.get("A")).isEqualTo("A!");
+
+        final CacheStats stats = cache.stats();
+        assertThat(stats.hitCount()).isEqualTo(1);
+        assertThat(stats.missCount()).isEqualTo(3);
+        assertThat(stats.loadSuccessCount()).isEqualTo(2);
+        assertThat(stats.loadFailureCount()).isEqualTo(1);
+    }
+
+    @Test
+    void getAll_shouldLoadAllMissesInOneCall() throws Exception {
+        final List<Set<String>> batches = new ArrayList<>();
+        final LoadingCache<String, String> cache = new LoadingCache<>(
+                listener -> new BufferedCache<>(l -> new SimpleLRU<>(100, l), listener), key -> key + "!");
+        cache.put("A", "a");
+
+        final Map<String, String> found = cache.getAll(Arrays.asList("A", "B", "C", "D"), missing -> {
+            batches.add(new HashSet<>(missing));
+            final Map<String, String> loaded = new HashMap<>();
+            for (final String key : missing) {
+                if (!"D".equals(key)) {
+                    loaded.put(key, key.toLowerCase());
+                }
+            }
+            return loaded;
+        });
+
+        assertThat(batches).containsExactly(new HashSet<>(Arrays.asList("B", "C", "D")));
+        assertThat(found).containsOnlyKeys("A", "B", "C");
+        assertThat(cache.getIfPresent("C")).isEqualTo("c");
+        assertThat(cache.getAll(Arrays.asList("C", "D"))).containsOnlyKeys("C", "D").containsEntry("D", "D!");
+        assertThat(cache.inFlight()).isEmpty();
+    }
+
+    @Test
+    void refreshAfterWrite_shouldServeStaleValueWhileReloading() throws Exception {
+        final AtomicLong nanos = new AtomicLong();
+        final AtomicInteger version = new AtomicInteger();
+        final List<Runnable> tasks = new ArrayList<>();
+        final LoadingCache<String, String> cache = new LoadingCache<>(
+                listener -> new BufferedCache<>(l -> new SimpleLRU<>(2, l), listener),
+                key -> key + version.incrementAndGet(),
+                1,
+                TimeUnit.MINUTES,
+                tasks::add,
+                nanos::get,
+                RemovalListener.noop());
+
+        assertThat(cache.get("A")).isEqualTo("A1");
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(30));
+        assertThat(cache.get("A")).isEqualTo("A1");
+        assertThat(tasks).isEmpty();
+
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(31));
+        assertThat(cache.get("A")).isEqualTo("A1");
+        assertThat(cache.get("A")).isEqualTo("A1");
+        assertThat(tasks).hasSize(1);
+
+        tasks.remove(0).run();
+        assertThat(cache.get("A")).isEqualTo("A2");
+        assertThat(cache.inFlight()).isEmpty();
+        assertThat(cache.writeTimes()).containsEntry("A", nanos.get());
+
+        cache.put("B", "B");
+        cache.put("C", "C");
+        assertThat(cache.writeTimes()).containsOnlyKeys("B", "C");
+    }
+
+    @Test
+    void putOrRemoveDuringLoad_shouldWinOverTheLoadedValue() throws Exception {
+        final AtomicLong nanos = new AtomicLong();
+        final AtomicInteger version = new AtomicInteger();
+        final List<Runnable> tasks = new ArrayList<>();
+        final LoadingCache<String, String> cache = new LoadingCache<>(
+                listener -> new BufferedCache<>(l -> new SimpleLRU<>(2, l), listener),
+                key -> key + version.incrementAndGet(),
+                1,
+                TimeUnit.MINUTES,
+                tasks::add,
+                nanos::get,
+                RemovalListener.noop());
+
+        // A put while the refresh is running keeps the newer value
+        assertThat(cache.get("A")).isEqualTo("A1");
+        nanos.addAndGet(TimeUnit.MINUTES.toNanos(2));
+        assertThat(cache.get("A")).isEqualTo("A1");
+        cache.put("A", "put");
+        tasks.remove(0).run();
+        assertThat(cache.get("A")).isEqualTo("put");
+        assertThat(cache.inFlight()).isEmpty();
+
+        // A remove while the refresh is running keeps the key absent
+        nanos.addAndGet(TimeUnit.MINUTES.toNanos(2));
+        assertThat(cache.get("A")).isEqualTo("put");
+        cache.remove("A");
+        tasks.remove(0).run();
+        assertThat(cache.size()).isZero();
+        assertThat(cache.inFlight()).isEmpty();
+        assertThat(tasks).isEmpty();
+
+        // The same holds for a load on a miss; its caller still gets the loaded value
+        final CountDownLatch loading = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final LoadingCache<String, String> slow = new LoadingCache<>(
+                listener -> new BufferedCache<>(l -> new SimpleLRU<>(2, l), listener),
+                key -> {
+                    loading.countDown();
+                    try {
+                        release.await();
+                    } catch (final InterruptedException e) {
+                        throw new IllegalStateException(e);
+                    }
+                    return key + "-loaded";
+                });
+        final ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            final Future<String> miss = pool.submit(() -> slow.get("B"));
+            loading.await();
+            slow.put("B", "put");
+            release.countDown();
+            assertThat(miss.get()).isEqualTo("B-loaded");
+            assertThat(slow.get("B")).isEqualTo("put");
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void writeTimes_shouldOnlyBeKeptWhenRefreshingOrSamplingEvictionAges() throws Exception {
+        final LoadingCache<Integer, Integer> plain = new LoadingCache<>(
+                listener -> new BufferedCache<>(l -> new SimpleLRU<>(100, l), listener), key -> key);
+        for (int i = 0; i < 1000; ++i) {
+            plain.get(i);
+        }
+        plain.putAll(Collections.singletonMap(-1, -1));
+        assertThat(plain.writeTimes()).isEmpty();
+
+        final AtomicLong nanos = new AtomicLong();
+        final LoadingCache<Integer, Integer> stats = new LoadingCache<>(
+                listener -> new BufferedCache<>(l -> new SimpleLRU<>(100, l), listener),
+                key -> key,
+                0,
+                TimeUnit.SECONDS,
+                Runnable::run,
+                nanos::get,
+                RemovalListener.noop(),
+                StatsCounter.concurrent());
+        for (int i = 0; i < 10_000; ++i) {
+            stats.get(i);
+            nanos.incrementAndGet();
+        }
+        assertThat(stats.writeTimes().keySet()).isNotEmpty().allMatch(StatsCache::isSampled);
+        assertThat(stats.writeTimes().size()).isLessThanOrEqualTo(100);
+        assertThat(stats.stats().evictionCount()).isEqualTo(9_900);
+        assertThat(stats.stats().evictionAgeSampleCount()).isBetween(9_900L / StatsCache.AGE_SAMPLE_RATE / 2, 9_900L);
+        assertThat(stats.stats().evictionAgePercentile(50)).isBetween(100L, 255L);
+    }
+}
@@ -0,0 +1,75 @@
+package com.github.alanzplus.codebox.cache;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LongLRUTest {
+    @Test
+    void putAndGet_shouldFollowLRUOrder() throws Exception {
+        final List<String> removed = new ArrayList<>();
+        final LongLRU<String> lru = new LongLRU<>(3, (key, value, cause) -> removed.add(key + ":" + value + ":" + cause));
+        assertThat(lru.get(1L)).isNull();
+        assertThat(lru.victim()).isNull();
+
+        lru.put(1L, "a");
+        lru.put(2L, "b");
+        lru.put(3L, "c");
+        assertThat(lru.victim().key()).isEqualTo(1L);
+        assertThat(lru.get(1L)).isEqualTo("a");
+        assertThat(lru.victim().key()).isEqualTo(2L);
+
+        lru.put(3L, "C");
+        lru.put(4L, "d");
+        assertThat(removed).containsExactly("3:c:REPLACED", "2:b:SIZE");
+        assertThat(lru.size()).isEqualTo(3);
+        assertThat(lru.get(2L)).isNull();
+        assertThat(lru.get(3L)).isEqualTo("C");
+        assertThat(lru.get(4L)).isEqualTo("d");
+    }
+
+    @Test
+    void mem_shouldBeAFewWordsPerEntry() throws Exception {
+        final LongLRU<String> lru = new LongLRU<>(1000);
+        assertThat(lru.tableLength()).isEqualTo(2048);
+        assertThat(lru.mem()).isEqualTo(1000 * (8 + 8 + 4 + 4) + 2048 * 4);
+
+        final IntLRU<String> intLRU = new IntLRU<>(1024);
+        assertThat(intLRU.tableLength()).isEqualTo(2048);
+        assertThat(intLRU.mem()).isEqualTo(1024 * (4 + 8 + 4 + 4) + 2048 * 4);
+    }
+
+    @Test
+    void randomWorkload_shouldAgreeWithLinkedHashMap() throws Exception {
+        final int cap = 100;
+        final LongLRU<Long> lru = new LongLRU<>(cap);
+        final IntLRU<Long> intLRU = new IntLRU<>(cap);
+        final Map<Long, Long> model = new LinkedHashMap<Long, Long>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<Long, Long> eldest) {
+                return size() > cap;
+            }
+        };
+        final Random random = new Random(1);
+        for (int i = 0; i < 100_000; ++i) {
+            final long key = random.nextInt(300) * 1_000_003L;
+            if (random.nextBoolean()) {
+                lru.put(key, Long.valueOf(i));
+                intLRU.put((int) key, Long.valueOf(i));
+                model.put(key, (long) i);
+            } else {
+                assertThat(lru.get(key)).isEqualTo(model.get(key));
+                assertThat(intLRU.get((int) key)).isEqualTo(model.get(key));
+            }
+            assertThat(lru.size()).isEqualTo(model.size());
+            if (!model.isEmpty()) {
+                assertThat(lru.victim().key()).isEqualTo(model.keySet().iterator().next());
+            }
+        }
+    }
+}
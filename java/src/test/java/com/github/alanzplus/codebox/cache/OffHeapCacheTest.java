@@ -0,0 +1,106 @@
+package com.github.alanzplus.codebox.cache;
+
+import com.github.alanzplus.codebox.misc.Serializer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class OffHeapCacheTest {
+    private static final int SLAB_SIZE = 4096;
+
+    @Test
+    void chunkSizes_shouldGrowGeometricallyUpToSlabSize() throws Exception {
+        final OffHeapCache<String> cache = new OffHeapCache<>(4 * SLAB_SIZE, SLAB_SIZE, Serializer.utf8(), null);
+        final int[] sizes = cache.chunkSizes();
+        assertThat(sizes[0]).isEqualTo(64);
+        assertThat(sizes[1]).isEqualTo(80);
+        assertThat(sizes[sizes.length - 1]).isEqualTo(SLAB_SIZE);
+        for (final int size : sizes) {
+            assertThat(size % 8).isEqualTo(0);
+        }
+        assertThat(cache.capacity()).isEqualTo(4 * SLAB_SIZE);
+    }
+
+    @Test
+    void putAndGet_shouldFollowLRUOrder() throws Exception {
+        final List<String> removed = new ArrayList<>();
+        final OffHeapCache<String> cache = new OffHeapCache<>(
+                SLAB_SIZE, SLAB_SIZE, Serializer.utf8(), (key, value, cause) -> removed.add(key + ":" + cause));
+        assertThat(cache.get("A")).isNull();
+        assertThat(cache.victim()).isNull();
+
+        // 32 byte header + 1 byte key + 800 byte value fit the 872 byte chunk class, four chunks per slab
+        final byte[] value = new byte[800];
+        cache.put("A", value("A", value.length));
+        cache.put("B", value("B", value.length));
+        cache.put("C", value("C", value.length));
+        assertThat(cache.size()).isEqualTo(3);
+        assertThat(cache.allocatedSlabs()).isEqualTo(1);
+        assertThat(cache.victim().key()).isEqualTo("A");
+
+        assertThat(cache.get("A")).isEqualTo(value("A", value.length));
+        assertThat(cache.victim().key()).isEqualTo("B");
+
+        cache.put("C", value("c", value.length));
+        assertThat(cache.get("C")).isEqualTo(value("c", value.length));
+        assertThat(removed).containsExactly("C:REPLACED");
+
+        cache.put("D", value("D", value.length));
+        cache.put("E", value("E", value.length));
+        assertThat(removed).containsExactly("C:REPLACED", "B:SIZE");
+        assertThat(cache.get("B")).isNull();
+        assertThat(cache.size()).isEqualTo(4);
+        assertThat(cache.weightedSize()).isLessThanOrEqualTo(cache.capacity());
+    }
+
+    @Test
+    void emptySlab_shouldBeReassignedToAnotherSizeClass() throws Exception {
+        final OffHeapCache<Integer> cache = new OffHeapCache<>(2 * SLAB_SIZE, SLAB_SIZE, Serializer.ints(), null);
+        for (int i = 0; i < 100; ++i) {
+            cache.put(i, new byte[16]);
+        }
+        assertThat(cache.allocatedSlabs()).isEqualTo(2);
+
+        final byte[] large = value("large", SLAB_SIZE - 64);
+        cache.put(-1, large);
+        assertThat(cache.get(-1)).isEqualTo(large);
+        assertThat(cache.weightedSize()).isLessThanOrEqualTo(cache.capacity());
+        assertThat(cache.allocatedSlabs()).isEqualTo(2);
+
+        assertThatThrownBy(() -> cache.put(-2, new byte[SLAB_SIZE])).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void randomWorkload_shouldAgreeWithModel() throws Exception {
+        final OffHeapCache<Integer> cache = new OffHeapCache<>(64 * SLAB_SIZE, SLAB_SIZE, Serializer.ints(), null);
+        final Map<Integer, byte[]> model = new HashMap<>();
+        final Random random = new Random(7);
+        for (int i = 0; i < 50_000; ++i) {
+            final int key = random.nextInt(5_000);
+            final byte[] cached = cache.get(key);
+            if (null == cached) {
+                final byte[] value = value(String.valueOf(key), 1 + random.nextInt(600));
+                model.put(key, value);
+                cache.put(key, value);
+            } else {
+                assertThat(cached).isEqualTo(model.get(key));
+            }
+            assertThat(cache.weightedSize()).isLessThanOrEqualTo(cache.capacity());
+        }
+        assertThat(cache.size()).isGreaterThan(0);
+    }
+
+    private static byte[] value(final String seed, final int length) {
+        final byte[] bytes = new byte[length];
+        for (int i = 0; i < length; ++i) {
+            bytes[i] = (byte) (seed.hashCode() + i);
+        }
+        return bytes;
+    }
+}
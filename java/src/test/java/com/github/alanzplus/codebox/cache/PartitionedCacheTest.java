@@ -0,0 +1,103 @@
+package com.github.alanzplus.codebox.cache;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PartitionedCacheTest {
+    private static final int NUM_KEYS = 20_000;
+
+    @Test
+    void put_shouldStoreEachKeyOnItsOwnerOnly() {
+        final LoopbackTransport<Integer, String> transport = transport("a", "b", "c");
+        final PartitionedCache<Integer, String> cache = new PartitionedCache<>(transport, Arrays.asList("a", "b", "c"));
+        final ConsistentHashRing ring = new ConsistentHashRing().with("a").with("b").with("c");
+
+        for (int i = 0; i < 1000; ++i) {
+            cache.put(i, "v" + i);
+        }
+
+        assertThat(cache.size()).isEqualTo(1000);
+        assertThat(cache.capacity()).isEqualTo(3 * NUM_KEYS);
+        for (int i = 0; i < 1000; ++i) {
+            assertThat(transport.get(ring.ownerOf(i), i)).isEqualTo("v" + i);
+            assertThat(cache.get(i)).isEqualTo("v" + i);
+        }
+        assertThat(cache.remove(7)).isEqualTo("v7");
+        assertThat(cache.get(7)).isNull();
+        assertThat(cache.victim()).isNull();
+    }
+
+    @Test
+    void ring_shouldSpreadKeysEvenly() {
+        final ConsistentHashRing ring = new ConsistentHashRing().with("a").with("b").with("c").with("d");
+        final Map<String, Integer> counts = new HashMap<>();
+
+        for (int i = 0; i < NUM_KEYS; ++i) {
+            counts.merge(ring.ownerOf("key" + i), 1, Integer::sum);
+        }
+
+        assertThat(counts).hasSize(4);
+        assertThat(counts.values()).allSatisfy(count -> assertThat(count).isBetween(NUM_KEYS / 4 * 7 / 10, NUM_KEYS / 4 * 13 / 10));
+    }
+
+    @Test
+    void ring_shouldNotDependOnInsertionOrder() {
+        final ConsistentHashRing forward = new ConsistentHashRing().with("a").with("b").with("c");
+        final ConsistentHashRing backward = new ConsistentHashRing().with("c").with("b").with("a");
+
+        for (int i = 0; i < 1000; ++i) {
+            assertThat(forward.ownerOf(i)).isEqualTo(backward.ownerOf(i));
+        }
+        assertThat(forward.with("d").without("d").nodes()).containsExactly("a", "b", "c");
+    }
+
+    @Test
+    void addNode_shouldMoveAboutOneNthOfTheKeys() {
+        final LoopbackTransport<Integer, String> transport = transport("a", "b", "c", "d", "e");
+        final PartitionedCache<Integer, String> cache = new PartitionedCache<>(transport, Arrays.asList("a", "b", "c", "d"));
+        for (int i = 0; i < NUM_KEYS; ++i) {
+            cache.put(i, "v" + i);
+        }
+
+        final int moved = cache.addNode("e");
+
+        assertThat(moved).isBetween(NUM_KEYS / 5 * 7 / 10, NUM_KEYS / 5 * 13 / 10);
+        assertThat(transport.size("e")).isEqualTo(moved);
+        assertThat(cache.size()).isEqualTo(NUM_KEYS);
+        for (int i = 0; i < NUM_KEYS; ++i) {
+            assertThat(cache.get(i)).isEqualTo("v" + i);
+        }
+    }
+
+    @Test
+    void removeNode_shouldHandOverItsKeys() {
+        final LoopbackTransport<Integer, String> transport = transport("a", "b", "c", "d");
+        final PartitionedCache<Integer, String> cache = new PartitionedCache<>(transport, Arrays.asList("a", "b", "c", "d"));
+        for (int i = 0; i < NUM_KEYS; ++i) {
+            cache.put(i, "v" + i);
+        }
+        final int held = transport.size("d");
+
+        final int moved = cache.removeNode("d");
+        transport.unregister("d");
+
+        assertThat(moved).isEqualTo(held);
+        assertThat(cache.nodes()).containsExactly("a", "b", "c");
+        assertThat(cache.size()).isEqualTo(NUM_KEYS);
+        for (int i = 0; i < NUM_KEYS; ++i) {
+            assertThat(cache.get(i)).isEqualTo("v" + i);
+        }
+    }
+
+    private static LoopbackTransport<Integer, String> transport(final String... nodes) {
+        final LoopbackTransport<Integer, String> transport = new LoopbackTransport<>();
+        for (final String node : nodes) {
+            transport.register(node, new SimpleLRU<>(NUM_KEYS));
+        }
+        return transport;
+    }
+}
@@ -73,6 +73,45 @@ class SimpleLRUTest {
         assertEquals(lru.head(), lru.tail(), 19, 18, 17, 16, 15, 14, 13, 12, 11, 10);
     }
 
+    @Test
+    void removalListener_shouldBeNotifiedOnReplaceAndEviction() throws Exception {
+        final List<String> removed = new ArrayList<>();
+        final SimpleLRU<Integer, Integer> lru =
+                new SimpleLRU<>(2, (key, value, cause) -> removed.add(key + ":" + value + ":" + cause));
+        lru.put(1, 1);
+        lru.put(2, 2);
+        lru.put(1, 10);
+        lru.put(3, 3);
+
+        assertThat(removed).containsExactly("1:1:REPLACED", "2:2:SIZE");
+        assertEquals(lru.head(), lru.tail(), 3, 1);
+    }
+
+    @Test
+    void weigher_shouldEvictSeveralVictimsForOneLargeValue() throws Exception {
+        final List<String> removed = new ArrayList<>();
+        final SimpleLRU<String, byte[]> lru =
+                new SimpleLRU<>(100, (key, value) -> value.length, (key, value, cause) -> removed.add(key + ":" + cause));
+        lru.put("a", new byte[30]);
+        lru.put("b", new byte[30]);
+        lru.put("c", new byte[30]);
+        assertThat(lru.weightedSize()).isEqualTo(90);
+        assertThat(lru.capacity()).isEqualTo(100);
+
+        lru.put("d", new byte[70]);
+        assertThat(removed).containsExactly("a:SIZE", "b:SIZE");
+        assertThat(lru.size()).isEqualTo(2);
+        assertThat(lru.weightedSize()).isEqualTo(100);
+
+        lru.put("c", new byte[10]);
+        assertThat(lru.weightedSize()).isEqualTo(80);
+
+        lru.put("d", new byte[101]);
+        assertThat(removed).containsExactly("a:SIZE", "b:SIZE", "c:REPLACED", "d:REPLACED", "d:SIZE");
+        assertThat(lru.get("d")).isNull();
+        assertThat(lru.weightedSize()).isEqualTo(10);
+    }
+
     private static void assertEquals(
             SimpleLRU.CacheEntry<Integer, Integer> head, final SimpleLRU.CacheEntry<Integer, Integer> tail, final int... eles) {
         head = head.next;
@@ -0,0 +1,101 @@
+package com.github.alanzplus.codebox.cache;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StatsCacheTest {
+    @Test
+    void counters() throws Exception {
+        final StatsCache<Integer, Integer> cache = new StatsCache<>(listener -> new SimpleLRU<>(2, listener));
+        cache.put(1, 1);
+        cache.put(2, 2);
+        cache.get(1);
+        cache.get(3);
+        cache.getAll(Arrays.asList(1, 2, 4));
+        final CacheStats before = cache.stats();
+        assertThat(before.hitCount()).isEqualTo(3);
+        assertThat(before.missCount()).isEqualTo(2);
+        assertThat(before.hitRate()).isEqualTo(0.6);
+        assertThat(before.evictionCount()).isEqualTo(0);
+
+        cache.put(3, 3);
+        cache.put(3, 30);
+        cache.remove(2);
+        final CacheStats delta = cache.stats().minus(before);
+        assertThat(delta.evictionCount()).isEqualTo(1);
+        assertThat(delta.requestCount()).isEqualTo(0);
+    }
+
+    @Test
+    void evictionAges_shouldBeSampledByKey() throws Exception {
+        final AtomicLong nanos = new AtomicLong();
+        final StatsCache<Integer, Integer> cache = new StatsCache<>(
+                listener -> new SimpleLRU<>(1000, listener), StatsCounter.concurrent(), nanos::get, RemovalListener.noop());
+        for (int i = 0; i < 100_000; ++i) {
+            cache.put(i, i);
+            nanos.addAndGet(TimeUnit.MICROSECONDS.toNanos(1));
+        }
+        final CacheStats stats = cache.stats();
+        assertThat(stats.evictionCount()).isEqualTo(99_000);
+        // Every evicted entry lived for 1000 writes, i.e. 1ms
+        assertThat(stats.evictionAgeSampleCount()).isBetween(99_000L / StatsCache.AGE_SAMPLE_RATE / 2, 99_000L);
+        assertThat(stats.evictionAgePercentile(50)).isBetween(TimeUnit.MILLISECONDS.toNanos(1), TimeUnit.MILLISECONDS.toNanos(2));
+        assertThat(stats.evictionAgePercentile(100)).isEqualTo(stats.evictionAgePercentile(1));
+    }
+
+    @Test
+    void disabled_shouldRecordNothing() throws Exception {
+        final StatsCache<Integer, Integer> cache = new StatsCache<>(
+                listener -> new SimpleLRU<>(1, listener), StatsCounter.disabled(), Ticker.systemTicker(), RemovalListener.noop());
+        cache.put(1, 1);
+        cache.put(2, 2);
+        cache.get(2);
+        assertThat(cache.stats().requestCount()).isEqualTo(0);
+        assertThat(cache.stats().evictionCount()).isEqualTo(0);
+    }
+
+    @Test
+    void disabled_shouldNeitherReadTheClockNorWrapTheListener() throws Exception {
+        final AtomicInteger ticks = new AtomicInteger();
+        final RemovalListener<Integer, Integer> listener = (key, value, cause) -> {};
+        final AtomicReference<RemovalListener<Integer, Integer>> given = new AtomicReference<>();
+        final StatsCache<Integer, Integer> cache = new StatsCache<>(
+                removalListener -> {
+                    given.set(removalListener);
+                    return new SimpleLRU<>(1, removalListener);
+                },
+                StatsCounter.disabled(),
+                ticks::incrementAndGet,
+                listener);
+        for (int i = 0; i < 10 * StatsCache.AGE_SAMPLE_RATE; ++i) {
+            cache.put(i, i);
+        }
+        cache.putAll(Collections.singletonMap(-1, -1));
+
+        assertThat(ticks.get()).isZero();
+        assertThat(given.get()).isSameAs(listener);
+    }
+
+    @Test
+    void disabled_shouldKeepNoStateAndReturnTheEmptySnapshot() throws Exception {
+        final StatsCache<Integer, Integer> cache = new StatsCache<>(
+                listener -> new SimpleLRU<>(1024, listener), StatsCounter.disabled(), Ticker.systemTicker(), RemovalListener.noop());
+        for (int i = 0; i < 10 * StatsCache.AGE_SAMPLE_RATE; ++i) {
+            cache.get(i);
+            cache.put(i, i);
+            cache.getAll(Arrays.asList(i, -i));
+        }
+        cache.putAll(Collections.singletonMap(-1, -1));
+        cache.remove(-1);
+
+        assertThat(cache.sampledWriteTimes()).isEmpty();
+        assertThat(cache.stats()).isSameAs(CacheStats.empty());
+    }
+}
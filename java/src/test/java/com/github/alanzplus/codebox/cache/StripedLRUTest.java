@@ -0,0 +1,118 @@
+package com.github.alanzplus.codebox.cache;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.entry;
+
+class StripedLRUTest {
+    @Test
+    void capacity_shouldBeSplitAcrossSegments() throws Exception {
+        final StripedLRU<Integer, Integer> cache = new StripedLRU<>(10, 4);
+
+        assertThat(cache.capacity()).isEqualTo(10);
+        assertThat(cache.segments()).hasSize(4);
+        assertThat(cache.segments()).extracting(s -> s.lru.capacity()).containsExactly(3, 3, 2, 2);
+
+        final StripedLRU<Integer, Integer> tiny = new StripedLRU<>(3, 64);
+        assertThat(tiny.segments()).hasSize(2);
+        assertThat(tiny.segments()).extracting(s -> s.lru.capacity()).containsExactly(2, 1);
+
+        assertThatThrownBy(() -> new StripedLRU<>(0)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void singleSegment_shouldBehaveLikeSimpleLRU() throws Exception {
+        final StripedLRU<Integer, Integer> cache = new StripedLRU<>(3, 1);
+        cache.put(1, 1);
+        cache.put(2, 2);
+        cache.put(3, 3);
+        assertThat(cache.get(1)).isEqualTo(1);
+        assertThat(cache.victim().key()).isEqualTo(2);
+
+        cache.put(4, 4);
+        assertThat(cache.size()).isEqualTo(3);
+        assertThat(cache.get(2)).isNull();
+        assertThat(cache.get(4)).isEqualTo(4);
+    }
+
+    @Test
+    void eviction_shouldHappenInsideTheOwningSegment() throws Exception {
+        final StripedLRU<Integer, Integer> cache = new StripedLRU<>(64, 8);
+        for (int i = 0; i < 1000; ++i) {
+            cache.put(i, i);
+            assertThat(cache.segmentFor(i).lru.get(i)).isEqualTo(i);
+        }
+        assertThat(cache.size()).isEqualTo(64);
+        for (final StripedLRU.Segment<Integer, Integer> segment : cache.segments()) {
+            assertThat(segment.size()).isEqualTo(segment.lru.capacity());
+        }
+        assertThat(cache.victim()).isNotNull();
+    }
+
+    @Test
+    void bulkOperations_shouldMatchSingleOperations() throws Exception {
+        final StripedLRU<Integer, Integer> cache = new StripedLRU<>(64, 8);
+        final Map<Integer, Integer> entries = new HashMap<>();
+        for (int i = 0; i < 40; ++i) {
+            entries.put(i, i * 10);
+        }
+        cache.putAll(entries);
+        assertThat(cache.size()).isEqualTo(40);
+
+        final Map<Integer, Integer> found = cache.getAll(Arrays.asList(0, 5, 39, 40, 5));
+        assertThat(found).containsOnly(
+                entry(0, 0),
+                entry(5, 50),
+                entry(39, 390));
+        for (final int key : found.keySet()) {
+            assertThat(cache.segmentFor(key).lru.head().next.key).isEqualTo(key);
+        }
+    }
+
+    @Test
+    void concurrentAccess() throws Exception {
+        final int cap = 128;
+        final StripedLRU<Integer, Integer> cache = new StripedLRU<>(cap);
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; ++t) {
+                final long seed = t;
+                futures.add(executor.submit(() -> {
+                    final Random random = new Random(seed);
+                    for (int i = 0; i < 20_000; ++i) {
+                        final int key = random.nextInt(cap * 4);
+                        final Integer value = cache.get(key);
+                        if (null == value) {
+                            cache.put(key, key);
+                        } else if (0 == i % 16) {
+                            cache.remove(key);
+                        } else {
+                            assertThat(value).isEqualTo(key);
+                        }
+                    }
+                }));
+            }
+            for (final Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertThat(cache.size()).isLessThanOrEqualTo(cap);
+        for (final StripedLRU.Segment<Integer, Integer> segment : cache.segments()) {
+            assertThat(segment.size()).isEqualTo(segment.lru.size());
+        }
+    }
+}
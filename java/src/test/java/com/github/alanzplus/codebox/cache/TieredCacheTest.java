@@ -0,0 +1,96 @@
+package com.github.alanzplus.codebox.cache;
+
+import com.github.alanzplus.codebox.misc.Serializer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TieredCacheTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void put_shouldSpillL1VictimsToL2() throws Exception {
+        try (TieredCache<Long, String> cache = cache(RemovalListener.noop())) {
+            for (long i = 0; i < 10; ++i) {
+                cache.put(i, "value" + i);
+            }
+
+            assertThat(cache.l1().size()).isEqualTo(4);
+            assertThat(cache.l2().size()).isEqualTo(6);
+            assertThat(cache.size()).isEqualTo(10);
+        }
+    }
+
+    @Test
+    void get_shouldPromoteL2HitsToL1() throws Exception {
+        try (TieredCache<Long, String> cache = cache(RemovalListener.noop())) {
+            for (long i = 0; i < 10; ++i) {
+                cache.put(i, "value" + i);
+            }
+
+            assertThat(cache.get(0L)).isEqualTo("value0");
+
+            assertThat(cache.l2Hits()).isEqualTo(1);
+            assertThat(cache.l2().containsKey(0L)).isFalse();
+            assertThat(cache.l1().get(0L)).isEqualTo("value0");
+            // Promotion demoted the L1 victim, so both levels keep their size
+            assertThat(cache.l2().size()).isEqualTo(6);
+            assertThat(cache.get(0L)).isEqualTo("value0");
+            assertThat(cache.l2Hits()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void putAndRemove_shouldReportEntriesLeavingBothLevels() throws Exception {
+        final List<String> notifications = new ArrayList<>();
+        try (TieredCache<Long, String> cache = cache((key, value, cause) -> notifications.add(cause + ":" + key))) {
+            for (long i = 0; i < 10; ++i) {
+                cache.put(i, "value" + i);
+            }
+            assertThat(notifications).isEmpty();
+
+            cache.put(0L, "new");
+            cache.remove(1L);
+            cache.remove(9L);
+
+            assertThat(notifications).containsExactly("REPLACED:0", "EXPLICIT:1", "EXPLICIT:9");
+            assertThat(cache.get(0L)).isEqualTo("new");
+            assertThat(cache.get(1L)).isNull();
+        }
+    }
+
+    @Test
+    void get_shouldHitMoreOftenThanL1Alone() throws Exception {
+        final SimpleLRU<Long, String> heapOnly = new SimpleLRU<>(4);
+        try (TieredCache<Long, String> cache = cache(RemovalListener.noop())) {
+            int heapOnlyHits = 0;
+            int tieredHits = 0;
+            for (int round = 0; round < 3; ++round) {
+                for (long i = 0; i < 20; ++i) {
+                    if (null == heapOnly.get(i)) {
+                        heapOnly.put(i, "value" + i);
+                    } else {
+                        ++heapOnlyHits;
+                    }
+                    if (null == cache.get(i)) {
+                        cache.put(i, "value" + i);
+                    } else {
+                        ++tieredHits;
+                    }
+                }
+            }
+
+            assertThat(heapOnlyHits).isZero();
+            assertThat(tieredHits).isEqualTo(40);
+        }
+    }
+
+    private TieredCache<Long, String> cache(final RemovalListener<Long, String> listener) {
+        return new TieredCache<>(l -> new SimpleLRU<>(4, l), dir, 1024, 4, Serializer.longs(), Serializer.utf8(), listener);
+    }
+}
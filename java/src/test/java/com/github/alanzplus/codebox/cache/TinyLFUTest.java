@@ -0,0 +1,212 @@
+package com.github.alanzplus.codebox.cache;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TinyLFUTest {
+    @Test
+    void sketch_shouldCountAndAge() throws Exception {
+        final FrequencySketch<Integer> sketch = new FrequencySketch<>(64);
+        assertThat(sketch.frequency(1)).isEqualTo(0);
+        for (int i = 0; i < 20; ++i) {
+            sketch.increment(1);
+        }
+        assertThat(sketch.frequency(1)).isEqualTo(FrequencySketch.MAX_FREQUENCY);
+
+        sketch.reset();
+        assertThat(sketch.frequency(1)).isEqualTo(7);
+
+        for (int i = 0; i < sketch.sampleSize(); ++i) {
+            sketch.increment(1000 + i);
+        }
+        assertThat(sketch.frequency(1)).isLessThanOrEqualTo(4);
+    }
+
+    @Test
+    void regions() throws Exception {
+        final TinyLFU<Integer, Integer> cache = new TinyLFU<>(100);
+        assertThat(cache.windowMax()).isEqualTo(1);
+        assertThat(cache.protectedMax()).isEqualTo(79);
+
+        cache.put(1, 1);
+        assertThat(cache.cache().get(1).region).isEqualTo(TinyLFU.Region.WINDOW);
+        cache.put(2, 2);
+        assertThat(cache.cache().get(1).region).isEqualTo(TinyLFU.Region.PROBATION);
+        assertThat(cache.get(1)).isEqualTo(1);
+        assertThat(cache.cache().get(1).region).isEqualTo(TinyLFU.Region.PROTECTED);
+
+        cache.put(1, 10);
+        assertThat(cache.get(1)).isEqualTo(10);
+        assertThat(cache.size()).isEqualTo(2);
+    }
+
+    @Test
+    void capacityOne() throws Exception {
+        final TinyLFU<Integer, Integer> cache = new TinyLFU<>(1);
+        cache.put(1, 1);
+        assertThat(cache.victim().key()).isEqualTo(1);
+        cache.put(2, 2);
+        assertThat(cache.size()).isEqualTo(1);
+        assertThat(cache.get(2)).isEqualTo(2);
+    }
+
+    @Test
+    void scan_shouldNotFlushHotSet() throws Exception {
+        final int cap = 100;
+        final TinyLFU<Integer, Integer> cache = new TinyLFU<>(cap);
+        for (int round = 0; round < 5; ++round) {
+            for (int key = 0; key < cap / 2; ++key) {
+                if (null == cache.get(key)) {
+                    cache.put(key, key);
+                }
+            }
+        }
+        for (int key = 1_000; key < 1_000 + 10 * cap; ++key) {
+            if (null == cache.get(key)) {
+                cache.put(key, key);
+            }
+            assertThat(cache.size()).isLessThanOrEqualTo(cap);
+        }
+        int hits = 0;
+        for (int key = 0; key < cap / 2; ++key) {
+            if (null != cache.get(key)) {
+                ++hits;
+            }
+        }
+        assertThat(hits).isGreaterThanOrEqualTo(cap / 2 * 9 / 10);
+    }
+
+    @Test
+    void hitRatio_shouldBeatLRUOnMixedScanWorkload() throws Exception {
+        final int cap = 500;
+        final Random random = new Random(42);
+        final Cache<Integer, Integer> lru = new SimpleLRU<>(cap);
+        final Cache<Integer, Integer> tinyLFU = new TinyLFU<>(cap);
+        int lruHits = 0;
+        int tinyLFUHits = 0;
+        int scanKey = 1_000_000;
+        for (int i = 0; i < 200_000; ++i) {
+            final int key = random.nextInt(10) < 7 ? (int) Math.abs(random.nextGaussian() * cap / 2) : scanKey++;
+            lruHits += access(lru, key);
+            tinyLFUHits += access(tinyLFU, key);
+        }
+        assertThat(tinyLFUHits).isGreaterThan(lruHits);
+    }
+
+    @Test
+    void adaptive_shouldGrowWindowForRecencyBiasedWorkload() throws Exception {
+        final int cap = 100;
+        final Random random = new Random(1);
+        final TinyLFU<Integer, Integer> fixed = new TinyLFU<>(cap);
+        final TinyLFU<Integer, Integer> adaptive = new TinyLFU<>(cap, true, RemovalListener.noop());
+        int fixedHits = 0;
+        int adaptiveHits = 0;
+        for (int i = 0; i < 200_000; ++i) {
+            // Every other access is a new key, the others revisit one of the last 80 new keys
+            final int key = 0 == i % 2 ? i / 2 : i / 2 - random.nextInt(80);
+            fixedHits += access(fixed, key);
+            adaptiveHits += access(adaptive, key);
+            assertThat(adaptive.size()).isLessThanOrEqualTo(cap);
+        }
+
+        final TinyLFU.PolicyStats stats = adaptive.policyStats();
+        assertThat(stats.windowMax()).isGreaterThan(cap / 2);
+        assertThat(stats.windowMax() + stats.probationMax() + stats.protectedMax()).isEqualTo(cap);
+        assertThat(stats.adjustments()).isPositive();
+        assertThat(adaptiveHits).isGreaterThan(fixedHits * 3);
+        assertThat(fixed.policyStats().windowMax()).isEqualTo(1);
+        assertThat(fixed.policyStats().adjustments()).isZero();
+    }
+
+    @Test
+    void adaptive_shouldKeepRegionsConsistentWhileResizing() throws Exception {
+        final int cap = 50;
+        final Random random = new Random(7);
+        final TinyLFU<Integer, Integer> cache = new TinyLFU<>(cap, true, RemovalListener.noop());
+        for (int i = 0; i < 100_000; ++i) {
+            // Alternates between a recency and a frequency biased phase
+            final int key = 0 == (i / 10_000) % 2 ? i - random.nextInt(40) : random.nextInt(cap * 2) / (1 + random.nextInt(4));
+            access(cache, key);
+        }
+
+        final TinyLFU.PolicyStats stats = cache.policyStats();
+        final long inWindow = cache.cache().values().stream().filter(n -> TinyLFU.Region.WINDOW == n.region).count();
+        final long inProtected = cache.cache().values().stream().filter(n -> TinyLFU.Region.PROTECTED == n.region).count();
+        assertThat(cache.size()).isLessThanOrEqualTo(cap);
+        assertThat(inWindow).isLessThanOrEqualTo(stats.windowMax());
+        assertThat(inProtected).isLessThanOrEqualTo(stats.protectedMax());
+        assertThat(cache.size() - inWindow).isLessThanOrEqualTo(cap - stats.windowMax());
+        assertThat(stats.adjustments()).isPositive();
+    }
+
+    @Test
+    void resize_shouldMoveAFewEntriesPerAccess() throws Exception {
+        final int cap = 10_000;
+        final TinyLFU<Integer, Integer> cache = new TinyLFU<>(cap, true, RemovalListener.noop());
+        for (int i = 0; i < cap; ++i) {
+            cache.put(i, i);
+        }
+        assertThat(inWindow(cache)).isEqualTo(cache.windowMax());
+
+        final int grown = cache.windowMax() + cap / 16;
+        cache.resizeWindow(cap / 16);
+        assertThat(cache.windowMax()).isEqualTo(grown);
+        cache.get(-1);
+        assertThat(inWindow(cache)).isEqualTo(cap / 100 + TinyLFU.MAX_RESIZE_MOVES);
+        for (int i = 0; i < cap; ++i) {
+            cache.get(-1);
+        }
+        assertThat(inWindow(cache)).isEqualTo(grown);
+
+        cache.resizeWindow(-cap / 16);
+        for (int i = 0; i < cap; ++i) {
+            assertThat(cache.size()).isLessThanOrEqualTo(cap);
+            cache.put(cap + i, i);
+        }
+        assertThat(inWindow(cache)).isEqualTo(cache.windowMax());
+        assertThat(cache.size()).isEqualTo(cap);
+    }
+
+    @Test
+    void adaptive_shouldReportWindowThroughStatsCounter() throws Exception {
+        final int cap = 100;
+        final Random random = new Random(1);
+        final StatsCounter statsCounter = StatsCounter.concurrent();
+        final AtomicReference<TinyLFU<Integer, Integer>> policy = new AtomicReference<>();
+        final StatsCache<Integer, Integer> cache = new StatsCache<>(
+                listener -> {
+                    policy.set(new TinyLFU<>(cap, true, listener, statsCounter));
+                    return policy.get();
+                },
+                statsCounter,
+                Ticker.systemTicker(),
+                RemovalListener.noop());
+        assertThat(cache.stats().windowSize()).isEqualTo(1);
+
+        for (int i = 0; i < 200_000; ++i) {
+            final int key = 0 == i % 2 ? i / 2 : i / 2 - random.nextInt(80);
+            access(cache, key);
+        }
+
+        final CacheStats stats = cache.stats();
+        assertThat(stats.windowSize()).isEqualTo(policy.get().policyStats().windowMax()).isGreaterThan(cap / 2);
+        assertThat(stats.windowStep()).isEqualTo(policy.get().policyStats().stepSize());
+        assertThat(stats.hitCount()).isPositive();
+        assertThat(stats.minus(StatsCounter.concurrent().snapshot()).windowSize()).isEqualTo(stats.windowSize());
+    }
+
+    private static long inWindow(final TinyLFU<Integer, Integer> cache) {
+        return cache.cache().values().stream().filter(n -> TinyLFU.Region.WINDOW == n.region).count();
+    }
+
+    private static int access(final Cache<Integer, Integer> cache, final int key) {
+        if (null != cache.get(key)) {
+            return 1;
+        }
+        cache.put(key, key);
+        return 0;
+    }
+}
@@ -0,0 +1,130 @@
+package com.github.alanzplus.codebox.cache.simulator;
+
+import com.github.alanzplus.codebox.cache.SimpleLRU;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SimulatorTest {
+    @Test
+    void run_shouldReportEveryPolicyAtEveryCapacity() throws Exception {
+        final StringBuilder trace = new StringBuilder();
+        for (int round = 0; round < 2; ++round) {
+            for (int i = 0; i < 10; ++i) {
+                trace.append(i).append('\n');
+            }
+        }
+        final Simulator simulator = new Simulator(
+                Collections.singletonMap("lru", (capacity, listener) -> new SimpleLRU<>(capacity, listener)), new int[] {10, 5}, 3);
+
+        final List<SimulationResult> results = simulator.run(text(trace.toString()));
+
+        assertThat(results).extracting(SimulationResult::capacity).containsExactly(5, 10);
+        final SimulationResult small = results.get(0);
+        // Cyclic access over twice the capacity is the worst case of LRU
+        assertThat(small.hits()).isZero();
+        assertThat(small.misses()).isEqualTo(20);
+        assertThat(small.evictions()).isEqualTo(15);
+        final SimulationResult large = results.get(1);
+        assertThat(large.hits()).isEqualTo(10);
+        assertThat(large.hitRatio()).isEqualTo(0.5);
+        assertThat(large.evictions()).isZero();
+        assertThat(large.opsPerSecond()).isPositive();
+    }
+
+    @Test
+    void run_shouldReplayEveryBuiltInPolicyOverOneRead() throws Exception {
+        final List<Long> keys = new ArrayList<>();
+        for (int i = 0; i < 5_000; ++i) {
+            keys.add(0 == i % 2 ? -1L - i % 8 / 2 : i);
+        }
+        final CountingReader trace = new CountingReader(binary(keys));
+        final Map<String, Policy> policies = Policy.builtIn();
+
+        final List<SimulationResult> results = new Simulator(policies, new int[] {16, 64}, 512).run(trace);
+
+        assertThat(trace.reads).isEqualTo(5_000 / 512 + 2);
+        assertThat(results).hasSize(policies.size() * 2);
+        for (final SimulationResult result : results) {
+            assertThat(result.requests()).as(result.policy()).isEqualTo(5_000);
+            assertThat(result.hits()).as(result.policy()).isPositive();
+            assertThat(result.evictions()).as(result.policy()).isLessThanOrEqualTo(result.misses() - result.capacity() + 1);
+        }
+    }
+
+    @Test
+    void textFormat_shouldHashNonNumericKeysAndSkipBlankLines() throws Exception {
+        final long[] buffer = new long[8];
+
+        final int count = text("42\n\n  user:1 \nuser:1\n").read(buffer);
+
+        assertThat(count).isEqualTo(3);
+        assertThat(buffer[0]).isEqualTo(42L);
+        assertThat(buffer[1]).isEqualTo(buffer[2]).isNotEqualTo(TraceFormat.parseKey("user:2"));
+    }
+
+    @Test
+    void arcFormat_shouldExpandBlockRanges() throws Exception {
+        final TraceReader reader = TraceFormat.ARC.open(stream("10 3 0 0\n7 1 0 1\n"));
+        final long[] buffer = new long[2];
+
+        assertThat(reader.read(buffer)).isEqualTo(2);
+        assertThat(buffer).containsExactly(10L, 11L);
+        assertThat(reader.read(buffer)).isEqualTo(2);
+        assertThat(buffer).containsExactly(12L, 7L);
+        assertThat(reader.read(buffer)).isZero();
+    }
+
+    @Test
+    void binaryFormat_shouldReadBigEndianLongs() throws Exception {
+        final TraceReader reader = binary(Arrays.asList(1L, -1L, Long.MAX_VALUE));
+        final long[] buffer = new long[4];
+
+        assertThat(reader.read(buffer)).isEqualTo(3);
+        assertThat(buffer).startsWith(1L, -1L, Long.MAX_VALUE);
+        assertThat(reader.read(buffer)).isZero();
+    }
+
+    private static TraceReader text(final String trace) {
+        return TraceFormat.TEXT.open(stream(trace));
+    }
+
+    private static TraceReader binary(final List<Long> keys) {
+        final ByteBuffer bytes = ByteBuffer.allocate(keys.size() * Long.BYTES);
+        keys.forEach(bytes::putLong);
+        return TraceFormat.BINARY.open(new ByteArrayInputStream(bytes.array()));
+    }
+
+    private static ByteArrayInputStream stream(final String trace) {
+        return new ByteArrayInputStream(trace.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static class CountingReader implements TraceReader {
+        private final TraceReader delegate;
+        int reads;
+
+        CountingReader(final TraceReader delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public int read(final long[] buffer) throws IOException {
+            ++reads;
+            return delegate.read(buffer);
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+    }
+}
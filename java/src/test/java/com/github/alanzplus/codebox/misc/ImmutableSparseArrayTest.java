@@ -0,0 +1,84 @@
+package com.github.alanzplus.codebox.misc;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ImmutableSparseArrayTest {
+    @Test
+    void pageBasedBuilder_shouldNotRequireValueInFirstPage() {
+        final ImmutableSparseArray<String> array = new ImmutableSparseArray.PageBasedBuilder<String>(10_000)
+                .set(5_000, "a")
+                .set(9_999, "b")
+                .build();
+
+        assertThat(array.get(0)).isNull();
+        assertThat(array.get(5_000)).isEqualTo("a");
+        assertThat(array.get(9_999)).isEqualTo("b");
+    }
+
+    @Test
+    void streamingBuilder_shouldMatchPageBasedBuilderOnSortedInput() {
+        final int length = 1 << 22;
+        final Random random = new Random(42);
+        final ImmutableSparseArray.PageBasedBuilder<Integer> reference = new ImmutableSparseArray.PageBasedBuilder<>(length);
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        final ImmutableSparseArray<Integer> expected;
+        final ImmutableSparseArray<Integer> actual;
+        try {
+            final ImmutableSparseArray.StreamingPageBasedBuilder<Integer> streaming =
+                    new ImmutableSparseArray.StreamingPageBasedBuilder<>(length, pool);
+            // Clustered runs, enough entries for the fill to be split across threads
+            for (int idx = random.nextInt(100); idx < length; idx += 1 + (random.nextInt(50) == 0 ? random.nextInt(5_000) : 0)) {
+                reference.set(idx, idx);
+                streaming.set(idx, idx);
+            }
+
+            expected = reference.build();
+            actual = streaming.build();
+        } finally {
+            pool.shutdown();
+        }
+
+        assertThat(((ImmutableSparseArray.PageBasedBuilder.PageBasedImpl<Integer>) actual).pageSize())
+                .isEqualTo(((ImmutableSparseArray.PageBasedBuilder.PageBasedImpl<Integer>) expected).pageSize());
+        assertThat(actual.mem()).isEqualTo(expected.mem());
+        for (int idx = 0; idx < length; ++idx) {
+            assertThat(actual.get(idx)).isEqualTo(expected.get(idx));
+        }
+    }
+
+    @Test
+    void streamingBuilder_shouldSortUnsortedInputWithLastWriteWinning() {
+        final int length = 100_000;
+        final Random random = new Random(7);
+        final Map<Integer, Integer> model = new HashMap<>();
+        final ImmutableSparseArray.StreamingPageBasedBuilder<Integer> builder =
+                new ImmutableSparseArray.StreamingPageBasedBuilder<>(length);
+        for (int i = 0; i < 20_000; ++i) {
+            final int idx = random.nextInt(length);
+            builder.set(idx, i);
+            model.put(idx, i);
+        }
+
+        final ImmutableSparseArray<Integer> array = builder.build();
+
+        for (int idx = 0; idx < length; ++idx) {
+            assertThat(array.get(idx)).isEqualTo(model.get(idx));
+        }
+    }
+
+    @Test
+    void streamingBuilder_shouldRejectIndicesOutsideLength() {
+        final ImmutableSparseArray.StreamingPageBasedBuilder<String> builder = new ImmutableSparseArray.StreamingPageBasedBuilder<>(8);
+
+        assertThatThrownBy(() -> builder.set(8, "a")).isInstanceOf(ArrayIndexOutOfBoundsException.class);
+        assertThatThrownBy(() -> builder.set(-1, "a")).isInstanceOf(ArrayIndexOutOfBoundsException.class);
+        assertThat(builder.build().get(3)).isNull();
+    }
+}
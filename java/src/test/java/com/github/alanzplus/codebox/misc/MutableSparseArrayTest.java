@@ -0,0 +1,97 @@
+package com.github.alanzplus.codebox.misc;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MutableSparseArrayTest {
+    @Test
+    void setAndGet_shouldMatchMapModel() {
+        final MutableSparseArray<Integer> array = new MutableSparseArray<>();
+        final Map<Integer, Integer> model = new HashMap<>();
+        final Random random = new Random(42);
+        for (int i = 0; i < 200_000; ++i) {
+            // Clustered keys, so that chunks go through both representations
+            final int idx = random.nextBoolean() ? random.nextInt(4096) : random.nextInt(Integer.MAX_VALUE);
+            final Integer value = random.nextInt(4) == 0 ? null : i;
+            array.set(idx, value);
+            if (null == value) {
+                model.remove(idx);
+            } else {
+                model.put(idx, value);
+            }
+        }
+
+        assertThat(array.size()).isEqualTo(model.size());
+        model.forEach((idx, value) -> assertThat(array.get(idx)).isEqualTo(value));
+        assertThat(array.get(Integer.MAX_VALUE - 1)).isEqualTo(model.get(Integer.MAX_VALUE - 1));
+    }
+
+    @Test
+    void set_shouldConvertChunksAsDensityChanges() {
+        final MutableSparseArray<String> array = new MutableSparseArray<>();
+        final int base = 10 * MutableSparseArray.CHUNK_SIZE;
+        for (int i = 0; i < MutableSparseArray.TO_DENSE; ++i) {
+            array.set(base + i, "v" + i);
+        }
+        assertThat(array.isDense(base)).isFalse();
+
+        array.set(base + MutableSparseArray.TO_DENSE, "last");
+        assertThat(array.isDense(base)).isTrue();
+
+        for (int i = 0; i <= MutableSparseArray.TO_DENSE - MutableSparseArray.TO_SPARSE + 1; ++i) {
+            array.set(base + i, null);
+        }
+        assertThat(array.isDense(base)).isFalse();
+        assertThat(array.get(base + MutableSparseArray.TO_DENSE)).isEqualTo("last");
+        assertThat(array.get(base)).isNull();
+        assertThat(array.size()).isEqualTo(MutableSparseArray.TO_SPARSE - 1);
+    }
+
+    @Test
+    void set_shouldFreeEmptyChunks() {
+        final MutableSparseArray<String> array = new MutableSparseArray<>();
+        final long empty = array.mem();
+        array.set(5, "a");
+        array.set(1_000_000_000, "b");
+        assertThat(array.chunkCount()).isEqualTo(2);
+        assertThat(array.mem()).isGreaterThan(empty);
+
+        array.set(5, null);
+        array.set(1_000_000_000, null);
+        array.set(7, null);
+
+        assertThat(array.chunkCount()).isZero();
+        assertThat(array.size()).isZero();
+        assertThat(array.mem()).isEqualTo(empty);
+    }
+
+    @Test
+    void mem_shouldFavorDenseChunksOnlyWhenFull() {
+        final MutableSparseArray<Integer> sparse = new MutableSparseArray<>();
+        final MutableSparseArray<Integer> dense = new MutableSparseArray<>();
+        for (int i = 0; i < 1000; ++i) {
+            sparse.set(i * MutableSparseArray.CHUNK_SIZE, i);
+        }
+        for (int i = 0; i < 1000 * MutableSparseArray.CHUNK_SIZE; ++i) {
+            dense.set(i, i);
+        }
+
+        // One entry per chunk: far below a dense page per chunk
+        assertThat(sparse.mem()).isLessThan(1000L * 8 * MutableSparseArray.CHUNK_SIZE / 10);
+        // Full chunks: about one reference per entry
+        assertThat(dense.mem()).isBetween(1000L * 8 * MutableSparseArray.CHUNK_SIZE, 1000L * 9 * MutableSparseArray.CHUNK_SIZE);
+    }
+
+    @Test
+    void negativeIndex_shouldThrow() {
+        final MutableSparseArray<String> array = new MutableSparseArray<>();
+
+        assertThatThrownBy(() -> array.get(-1)).isInstanceOf(ArrayIndexOutOfBoundsException.class);
+        assertThatThrownBy(() -> array.set(-1, "a")).isInstanceOf(ArrayIndexOutOfBoundsException.class);
+    }
+}
@@ -0,0 +1,90 @@
+package com.github.alanzplus.codebox.misc;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PrimitiveSparseArrayTest {
+    private static final int LENGTH = 1 << 20;
+
+    @Test
+    void intArrays_shouldMatchMapModelInBothLayouts() {
+        final IntSparseArray.Builder pageBased = IntSparseArray.pageBasedBuilder(LENGTH);
+        final IntSparseArray.Builder binarySearchBased = IntSparseArray.binarySearchBasedBuilder();
+        final Map<Integer, Integer> model = new HashMap<>();
+        final Random random = new Random(42);
+        for (int i = 0; i < 50_000; ++i) {
+            final int idx = random.nextInt(LENGTH);
+            final int value = random.nextInt();
+            pageBased.set(idx, value);
+            binarySearchBased.set(idx, value);
+            model.put(idx, value);
+        }
+
+        for (final IntSparseArray array : new IntSparseArray[] {pageBased.build(), binarySearchBased.build()}) {
+            assertThat(array.size()).isEqualTo(model.size());
+            for (int idx = 0; idx < LENGTH; idx += 7) {
+                assertThat(array.contains(idx)).isEqualTo(model.containsKey(idx));
+                assertThat(array.get(idx, -1)).isEqualTo(model.getOrDefault(idx, -1));
+            }
+            model.forEach((idx, value) -> assertThat(array.get(idx, 0)).isEqualTo(value));
+        }
+    }
+
+    @Test
+    void presenceBitmap_shouldDistinguishZeroFromAbsent() {
+        final LongSparseArray array = LongSparseArray.pageBasedBuilder(100)
+                .set(9, 0L)
+                .set(10, Long.MIN_VALUE)
+                .set(9, 5L)
+                .set(11, 0L)
+                .build();
+
+        assertThat(array.get(9, -1L)).isEqualTo(5L);
+        assertThat(array.get(10, -1L)).isEqualTo(Long.MIN_VALUE);
+        assertThat(array.get(11, -1L)).isZero();
+        assertThat(array.contains(12)).isFalse();
+        assertThat(array.get(12, -1L)).isEqualTo(-1L);
+        assertThat(array.size()).isEqualTo(3);
+        assertThatThrownBy(() -> array.get(100, 0L)).isInstanceOf(ArrayIndexOutOfBoundsException.class);
+    }
+
+    @Test
+    void doubleArrays_shouldAllowAnyIndexWhenBinarySearchBased() {
+        final DoubleSparseArray array = DoubleSparseArray.binarySearchBasedBuilder()
+                .set(Integer.MAX_VALUE, 1.5)
+                .set(-3, Double.NaN)
+                .set(0, -0.0)
+                .build();
+
+        assertThat(array.get(Integer.MAX_VALUE, 0)).isEqualTo(1.5);
+        assertThat(array.get(-3, 0)).isNaN();
+        assertThat(array.get(0, 1)).isEqualTo(-0.0);
+        assertThat(array.contains(1)).isFalse();
+    }
+
+    @Test
+    void mem_shouldBeFarBelowBoxedArrays() {
+        final ImmutableSparseArray.PageBasedBuilder<Integer> boxedBuilder = new ImmutableSparseArray.PageBasedBuilder<>(LENGTH);
+        final IntSparseArray.Builder builder = IntSparseArray.pageBasedBuilder(LENGTH);
+        // Clustered runs of keys, starting at 0
+        for (int run = 0; run < 1000; ++run) {
+            for (int i = 0; i < 64; ++i) {
+                final int idx = run * 1000 + i;
+                boxedBuilder.set(idx, idx);
+                builder.set(idx, idx);
+            }
+        }
+        final ImmutableSparseArray<Integer> boxed = boxedBuilder.build();
+        final IntSparseArray primitive = builder.build();
+
+        // The boxed array's mem() counts references only: add the Integer objects it points to
+        final long boxedMem = boxed.mem() + 64_000 * SizeEstimator.estimate(0);
+        assertThat(primitive.mem() * 3).isLessThan(boxedMem);
+        assertThat(primitive.get(999 * 1000 + 63, -1)).isEqualTo(999 * 1000 + 63);
+    }
+}
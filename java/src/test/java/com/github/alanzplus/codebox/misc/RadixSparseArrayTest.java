@@ -0,0 +1,97 @@
+package com.github.alanzplus.codebox.misc;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RadixSparseArrayTest {
+    @Test
+    void setAndGet_shouldMatchMapModel() {
+        final RadixSparseArray<Integer> array = new RadixSparseArray<>();
+        final Map<Long, Integer> model = new HashMap<>();
+        final Random random = new Random(42);
+        final long[] clusters = {0L, 1L << 31, 1_700_000_000_000L, 1L << 50, Long.MAX_VALUE - 10_000};
+        for (int i = 0; i < 200_000; ++i) {
+            final long idx = clusters[random.nextInt(clusters.length)] + random.nextInt(10_000);
+            final Integer value = random.nextInt(4) == 0 ? null : i;
+            array.set(idx, value);
+            if (null == value) {
+                model.remove(idx);
+            } else {
+                model.put(idx, value);
+            }
+        }
+
+        assertThat(array.size()).isEqualTo(model.size());
+        model.forEach((idx, value) -> assertThat(array.get(idx)).isEqualTo(value));
+        for (int i = 0; i < 10_000; ++i) {
+            final long idx = random.nextLong() & Long.MAX_VALUE;
+            assertThat(array.get(idx)).isEqualTo(model.get(idx));
+        }
+    }
+
+    @Test
+    void set_shouldGrowHeightWithLargestIndex() {
+        final RadixSparseArray<String> array = new RadixSparseArray<>();
+        assertThat(array.height()).isZero();
+
+        array.set(RadixSparseArray.FANOUT - 1, "a");
+        assertThat(array.height()).isEqualTo(1);
+
+        array.set((long) RadixSparseArray.FANOUT, "b");
+        assertThat(array.height()).isEqualTo(2);
+
+        array.set(Long.MAX_VALUE, "c");
+        assertThat(array.height()).isEqualTo(8);
+        assertThat(array.get(RadixSparseArray.FANOUT - 1)).isEqualTo("a");
+        assertThat(array.get((long) RadixSparseArray.FANOUT)).isEqualTo("b");
+        assertThat(array.get(Long.MAX_VALUE)).isEqualTo("c");
+    }
+
+    @Test
+    void remove_shouldFreeEmptyNodesAndShrinkHeight() {
+        final RadixSparseArray<String> array = new RadixSparseArray<>();
+        array.set(3L, "a");
+        array.set(1L << 40, "b");
+        final long nodes = array.nodeCount();
+
+        array.set(1L << 40, null);
+        assertThat(array.height()).isEqualTo(1);
+        assertThat(array.nodeCount()).isEqualTo(1);
+        assertThat(array.get(3L)).isEqualTo("a");
+        assertThat(nodes).isGreaterThan(array.nodeCount());
+
+        array.set(3L, null);
+        array.set(5L, null);
+        assertThat(array.size()).isZero();
+        assertThat(array.height()).isZero();
+        assertThat(array.nodeCount()).isZero();
+        assertThat(array.get(3L)).isNull();
+    }
+
+    @Test
+    void mem_shouldBeProportionalToPopulatedPages() {
+        final RadixSparseArray<Integer> array = new RadixSparseArray<>();
+        // Two dense runs of timestamps, far apart in the index space
+        for (int i = 0; i < 4096; ++i) {
+            array.set(1_700_000_000_000L + i, i);
+            array.set(1L << 60 | i, i);
+        }
+
+        // 32 leaves, and at most 8 interior nodes on each of the two paths
+        assertThat(array.nodeCount()).isLessThanOrEqualTo(32 + 2 * 8);
+        assertThat(array.mem()).isLessThan(48 * 2200L);
+    }
+
+    @Test
+    void shouldRejectNegativeIndices() {
+        final RadixSparseArray<String> array = new RadixSparseArray<>();
+
+        assertThatThrownBy(() -> array.get(-1L)).isInstanceOf(ArrayIndexOutOfBoundsException.class);
+        assertThatThrownBy(() -> array.set(-1, "a")).isInstanceOf(ArrayIndexOutOfBoundsException.class);
+    }
+}
@@ -0,0 +1,110 @@
+package com.github.alanzplus.codebox.misc;
+
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SparseArrayFileTest {
+    private static final int LENGTH = 100_000;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void map_shouldAnswerLikePageBasedArray() throws Exception {
+        final Map<Integer, String> model = randomEntries();
+        final ImmutableSparseArray.PageBasedBuilder<String> builder = new ImmutableSparseArray.PageBasedBuilder<>(LENGTH);
+        model.forEach(builder::set);
+        final ImmutableSparseArray<String> array = builder.build();
+        final Path file = dir.resolve("page.spa");
+
+        SparseArrayFile.write(array, file, Serializer.utf8());
+        final ImmutableSparseArray<String> mapped = SparseArrayFile.map(file, Serializer.utf8());
+
+        for (int idx = 0; idx < LENGTH; ++idx) {
+            assertThat(mapped.get(idx)).isEqualTo(model.get(idx));
+        }
+        assertThatThrownBy(() -> mapped.get(LENGTH)).isInstanceOf(ArrayIndexOutOfBoundsException.class);
+        assertThat(mapped.mem()).isLessThan(array.mem() / 100);
+    }
+
+    @Test
+    void map_shouldAnswerLikeBinarySearchBasedArray() throws Exception {
+        final Map<Integer, String> model = randomEntries();
+        final ImmutableSparseArray.BinarySearchBasedBuilder<String> builder = new ImmutableSparseArray.BinarySearchBasedBuilder<>();
+        model.forEach(builder::set);
+        final Path file = dir.resolve("keys.spa");
+
+        SparseArrayFile.write(builder.build(), file, Serializer.utf8());
+        final ImmutableSparseArray<String> mapped = SparseArrayFile.map(file, Serializer.utf8());
+
+        for (int idx = -10; idx < LENGTH + 10; ++idx) {
+            assertThat(mapped.get(idx)).isEqualTo(model.get(idx));
+        }
+    }
+
+    @Test
+    void write_shouldKeepValuesWithinOneWindow() throws Exception {
+        final ImmutableSparseArray.BinarySearchBasedBuilder<String> builder = new ImmutableSparseArray.BinarySearchBasedBuilder<>();
+        final Map<Integer, String> model = new HashMap<>();
+        final Random random = new Random(3);
+        for (int i = 0; i < 500; ++i) {
+            final StringBuilder value = new StringBuilder();
+            for (int j = random.nextInt(200); j >= 0; --j) {
+                value.append((char) ('a' + random.nextInt(26)));
+            }
+            builder.set(i * 3, value.toString());
+            model.put(i * 3, value.toString());
+        }
+        final Path file = dir.resolve("windows.spa");
+
+        // 1KB windows: slots and blob both span many windows
+        SparseArrayFile.write(builder.build(), file, Serializer.utf8(), 10);
+        final ImmutableSparseArray<String> mapped = SparseArrayFile.map(file, Serializer.utf8());
+
+        model.forEach((idx, value) -> assertThat(mapped.get(idx)).isEqualTo(value));
+        assertThat(mapped.get(1)).isNull();
+        final ImmutableSparseArray.BinarySearchBasedBuilder<String> tooBig = new ImmutableSparseArray.BinarySearchBasedBuilder<>();
+        tooBig.set(0, new String(new char[2000]));
+        assertThatThrownBy(() -> SparseArrayFile.write(tooBig.build(), dir.resolve("too-big.spa"), Serializer.utf8(), 10))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void map_shouldRejectForeignAndTruncatedFiles() throws Exception {
+        final Path foreign = dir.resolve("foreign.spa");
+        Files.write(foreign, new byte[64]);
+        assertThatThrownBy(() -> SparseArrayFile.map(foreign, Serializer.utf8())).hasMessageContaining("not a version");
+
+        final ImmutableSparseArray.BinarySearchBasedBuilder<String> builder = new ImmutableSparseArray.BinarySearchBasedBuilder<>();
+        for (int i = 0; i < 100; ++i) {
+            builder.set(i, "v" + i);
+        }
+        final Path truncated = dir.resolve("truncated.spa");
+        SparseArrayFile.write(builder.build(), truncated, Serializer.utf8());
+        try (FileChannel channel = FileChannel.open(truncated, StandardOpenOption.WRITE)) {
+            channel.truncate(600);
+        }
+        assertThatThrownBy(() -> SparseArrayFile.map(truncated, Serializer.utf8())).hasMessageContaining("truncated");
+    }
+
+    private static Map<Integer, String> randomEntries() {
+        final Map<Integer, String> model = new HashMap<>();
+        final Random random = new Random(42);
+        for (int i = 0; i < 2_000; ++i) {
+            final int idx = random.nextInt(LENGTH);
+            model.put(idx, "v" + idx);
+        }
+        model.put(LENGTH - 1, "");
+        return model;
+    }
+}